@@ -0,0 +1,126 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One AI turn in each of {@code games} concurrent games, through {@link GameService} against the
+ * {@code Replay} model, whose answers take {@code median} (log-normal) and {@code spikeRate} of
+ * them 500ms longer. Shows how upstream latency and its tail limit the AI turns a replica gets
+ * through: the turns per second are {@code games} divided by the time per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AiTurnThroughputBenchmark {
+
+    @Param({"0ms", "50ms"})
+    private String median;
+
+    @Param({"0", "0.05"})
+    private double spikeRate;
+
+    @Param("200")
+    private int games;
+
+    private GameService gameService;
+    private AiTurnExecutor aiTurnExecutor;
+    private GameRegistry gameRegistry;
+    private final List<GameSession> sessions = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+
+        AiReplayProperties replayProperties = new AiReplayProperties();
+        replayProperties.getLatency().setMedian(DurationStyle.detectAndParse(median));
+        replayProperties.getLatency().setSpikeRate(spikeRate);
+        replayProperties.getLatency().setSpike(Duration.ofMillis(500));
+        replayProperties.getLatency().setTimeoutRate(0);
+        replayProperties.getLatency().setErrorRate(0);
+        // every decision goes to the model, as it would for situations not seen before
+        AiDecisionCacheProperties cacheProperties = new AiDecisionCacheProperties();
+        cacheProperties.setEnabled(false);
+        AiTurnProperties turnProperties = new AiTurnProperties();
+        turnProperties.setStepDelay(Duration.ZERO);
+        // what the model path sustains, not what admission lets through
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setEnabled(false);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AiDecisionCache decisionCache = new AiDecisionCache(cacheProperties, meterRegistry);
+        aiTurnExecutor = new AiTurnExecutor(turnProperties, meterRegistry);
+        gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+        }, meterRegistry);
+        gameService = new GameService(messagingTemplate,
+                aiTurnExecutor,
+                gameRegistry,
+                new AiModelRegistry(Map.of("Replay", new AiModelReplay(replayProperties)), Map.of(), decisionCache, new AiModelProperties(),
+                        new AiBatchProperties(), replayProperties, meterRegistry),
+                new SpeculativeAiWarmer(new AiSpeculationProperties(), decisionCache, meterRegistry),
+                new InMemoryGameStateStore(),
+                new GameEventLog(new GameEventLogProperties(), meterRegistry),
+                new GameMetrics(meterRegistry, gameRegistry),
+                new MoveLog(new GameLoggingProperties()),
+                new AdmissionController(admissionProperties, meterRegistry));
+        for (int game = 0; game < games; game++) {
+            sessions.add(newGame());
+        }
+    }
+
+    private GameSession newGame() {
+        return gameRegistry.get(gameService.startNewGame("Player", "Replay").getGameId());
+    }
+
+    @TearDown
+    public void tearDown() {
+        aiTurnExecutor.shutdown();
+    }
+
+    @Benchmark
+    public void aiTurns() {
+        List<BookingType> booked = new ArrayList<>(games);
+        for (int game = 0; game < games; game++) {
+            // a finished game is closed, its player starts the next one
+            if (sessions.get(game).getGameState().isGameOver()) {
+                sessions.set(game, newGame());
+            }
+            GameState gameState = sessions.get(game).getGameState();
+            BookingType bookingType = firstOpen(gameState);
+            booked.add(bookingType);
+            gameService.handlePlayerBook(gameState.getGameId(), bookingType);
+        }
+        for (int game = 0; game < games; game++) {
+            GameState gameState = sessions.get(game).getGameState();
+            GameMailbox mailbox = sessions.get(game).getMailbox();
+            int bookedBit = 1 << booked.get(game).ordinal();
+            // the booking is applied and the AI has taken its turn
+            while ((gameState.getUsedMask(0) & bookedBit) == 0 || mailbox.isAiTurn()) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static BookingType firstOpen(GameState gameState) {
+        for (BookingType bookingType : BookingType.values()) {
+            if (!gameState.isBooked(bookingType)) {
+                return bookingType;
+            }
+        }
+        throw new IllegalStateException("No open booking type");
+    }
+}
@@ -0,0 +1,48 @@
+package com.oglimmer.diceyvicy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiceFilterBenchmark {
+
+    private final List<Integer> diceRolls = List.of(3, 5, 3, 6, 3);
+    private final int[] positionsToKeep = {1, 3, 5};
+    private final List<Integer> valuesToKeep = List.of(3, 3, 3);
+    private final AiBot aiBot = AiBot.builder().aiModel(SimulationRunner.stubModel()).build();
+    private GameState gameState;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        gameState = new GameState();
+        gameState.initializeGame("Player");
+    }
+
+    @Benchmark
+    public int[] filterByPositions() {
+        return GameState.filterByPositions(diceRolls, positionsToKeep);
+    }
+
+    @Benchmark
+    public List<Integer> filterByCount() {
+        return aiBot.filterByCount(diceRolls, valuesToKeep);
+    }
+
+    @Benchmark
+    public List<Integer> rerollDiceByPos() {
+        if (gameState.getRollCount() >= 3) {
+            // a turn has two rerolls; a new game is the cheapest way to get a fresh turn
+            gameState.initializeGame("Player");
+        }
+        gameState.rerollDiceByPos(positionsToKeep);
+        return gameState.getDiceRolls();
+    }
+}
@@ -0,0 +1,137 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Appending a move to the event log, which runs on every broadcast, and recovering a log of
+ * {@code games} half-played games, which is how long a restarted replica takes until it is back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameEventLogBenchmark {
+
+    @Param("10000")
+    private int games;
+
+    private Path appendDir;
+    private Path recoveryDir;
+    private Set<Path> recoverySegments;
+    private GameEventLog eventLog;
+    private GameState gameState;
+    private GameDelta delta;
+
+    @Setup
+    public void setUp() throws Exception {
+        Benchmarks.quietLogging();
+        appendDir = Files.createTempDirectory("event-log-append");
+        eventLog = openLog(appendDir);
+        GameSession session = newSession();
+        gameState = session.getGameState();
+        gameState.rerollDiceByPos(new int[]{1, 2});
+        delta = session.getDeltaTracker().next(gameState, null);
+
+        recoveryDir = Files.createTempDirectory("event-log-recovery");
+        GameEventLog writer = openLog(recoveryDir);
+        for (int game = 0; game < games; game++) {
+            session = newSession();
+            writer.appendSnapshot(GameSnapshot.of(session));
+            // six turns of both players, each a reroll and a booking
+            for (int turn = 0; turn < 12; turn++) {
+                session.getGameState().rerollDiceByPos(new int[]{3, 4});
+                writer.appendMove(session.getGameState(), session.getDeltaTracker().next(session.getGameState(), null));
+                session.getGameState().bookDiceRoll(BookingType.values()[turn / 2]);
+                writer.appendMove(session.getGameState(), session.getDeltaTracker().next(session.getGameState(), null));
+            }
+        }
+        writer.close();
+        recoverySegments = listFiles(recoveryDir);
+    }
+
+    /**
+     * Appending fills a segment every few seconds; only the current one is kept.
+     */
+    @Setup(Level.Iteration)
+    public void dropFullSegments() throws IOException {
+        eventLog.deleteSegmentsBefore(eventLog.startCheckpoint());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        eventLog.close();
+        deleteAll(appendDir);
+        deleteAll(recoveryDir);
+    }
+
+    private static GameEventLog openLog(Path dir) throws IOException {
+        GameEventLogProperties properties = new GameEventLogProperties();
+        properties.setDir(dir.toString());
+        GameEventLog eventLog = new GameEventLog(properties, new SimpleMeterRegistry());
+        eventLog.open();
+        return eventLog;
+    }
+
+    private static GameSession newSession() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return new GameSession(gameState, AiBot.builder().localModel(new AiModelLocalSolver()).modelName("LocalSolver").build(), new GameMailbox(Runnable::run));
+    }
+
+    private static Set<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toSet());
+        }
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void appendMove() {
+        eventLog.appendMove(gameState, delta);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void appendMoveContended() {
+        eventLog.appendMove(gameState, delta);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public List<GameSnapshot> recover() throws IOException {
+        GameEventLog recovering = openLog(recoveryDir);
+        List<GameSnapshot> recovered = recovering.takeRecovered();
+        recovering.close();
+        // opening started a segment of its own, the next run must replay the same log
+        for (Path file : listFiles(recoveryDir)) {
+            if (!recoverySegments.contains(file)) {
+                Files.delete(file);
+            }
+        }
+        return recovered;
+    }
+}
@@ -0,0 +1,66 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oglimmer.kniffel.model.BookingType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameResponseBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GameState gameState;
+    private GameController.GameResponse response;
+    private GameDelta delta;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        gameState = new GameState();
+        gameState.initializeGame("Player");
+        // a game halfway through: player and AI have booked the first six types
+        for (int turn = 0; turn < 6; turn++) {
+            gameState.bookDiceRoll(BookingType.values()[turn]);
+            gameState.bookDiceRoll(BookingType.values()[turn]);
+        }
+        response = GameController.GameResponse.fromGameState(gameState);
+        delta = new GameDeltaTracker(gameState).next(gameState, "Jürgen is thinking about [1, 2, 3, 4, 5]...");
+    }
+
+    @Benchmark
+    public GameController.GameResponse fromGameState() {
+        return GameController.GameResponse.fromGameState(gameState);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return GameMessageWriter.write(response);
+    }
+
+    @Benchmark
+    public byte[] fromGameStateAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(GameController.GameResponse.fromGameState(gameState));
+    }
+
+    @Benchmark
+    public byte[] serializeDelta() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(delta);
+    }
+
+    @Benchmark
+    public byte[] writeDelta() {
+        return GameMessageWriter.write(delta);
+    }
+}
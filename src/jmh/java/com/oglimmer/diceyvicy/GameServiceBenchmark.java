@@ -0,0 +1,75 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A player reroll from the service call to the converted broadcast, with a message channel that
+ * drops every message. Covers the mailbox hand-off, the reroll and encoding the delta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameServiceBenchmark {
+
+    private final AtomicLong sent = new AtomicLong();
+    private final int[] positionsToKeep = {1, 3, 5};
+    private GameService gameService;
+    private AiTurnExecutor aiTurnExecutor;
+    private GameState gameState;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.quietLogging();
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+            sent.incrementAndGet();
+            return true;
+        });
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AiDecisionCache decisionCache = new AiDecisionCache(new AiDecisionCacheProperties(), meterRegistry);
+        aiTurnExecutor = new AiTurnExecutor(new AiTurnProperties(), meterRegistry);
+        GameRegistry gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+        }, meterRegistry);
+        gameService = new GameService(messagingTemplate,
+                aiTurnExecutor,
+                gameRegistry,
+                new AiModelRegistry(Map.of(), Map.of("LocalSolver", new AiModelLocalSolver()), decisionCache, new AiModelProperties(), new AiBatchProperties(),
+                        new AiReplayProperties(), meterRegistry),
+                new SpeculativeAiWarmer(new AiSpeculationProperties(), decisionCache, meterRegistry),
+                new InMemoryGameStateStore(),
+                new GameEventLog(new GameEventLogProperties(), meterRegistry),
+                new GameMetrics(meterRegistry, gameRegistry),
+                new MoveLog(new GameLoggingProperties()),
+                new AdmissionController(new AdmissionProperties(), meterRegistry));
+        gameState = gameService.startNewGame("Player", "LocalSolver");
+    }
+
+    @TearDown
+    public void tearDown() {
+        aiTurnExecutor.shutdown();
+    }
+
+    @Benchmark
+    public long handlePlayerReroll() {
+        if (gameState.getRollCount() >= 3) {
+            gameState.initializeGame("Player");
+        }
+        long before = sent.get();
+        gameService.handlePlayerReroll(gameState.getGameId(), positionsToKeep);
+        // the reroll is applied on the game's mailbox, wait for its broadcast
+        while (sent.get() == before) {
+            Thread.onSpinWait();
+        }
+        return sent.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.oglimmer.diceyvicy;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Settings of a load test run, given as {@code name=value} arguments, see {@link LoadTestRunner}.
+ *
+ * @param players     concurrent players of each step, the steps run one after the other
+ * @param step        how long each step is measured
+ * @param settle      time between connecting the last player of a step and measuring it, for connections and JIT to settle
+ * @param connectRate new players connected per second while a step ramps up
+ * @param transport   {@code native} for plain WebSocket on {@code /game-ws}, {@code sockjs} for {@code /game-websocket}
+ * @param think       median time a player thinks before a command; think times are log-normal around it
+ * @param rerollShare chance that a player rerolls rather than books while it still may
+ * @param timeout     a command without an update for this long counts as a timeout
+ * @param aiLatency   median time the {@code Replay} model takes per decision, when the server runs in-process
+ * @param url         server to load; empty to start one in this JVM with the {@code Replay} model
+ * @param managementUrl the server's actuator; empty for the host of {@code url} on the default management port
+ * @param model       AI model of the games
+ * @param slo         99th percentile latency a step may have before the server counts as saturated
+ * @param cpuLimit    process CPU usage (0 to 1) that counts as saturated
+ * @param heapLimit   share of the maximum heap in use that counts as saturated
+ * @param queueLimit  messages waiting on the inbound or outbound channel that count as saturated
+ */
+record LoadTestOptions(List<Integer> players, Duration step, Duration settle, int connectRate, String transport, Duration think, double rerollShare,
+                       Duration timeout, Duration aiLatency, String url, String managementUrl, String model, Duration slo,
+                       double cpuLimit, double heapLimit, int queueLimit) {
+
+    private static final double THINK_SIGMA = 0.5;
+    private static final int MANAGEMENT_PORT = 8090;
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("players", "250,500,1000,2000,4000"),
+            Map.entry("step", "30s"),
+            Map.entry("settle", "10s"),
+            Map.entry("connect-rate", "200"),
+            Map.entry("transport", "native"),
+            Map.entry("think", "1500ms"),
+            Map.entry("reroll-share", "0.6"),
+            Map.entry("timeout", "10s"),
+            Map.entry("ai-latency", "800ms"),
+            Map.entry("url", ""),
+            Map.entry("management-url", ""),
+            Map.entry("model", "Replay"),
+            Map.entry("slo", "250ms"),
+            Map.entry("cpu-limit", "0.9"),
+            Map.entry("heap-limit", "0.9"),
+            Map.entry("queue-limit", "100"));
+
+    static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected name=value with a name of "
+                        + Set.copyOf(DEFAULTS.keySet()));
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return new LoadTestOptions(
+                Arrays.stream(values.get("players").split(",")).map(String::trim).map(Integer::valueOf).toList(),
+                DurationStyle.detectAndParse(values.get("step")),
+                DurationStyle.detectAndParse(values.get("settle")),
+                Integer.parseInt(values.get("connect-rate")),
+                values.get("transport"),
+                DurationStyle.detectAndParse(values.get("think")),
+                Double.parseDouble(values.get("reroll-share")),
+                DurationStyle.detectAndParse(values.get("timeout")),
+                DurationStyle.detectAndParse(values.get("ai-latency")),
+                values.get("url"),
+                values.get("management-url"),
+                values.get("model"),
+                DurationStyle.detectAndParse(values.get("slo")),
+                Double.parseDouble(values.get("cpu-limit")),
+                Double.parseDouble(values.get("heap-limit")),
+                Integer.parseInt(values.get("queue-limit")));
+    }
+
+    boolean nativeTransport() {
+        return !"sockjs".equals(transport);
+    }
+
+    boolean inProcess() {
+        return url.isBlank();
+    }
+
+    URI managementUri() {
+        if (!managementUrl.isBlank()) {
+            return URI.create(managementUrl);
+        }
+        URI uri = URI.create(url);
+        return URI.create(uri.getScheme() + "://" + uri.getHost() + ":" + MANAGEMENT_PORT);
+    }
+
+    long thinkTimeNanos() {
+        return (long) (think.toNanos() * Math.exp(THINK_SIGMA * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,291 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oglimmer.kniffel.model.BookingType;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One simulated player: starts a game over REST, follows it on {@code /topic/game/{gameId}} and,
+ * whenever it is its turn, thinks for a while and then rerolls or books like the browser client
+ * does. The time from sending a command to the first update of the game is recorded. A finished
+ * game is followed by a new one on the same STOMP session.
+ */
+class LoadTestPlayer extends StompSessionHandlerAdapter implements StompFrameHandler {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+
+    /**
+     * Shared by all players of a run.
+     */
+    record Context(URI baseUri, String aiModel, LoadTestOptions options, HttpClient httpClient,
+                   WebSocketStompClient stompClient, ScheduledExecutorService scheduler,
+                   Recorder connectLatency, Recorder rerollLatency, Recorder bookLatency, LongAdder gamesFinished,
+                   LongAdder timeouts, LongAdder errors, LongAdder startsRefused) {
+    }
+
+    private final Context context;
+    private final String playerName;
+
+    // guarded by this
+    private StompSession session;
+    private StompSession.Subscription subscription;
+    private String gameId;
+    private long seq;
+    private String currentPlayer;
+    private int rollCount;
+    private boolean gameOver;
+    private final Set<BookingType> used = EnumSet.noneOf(BookingType.class);
+    private boolean actionScheduled;
+    private long pendingSince;
+    private boolean pendingReroll;
+    private boolean stopped;
+    private long connectStart;
+
+    LoadTestPlayer(Context context, int number) {
+        this.context = context;
+        this.playerName = "load-" + number;
+    }
+
+    /**
+     * Over plain WebSocket the player asks for permessage-deflate, as browsers do.
+     */
+    synchronized void connect() {
+        WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+        String url;
+        if (context.options().nativeTransport()) {
+            url = context.baseUri().resolve("/game-ws").toString().replaceFirst("^http", "ws");
+            handshakeHeaders.setSecWebSocketExtensions(List.of(new WebSocketExtension("permessage-deflate")));
+        } else {
+            url = context.baseUri().resolve("/game-websocket").toString();
+        }
+        connectStart = System.nanoTime();
+        context.stompClient().connectAsync(url, handshakeHeaders, this).exceptionally(e -> {
+            context.errors().increment();
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        context.connectLatency().recordValue(System.nanoTime() - connectStart);
+        startGame();
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        context.errors().increment();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+    }
+
+    private void startGame() {
+        String body = "{\"playerName\":\"" + playerName + "\",\"aiModel\":\"" + context.aiModel() + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(context.baseUri().resolve("/api/game/start"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        context.httpClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+            if (e == null && response.statusCode() == 429) {
+                // refused by admission control, the player comes back when told to
+                context.startsRefused().increment();
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                context.scheduler().schedule(this::startGame, retryAfter, TimeUnit.SECONDS);
+                return;
+            }
+            if (e != null || response.statusCode() != 200) {
+                context.errors().increment();
+                return;
+            }
+            try {
+                gameStarted(MAPPER.readTree(response.body()));
+            } catch (IOException ex) {
+                context.errors().increment();
+            }
+        });
+    }
+
+    private synchronized void gameStarted(JsonNode game) {
+        if (stopped) {
+            return;
+        }
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+        gameId = game.get("gameId").asText();
+        used.clear();
+        gameOver = false;
+        applySnapshot(game);
+        subscription = session.subscribe("/topic/game/" + gameId, this);
+        scheduleActionIfMyTurn();
+    }
+
+    @Override
+    public Type getPayloadType(StompHeaders headers) {
+        return byte[].class;
+    }
+
+    @Override
+    public synchronized void handleFrame(StompHeaders headers, Object payload) {
+        JsonNode message;
+        try {
+            message = MAPPER.readTree((byte[]) payload);
+        } catch (IOException e) {
+            context.errors().increment();
+            return;
+        }
+        String type = message.path("type").asText();
+        // updates of the previous game may still come in after it was unsubscribed
+        if ("reasoning".equals(type) || stopped || !("/topic/game/" + gameId).equals(headers.getDestination())) {
+            return;
+        }
+        if (pendingSince != 0) {
+            long latency = System.nanoTime() - pendingSince;
+            (pendingReroll ? context.rerollLatency() : context.bookLatency()).recordValue(latency);
+            pendingSince = 0;
+        }
+        if ("delta".equals(type)) {
+            long deltaSeq = message.get("seq").asLong();
+            if (deltaSeq <= seq) {
+                return;
+            }
+            if (deltaSeq != seq + 1) {
+                sync();
+                return;
+            }
+            applyDelta(message);
+        } else {
+            applySnapshot(message);
+        }
+        if (gameOver) {
+            context.gamesFinished().increment();
+            startGame();
+        } else {
+            scheduleActionIfMyTurn();
+        }
+    }
+
+    private void applySnapshot(JsonNode game) {
+        seq = game.path("seq").asLong();
+        currentPlayer = game.path("currentPlayer").asText();
+        rollCount = game.path("rollCount").asInt();
+        gameOver = game.path("gameOver").asBoolean() || game.path("closed").asBoolean();
+        for (JsonNode bookingType : game.path("players").path(playerName).path("usedBookingTypes")) {
+            used.add(BookingType.valueOf(bookingType.asText()));
+        }
+    }
+
+    private void applyDelta(JsonNode delta) {
+        seq = delta.get("seq").asLong();
+        if (delta.has("currentPlayer")) {
+            currentPlayer = delta.get("currentPlayer").asText();
+        }
+        if (delta.has("rollCount")) {
+            rollCount = delta.get("rollCount").asInt();
+        }
+        if (delta.has("gameOver")) {
+            gameOver = delta.get("gameOver").asBoolean();
+        }
+        if (delta.path("closed").asBoolean()) {
+            gameOver = true;
+        }
+        for (JsonNode booking : delta.path("bookings")) {
+            if (playerName.equals(booking.path("player").asText())) {
+                used.add(BookingType.valueOf(booking.get("bookingType").asText()));
+            }
+        }
+    }
+
+    private void scheduleActionIfMyTurn() {
+        if (actionScheduled || pendingSince != 0 || !playerName.equals(currentPlayer)) {
+            return;
+        }
+        actionScheduled = true;
+        context.scheduler().schedule(this::act, context.options().thinkTimeNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void act() {
+        actionScheduled = false;
+        if (stopped || gameOver || !session.isConnected() || !playerName.equals(currentPlayer)) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (rollCount < 3 && random.nextDouble() < context.options().rerollShare()) {
+            List<Integer> keep = new ArrayList<>(5);
+            for (int position = 1; position <= 5; position++) {
+                if (random.nextBoolean()) {
+                    keep.add(position);
+                }
+            }
+            send("reroll", "{\"diceToKeep\":" + keep + "}", true);
+        } else {
+            List<BookingType> open = new ArrayList<>(BOOKING_TYPES.length);
+            for (BookingType bookingType : BOOKING_TYPES) {
+                if (!used.contains(bookingType)) {
+                    open.add(bookingType);
+                }
+            }
+            if (open.isEmpty()) {
+                sync();
+                return;
+            }
+            send("book", "{\"bookingType\":\"" + open.get(random.nextInt(open.size())) + "\"}", false);
+        }
+    }
+
+    private void send(String command, String body, boolean reroll) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/game/" + gameId + "/" + command);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        pendingSince = System.nanoTime();
+        pendingReroll = reroll;
+        session.send(headers, body.getBytes());
+    }
+
+    private void sync() {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/app/game/" + gameId + "/sync");
+        session.send(headers, new byte[0]);
+    }
+
+    /**
+     * A command whose update did not come in time is counted and the game resynced, so the player goes on.
+     */
+    synchronized void checkTimeout(long nowNanos) {
+        if (pendingSince != 0 && nowNanos - pendingSince > context.options().timeout().toNanos()) {
+            context.timeouts().increment();
+            pendingSince = 0;
+            sync();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.oglimmer.diceyvicy;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds how many concurrent players one server sustains. Players connect over STOMP like the
+ * browser client, on plain WebSocket or with {@code transport=sockjs} over SockJS, start games
+ * over REST and play them with log-normal think times, see {@link LoadTestPlayer}. The number of players is raised step by step; each step reports the
+ * HDR latency percentiles from command to game update, and the server's CPU, heap and STOMP
+ * channel queues from its actuator on the management port. The run ends at the first step that is saturated: its 99th
+ * percentile exceeds the SLO, or CPU, heap or a channel queue exceeds its limit.
+ * <p>
+ * By default the server runs in this JVM with the {@code Replay} model, so nothing but the
+ * machine is needed; the players then share its CPU. With {@code url=...} an already running
+ * server is loaded instead, e.g. a pod, with a model it has ({@code model=Fast}).
+ * <p>
+ * Usage: {@code ./mvnw -Ploadtest verify -DskipTests -Dloadtest.args="players=500,1000,2000 step=60s think=2s"}
+ */
+public final class LoadTestRunner {
+
+    private static final double MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private LoadTestRunner() {
+    }
+
+    record StepResult(int players, double commandsPerSecond, Histogram connectLatency, Histogram latency,
+                      Histogram rerollLatency, Histogram bookLatency, long gamesFinished, long timeouts, long errors,
+                      long startsRefused,
+                      ServerMetricsSampler.Stats server, String saturation) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext server = options.inProcess() ? startServer(options) : null;
+        URI baseUri = server != null
+                ? URI.create("http://localhost:" + ((WebServerApplicationContext) server).getWebServer().getPort())
+                : URI.create(options.url());
+        URI managementUri = server != null
+                ? URI.create("http://localhost:" + server.getEnvironment().getProperty("local.management.port"))
+                : options.managementUri();
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        WebSocketStompClient stompClient = new WebSocketStompClient(options.nativeTransport()
+                ? new StandardWebSocketClient()
+                : new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        ScheduledExecutorService sampling = Executors.newSingleThreadScheduledExecutor();
+        LoadTestPlayer.Context context = new LoadTestPlayer.Context(baseUri, options.model(), options, httpClient,
+                stompClient, scheduler, new Recorder(3), new Recorder(3), new Recorder(3), new LongAdder(), new LongAdder(),
+                new LongAdder(), new LongAdder());
+        ServerMetricsSampler sampler = new ServerMetricsSampler(managementUri, httpClient);
+        List<LoadTestPlayer> players = new ArrayList<>();
+        sampling.scheduleAtFixedRate(sampler::sample, 1, 1, TimeUnit.SECONDS);
+        sampling.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            synchronized (players) {
+                players.forEach(player -> player.checkTimeout(now));
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
+        System.out.println("Loading " + baseUri + " over " + (options.nativeTransport() ? "WebSocket" : "SockJS")
+                + " with model " + options.model()
+                + (server != null ? " (in-process, players share the server's CPU)" : ""));
+        List<StepResult> results = new ArrayList<>();
+        try {
+            for (int target : options.players()) {
+                rampUp(players, target, context, options.connectRate());
+                Thread.sleep(options.settle().toMillis());
+                Histogram connects = context.connectLatency().getIntervalHistogram();
+                // what the ramp-up recorded is not part of the step
+                context.rerollLatency().reset();
+                context.bookLatency().reset();
+                context.gamesFinished().reset();
+                context.timeouts().reset();
+                context.errors().reset();
+                context.startsRefused().reset();
+                sampler.reset();
+
+                Thread.sleep(options.step().toMillis());
+
+                StepResult result = measure(target, options, context, connects, sampler.reset());
+                results.add(result);
+                System.out.println(format(result));
+                if (result.saturation() != null) {
+                    break;
+                }
+            }
+        } finally {
+            synchronized (players) {
+                players.forEach(LoadTestPlayer::stop);
+            }
+            sampling.shutdownNow();
+            scheduler.shutdownNow();
+            stompClient.stop();
+            if (server != null) {
+                server.close();
+            }
+        }
+        report(results);
+    }
+
+    /**
+     * The server with the {@link AiModelReplay} model, answering after {@code ai-latency}. The rest of its latency
+     * profile can be set as system properties ({@code -Ddiceyvicy.ai-replay.latency.spike-rate=0.05}).
+     */
+    private static ConfigurableApplicationContext startServer(LoadTestOptions options) {
+        // as arguments, default properties would lose against application.properties; all players share one
+        // address, so only the per-address limits of admission control are lifted
+        return new SpringApplicationBuilder(GameApplication.class)
+                .run("--server.port=0", "--management.server.port=0", "--logging.level.com.oglimmer=WARN", "--diceyvicy.ai-replay.enabled=true",
+                        "--diceyvicy.ai-replay.latency.median=" + options.aiLatency().toMillis() + "ms",
+                        "--diceyvicy.admission.starts-per-ip.rate=0", "--diceyvicy.admission.moves-per-ip.rate=0");
+    }
+
+    private static void rampUp(List<LoadTestPlayer> players, int target, LoadTestPlayer.Context context, int connectRate)
+            throws InterruptedException {
+        System.out.println("Ramping up to " + target + " players");
+        long interval = TimeUnit.SECONDS.toNanos(1) / connectRate;
+        long next = System.nanoTime();
+        while (players.size() < target) {
+            LoadTestPlayer player = new LoadTestPlayer(context, players.size());
+            synchronized (players) {
+                players.add(player);
+            }
+            player.connect();
+            next += interval;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    private static StepResult measure(int players, LoadTestOptions options, LoadTestPlayer.Context context,
+                                      Histogram connects, ServerMetricsSampler.Stats server) {
+        Histogram rerolls = context.rerollLatency().getIntervalHistogram();
+        Histogram books = context.bookLatency().getIntervalHistogram();
+        Histogram latency = rerolls.copy();
+        latency.add(books);
+        double seconds = options.step().toMillis() / 1000.0;
+        return new StepResult(players, latency.getTotalCount() / seconds, connects, latency, rerolls, books,
+                context.gamesFinished().sum(), context.timeouts().sum(), context.errors().sum(),
+                context.startsRefused().sum(), server,
+                saturation(latency, server, options));
+    }
+
+    /**
+     * @return why the step counts as saturated, null if it doesn't
+     */
+    private static String saturation(Histogram latency, ServerMetricsSampler.Stats server, LoadTestOptions options) {
+        List<String> reasons = new ArrayList<>();
+        if (latency.getValueAtPercentile(99) > options.slo().toNanos()) {
+            reasons.add("p99 over " + options.slo().toMillis() + "ms");
+        }
+        if (server.cpuAvg() > options.cpuLimit()) {
+            reasons.add("CPU over " + Math.round(options.cpuLimit() * 100) + "%");
+        }
+        if (server.heapShare() > options.heapLimit()) {
+            reasons.add("heap over " + Math.round(options.heapLimit() * 100) + "%");
+        }
+        if (server.inboundQueueMax() > options.queueLimit()) {
+            reasons.add("inbound queue over " + options.queueLimit());
+        }
+        if (server.outboundQueueMax() > options.queueLimit()) {
+            reasons.add("outbound queue over " + options.queueLimit());
+        }
+        return reasons.isEmpty() ? null : String.join(", ", reasons);
+    }
+
+    private static String format(StepResult result) {
+        Histogram latency = result.latency();
+        ServerMetricsSampler.Stats server = result.server();
+        return String.format("%6d players %8.1f cmd/s  latency ms p50 %6.1f p90 %6.1f p99 %6.1f p99.9 %6.1f max %7.1f"
+                        + " (p99 reroll %6.1f book %6.1f)  connect p50 %6.1f p99 %6.1f  games %5d timeouts %4d errors %4d refused %4d"
+                        + "  CPU avg %3.0f%% max %3.0f%%  heap %5.0f/%5.0fMB  queue in %4.0f out %4.0f%s",
+                result.players(), result.commandsPerSecond(),
+                latency.getValueAtPercentile(50) / MS, latency.getValueAtPercentile(90) / MS,
+                latency.getValueAtPercentile(99) / MS, latency.getValueAtPercentile(99.9) / MS, latency.getMaxValue() / MS,
+                result.rerollLatency().getValueAtPercentile(99) / MS, result.bookLatency().getValueAtPercentile(99) / MS,
+                result.connectLatency().getValueAtPercentile(50) / MS, result.connectLatency().getValueAtPercentile(99) / MS,
+                result.gamesFinished(), result.timeouts(), result.errors(), result.startsRefused(),
+                server.cpuAvg() * 100, server.cpuMax() * 100, server.heapUsedMax() / (1 << 20), server.heapMax() / (1 << 20),
+                server.inboundQueueMax(), server.outboundQueueMax(),
+                result.saturation() == null ? "" : "  SATURATED: " + result.saturation());
+    }
+
+    private static void report(List<StepResult> results) {
+        StepResult saturated = results.isEmpty() ? null : results.get(results.size() - 1);
+        if (saturated == null || saturated.saturation() == null) {
+            System.out.println("Not saturated up to " + (saturated == null ? 0 : saturated.players()) + " players");
+            return;
+        }
+        int sustained = results.size() > 1 ? results.get(results.size() - 2).players() : 0;
+        System.out.println("Saturated at " + saturated.players() + " players (" + saturated.saturation()
+                + "), sustained " + sustained);
+    }
+}
@@ -0,0 +1,102 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Samples the server's CPU, heap and STOMP channel queues from {@code /actuator/metrics} on its
+ * management port once a
+ * second and keeps the average and maximum of each since the last {@link #reset()}.
+ */
+class ServerMetricsSampler {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URI managementUri;
+    private final HttpClient httpClient;
+
+    // guarded by this
+    private int samples;
+    private double cpuSum;
+    private double cpuMax;
+    private double heapUsedMax;
+    private double heapMax;
+    private double inboundQueueMax;
+    private double outboundQueueMax;
+
+    ServerMetricsSampler(URI managementUri, HttpClient httpClient) {
+        this.managementUri = managementUri;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * What the server looked like during a step.
+     */
+    record Stats(double cpuAvg, double cpuMax, double heapUsedMax, double heapMax, double inboundQueueMax,
+                 double outboundQueueMax) {
+
+        double heapShare() {
+            return heapMax > 0 ? heapUsedMax / heapMax : 0;
+        }
+    }
+
+    void sample() {
+        double cpu = value("process.cpu.usage", null);
+        double heapUsed = value("jvm.memory.used", "area:heap");
+        double heap = value("jvm.memory.max", "area:heap");
+        double inbound = value("diceyvicy.websocket.inbound.queue", null);
+        double outbound = value("diceyvicy.websocket.outbound.queue", null);
+        synchronized (this) {
+            samples++;
+            cpuSum += cpu;
+            cpuMax = Math.max(cpuMax, cpu);
+            heapUsedMax = Math.max(heapUsedMax, heapUsed);
+            heapMax = Math.max(heapMax, heap);
+            inboundQueueMax = Math.max(inboundQueueMax, inbound);
+            outboundQueueMax = Math.max(outboundQueueMax, outbound);
+        }
+    }
+
+    synchronized Stats reset() {
+        Stats stats = new Stats(samples == 0 ? 0 : cpuSum / samples, cpuMax, heapUsedMax, heapMax,
+                inboundQueueMax, outboundQueueMax);
+        samples = 0;
+        cpuSum = 0;
+        cpuMax = 0;
+        heapUsedMax = 0;
+        inboundQueueMax = 0;
+        outboundQueueMax = 0;
+        return stats;
+    }
+
+    /**
+     * @return the meter's value, or 0 if the server doesn't have it (e.g. the channel queues behind a broker relay)
+     */
+    private double value(String meter, String tag) {
+        URI uri = managementUri.resolve("/actuator/metrics/" + meter + (tag == null ? "" : "?tag=" + tag));
+        try {
+            HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(2)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                return 0;
+            }
+            for (JsonNode measurement : MAPPER.readTree(response.body()).path("measurements")) {
+                if ("VALUE".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.oglimmer.diceyvicy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Decides what the server takes on, so overload makes things slower in a predictable way instead
+ * of taking the pod down. Starts and moves are rate limited with token buckets per client address
+ * and per WebSocket session. AI turns, which may call a paid and slow model, are capped globally:
+ * a turn over the cap either plays with the cheap {@code overflow-model} or waits for a free slot.
+ */
+@Component
+public class AdmissionController {
+
+    /**
+     * Session attribute with the client's address, set on the WebSocket handshake.
+     */
+    public static final String CLIENT_ADDRESS = "clientAddress";
+
+    // bounds the buckets kept when many addresses show up, e.g. spoofed ones
+    private static final int MAX_BUCKETS = 100_000;
+
+    private final AdmissionProperties properties;
+    private final Cache<String, TokenBucket> startBuckets;
+    private final Cache<String, TokenBucket> sessionMoveBuckets;
+    private final Cache<String, TokenBucket> addressMoveBuckets;
+    private final Cache<String, Boolean> throttleNotices;
+    private final Counter rejectedStarts;
+    private final Counter rejectedMoves;
+    private final Counter rejectedAiTurns;
+    private final Counter degradedAiTurns;
+
+    // guarded by this
+    private int aiTurnsInFlight;
+    private final ArrayDeque<Consumer<AiTurnSlot>> waitingAiTurns = new ArrayDeque<>();
+
+    public AdmissionController(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.startBuckets = buckets(properties.getStartsPerIp());
+        this.sessionMoveBuckets = buckets(properties.getMovesPerSession());
+        this.addressMoveBuckets = buckets(properties.getMovesPerIp());
+        this.throttleNotices = Caffeine.newBuilder()
+                .maximumSize(MAX_BUCKETS)
+                .expireAfterWrite(moveRetryAfter())
+                .build();
+        this.rejectedStarts = rejectedCounter("start", meterRegistry);
+        this.rejectedMoves = rejectedCounter("move", meterRegistry);
+        this.rejectedAiTurns = rejectedCounter("ai-turn", meterRegistry);
+        this.degradedAiTurns = Counter.builder("diceyvicy.admission.ai-turns.degraded")
+                .description("AI turns played with the overflow model because all slots were taken")
+                .register(meterRegistry);
+        Gauge.builder("diceyvicy.admission.ai-turns.in-flight", this, AdmissionController::getAiTurnsInFlight)
+                .description("AI turns holding a slot")
+                .register(meterRegistry);
+        Gauge.builder("diceyvicy.admission.ai-turns.waiting", this, AdmissionController::getWaitingAiTurns)
+                .description("AI turns waiting for a free slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buckets of clients that were idle long enough to have a full bucket again are dropped.
+     */
+    private static Cache<String, TokenBucket> buckets(AdmissionProperties.Limit limit) {
+        Duration refill = limit.getRate() > 0
+                ? Duration.ofNanos((long) (Math.max(limit.getBurst(), 1) * 1_000_000_000d / limit.getRate()))
+                : Duration.ZERO;
+        return Caffeine.newBuilder()
+                .maximumSize(MAX_BUCKETS)
+                .expireAfterAccess(refill.plusMinutes(1))
+                .build();
+    }
+
+    private static Counter rejectedCounter(String kind, MeterRegistry meterRegistry) {
+        return Counter.builder("diceyvicy.admission.rejected")
+                .description("Requests refused because a client or the server was over its limit")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param clientAddress null if unknown, then only the other limits apply
+     */
+    public boolean admitStart(String clientAddress) {
+        if (!take(startBuckets, properties.getStartsPerIp(), clientAddress)) {
+            rejectedStarts.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return how long a client whose start was refused should wait before trying again
+     */
+    public Duration startRetryAfter() {
+        double rate = properties.getStartsPerIp().getRate();
+        return Duration.ofSeconds(rate > 0 ? (long) Math.ceil(1 / rate) : 1);
+    }
+
+    /**
+     * @return how long a client whose move was dropped should wait before trying again
+     */
+    public Duration moveRetryAfter() {
+        double rate = properties.getMovesPerSession().getRate();
+        return Duration.ofMillis(rate > 0 ? (long) Math.ceil(1000 / rate) : 1000);
+    }
+
+    public boolean admitMove(String sessionId, String clientAddress) {
+        if (!take(sessionMoveBuckets, properties.getMovesPerSession(), sessionId)
+                || !take(addressMoveBuckets, properties.getMovesPerIp(), clientAddress)) {
+            rejectedMoves.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the session of a dropped move is to be told so, at most once per {@link #moveRetryAfter()}
+     */
+    public boolean notifyDroppedMove(String sessionId) {
+        return sessionId != null && throttleNotices.asMap().putIfAbsent(sessionId, Boolean.TRUE) == null;
+    }
+
+    private boolean take(Cache<String, TokenBucket> buckets, AdmissionProperties.Limit limit, String key) {
+        if (!properties.isEnabled() || limit.getRate() <= 0 || key == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        return buckets.get(key, k -> new TokenBucket(limit.getRate(), limit.getBurst(), now)).tryTake(now);
+    }
+
+    /**
+     * @return a slot to release when the turn is over, null if all are taken
+     */
+    public AiTurnSlot tryAcquireAiTurn() {
+        if (!properties.isEnabled()) {
+            return AiTurnSlot.UNCOUNTED;
+        }
+        synchronized (this) {
+            if (aiTurnsInFlight >= properties.getMaxAiTurns()) {
+                return null;
+            }
+            aiTurnsInFlight++;
+        }
+        return new AiTurnSlot(this);
+    }
+
+    /**
+     * @return the model for AI turns over the cap, null to make them wait
+     */
+    public String getOverflowModel() {
+        String overflowModel = properties.getOverflowModel();
+        return overflowModel == null || overflowModel.isBlank() ? null : overflowModel;
+    }
+
+    /**
+     * Counts a turn played with the overflow model or the local fallback, which needs no slot.
+     */
+    public void aiTurnDegraded() {
+        degradedAiTurns.increment();
+    }
+
+    /**
+     * Starts the turn once a slot is free, on the thread that frees it.
+     *
+     * @return the turn's position in the line, 0 if it started right away, -1 if the line is full
+     */
+    public int awaitAiTurn(Consumer<AiTurnSlot> start) {
+        synchronized (this) {
+            if (aiTurnsInFlight >= properties.getMaxAiTurns()) {
+                if (waitingAiTurns.size() >= properties.getMaxWaitingAiTurns()) {
+                    rejectedAiTurns.increment();
+                    return -1;
+                }
+                waitingAiTurns.addLast(start);
+                return waitingAiTurns.size();
+            }
+            aiTurnsInFlight++;
+        }
+        start.accept(new AiTurnSlot(this));
+        return 0;
+    }
+
+    private void release() {
+        Consumer<AiTurnSlot> next;
+        synchronized (this) {
+            next = waitingAiTurns.pollFirst();
+            if (next == null) {
+                aiTurnsInFlight--;
+                return;
+            }
+        }
+        // the slot goes to the next turn in line, the count stays
+        next.accept(new AiTurnSlot(this));
+    }
+
+    synchronized int getAiTurnsInFlight() {
+        return aiTurnsInFlight;
+    }
+
+    synchronized int getWaitingAiTurns() {
+        return waitingAiTurns.size();
+    }
+
+    /**
+     * An AI turn's share of the cap. Releasing it more than once, e.g. from a failed step and the
+     * rejection that follows, frees it only once.
+     */
+    public static final class AiTurnSlot {
+
+        static final AiTurnSlot UNCOUNTED = new AiTurnSlot(null);
+
+        private final AdmissionController owner;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private AiTurnSlot(AdmissionController owner) {
+            this.owner = owner;
+        }
+
+        public void release() {
+            if (owner != null && released.compareAndSet(false, true)) {
+                owner.release();
+            }
+        }
+    }
+}
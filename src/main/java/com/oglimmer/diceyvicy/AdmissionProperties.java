@@ -0,0 +1,72 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.admission")
+public class AdmissionProperties {
+
+    /**
+     * Rate limits and the cap on AI turns; without it every start, move and AI turn is admitted.
+     */
+    private boolean enabled = true;
+
+    /**
+     * New games per client address. Over it, starting a game answers 429.
+     */
+    private Limit startsPerIp = new Limit(0.2, 5);
+
+    /**
+     * Moves (rerolls and bookings) per WebSocket session. Moves over it are dropped.
+     */
+    private Limit movesPerSession = new Limit(5, 10);
+
+    /**
+     * Moves of all WebSocket sessions from one client address.
+     */
+    private Limit movesPerIp = new Limit(50, 100);
+
+    /**
+     * AI turns in flight at the same time, across all games. These are the turns that may call a
+     * paid, slow model.
+     */
+    private int maxAiTurns = 256;
+
+    /**
+     * AI turns that wait for a free slot when {@link #overflowModel} is not set or unknown. Beyond
+     * it, the AI turn is played with the bot's local fallback.
+     */
+    private int maxWaitingAiTurns = 1000;
+
+    /**
+     * Model an AI turn is played with when all slots are taken, e.g. the local solver, instead of
+     * waiting for a free slot; empty to wait.
+     */
+    private String overflowModel = "LocalSolver";
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        /**
+         * Tokens added per second; 0 for no limit.
+         */
+        private double rate;
+
+        /**
+         * Tokens a client may use at once after being idle.
+         */
+        private int burst;
+
+        public Limit() {
+        }
+
+        public Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replaces model answers that are clearly worse than the best move by {@link ExpectedValueEngine}.
+ * Close calls are left to the model, only answers that lose more than the configured points are
+ * overridden.
+ */
+@Slf4j
+public class AiAnswerCheck {
+
+    private final ExpectedValueEngine engine;
+    private final double maxBookingLoss;
+    private final double maxKeepLoss;
+
+    public AiAnswerCheck(ExpectedValueEngine engine, AiModelProperties properties) {
+        this.engine = engine;
+        this.maxBookingLoss = properties.getMaxBookingLoss();
+        this.maxKeepLoss = properties.getMaxKeepLoss();
+    }
+
+    /**
+     * @return the engine's booking type if the model's loses too much, null to play the model's
+     */
+    public BookingType override(List<Integer> diceRolls, List<BookingType> usedBookingTypes, BookingType answer) {
+        int usedMask = OptimalStrategyTable.usedMask(usedBookingTypes);
+        double loss = engine.bookingLoss(diceRolls, usedMask, answer);
+        if (loss <= maxBookingLoss) {
+            return null;
+        }
+        BookingType better = engine.bookingType(diceRolls, usedMask);
+        log.debug("Overriding booking {} on {} with {}, it loses {} points", answer, diceRolls, better, Math.round(loss));
+        return better;
+    }
+
+    /**
+     * @return the engine's dice to keep if the model's lose too much, null to play the model's
+     */
+    public int[] override(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round, List<Integer> answer) {
+        int usedMask = OptimalStrategyTable.usedMask(usedBookingTypes);
+        double loss = engine.keepLoss(diceRolls, usedMask, round, answer);
+        if (loss <= maxKeepLoss) {
+            return null;
+        }
+        int[] better = engine.diceToKeep(diceRolls, usedMask, round);
+        if (Double.isInfinite(loss)) {
+            log.debug("Overriding keep {} of {} with {}, it keeps dice that were not rolled", answer, diceRolls, Arrays.toString(better));
+        } else {
+            log.debug("Overriding keep {} of {} with {}, it loses {} points", answer, diceRolls, Arrays.toString(better), Math.round(loss));
+        }
+        return better;
+    }
+}
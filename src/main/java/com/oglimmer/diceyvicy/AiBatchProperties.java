@@ -0,0 +1,35 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-batch")
+public class AiBatchProperties {
+
+    /**
+     * Collect the decisions of concurrent games and ask the model about them in one request.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Models whose decisions are batched. Only general models that follow the batch instructions qualify,
+     * not fine-tuned ones trained on single situations.
+     */
+    private Set<String> models = Set.of("4OMini");
+
+    /**
+     * How long the first decision of a batch waits for more. Adds to the latency of every batched decision.
+     */
+    private Duration window = Duration.ofMillis(50);
+
+    /**
+     * Decisions per request; a full batch is sent without waiting for the window to end.
+     */
+    private int maxSize = 16;
+}
@@ -2,43 +2,89 @@ package com.oglimmer.diceyvicy;
 
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.oglimmer.kniffel.model.BookingType;
+import lombok.Builder;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
+/**
+ * Turns game situations into prompts for an {@link AiModel} and its answers into moves, or asks a
+ * {@link LocalAiModel} directly.
+ * Holds no per-game state, so one instance per model is shared by all games (see {@link AiModelRegistry}).
+ */
 @Slf4j
-@Component
 public class AiBot {
 
-    private AiModel aiModel;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader BOOKING_SELECTION_READER = MAPPER.readerFor(BookingSelection.class);
+    private static final ObjectReader DICE_SELECTION_READER = MAPPER.readerFor(DiceSelection.class);
+    private static final String DICE_TO_KEEP_SYSTEM_PROMPT = """
+            You are an expert Yahtzee strategist. Analyze the dice and determine which dice to keep for optimal scoring.
+            
+            Never break the Yahtzee rules. Never invent new actions. Never use non existing options. Always follow the rules as strictly as 1000 peoples lives depend on it.
+            Please respond with a JSON object in the following format:
+            {"diceToKeep": [array of dice values], "reasoning": "string"}
+            Where diceToKeep is an array of dice values to keep (empty array if none) and reasoning explains your choice.""";
 
-    public AiBot() {
-        this.aiModel = new AiModel4OMini(); // Default model
+    private final AiModel aiModel;
+    private final LocalAiModel localModel;
+    private final String modelName;
+    private final AiDecisionCache decisionCache;
+    private final LocalAiModel fallback;
+    private final AiDecisionMetrics metrics;
+    private final AiAnswerCheck answerCheck;
+    private final AiBot fallbackBot;
+
+    /**
+     * @param aiModel       the remote model to prompt; exactly one of it and {@code localModel} is set
+     * @param localModel    the in-process model to ask directly
+     * @param decisionCache answers of this model are looked up there first; null to always ask the model
+     * @param fallback      decides when the model gives no usable answer; null for the {@link ExpectedValueEngine}
+     * @param metrics       records decision latency, failures and fallbacks; null to record nothing
+     * @param answerCheck   overrides clearly bad answers of the model before they are played and cached; null to play them
+     */
+    @Builder
+    private AiBot(AiModel aiModel, LocalAiModel localModel, String modelName, AiDecisionCache decisionCache, LocalAiModel fallback, AiDecisionMetrics metrics,
+                  AiAnswerCheck answerCheck) {
+        if ((aiModel == null) == (localModel == null)) {
+            throw new IllegalArgumentException("Exactly one of aiModel and localModel must be set");
+        }
+        this.aiModel = aiModel;
+        this.localModel = localModel;
+        this.modelName = modelName;
+        this.decisionCache = decisionCache;
+        this.fallback = fallback != null ? fallback : new AiModelFast();
+        this.metrics = metrics;
+        this.answerCheck = answerCheck;
+        this.fallbackBot = localModel != null ? this : AiBot.builder().localModel(this.fallback).modelName(modelName).build();
     }
 
-    public AiBot(String modelType) {
-        setAiModel(modelType);
+    /**
+     * @return whether the bot decides in-process, so its decisions cost nothing and are never cached
+     */
+    public boolean isLocal() {
+        return localModel != null;
     }
 
-    public void setAiModel(String modelType) {
-        switch (modelType) {
-            case "4OMini":
-                this.aiModel = new AiModel4OMini();
-                break;
-            case "35TurboFineTuned":
-                this.aiModel = new AiModel35TurboFineTuned();
-                break;
-            default:
-                log.warn("Unknown AI model type: {}, using default 4OMini", modelType);
-                this.aiModel = new AiModel4OMini();
-                break;
-        }
-        log.info("AI model set to: {}", modelType);
+    public String getModelName() {
+        return modelName;
+    }
+
+    /**
+     * @return a bot that asks this bot's local fallback directly, for turns its model can't play at all; this bot if it is local
+     */
+    public AiBot getFallbackBot() {
+        return fallbackBot;
     }
 
     @ToString
@@ -51,7 +97,41 @@ public class AiBot {
     }
 
     public BookingType askAiBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        return askAiBookingType(diceRolls, usedBookingTypes, null);
+    }
+
+    /**
+     * @param reasoning gets the model's reasoning while it is produced, if the model streams it; may be null
+     */
+    public BookingType askAiBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes, Consumer<String> reasoning) {
+        long start = System.nanoTime();
+        try {
+            return decideBookingType(diceRolls, usedBookingTypes, reasoning);
+        } finally {
+            if (metrics != null) {
+                metrics.recordDecision(AiDecisionMetrics.Phase.BOOK, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private BookingType decideBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes, Consumer<String> reasoning) {
         try {
+            if (localModel != null) {
+                BookingType bookingType = localModel.chooseBookingType(diceRolls, usedBookingTypes);
+                if (bookingType != null && !usedBookingTypes.contains(bookingType)) {
+                    return bookingType;
+                }
+                log.error("Local model returned no usable booking type for dice: {}", diceRolls);
+                return Arrays.stream(BookingType.values()).filter(bt -> !usedBookingTypes.contains(bt)).findFirst().orElseThrow();
+            }
+
+            if (decisionCache != null) {
+                BookingType cached = decisionCache.getBookingType(modelName, diceRolls, usedBookingTypes);
+                if (cached != null && !usedBookingTypes.contains(cached)) {
+                    return cached;
+                }
+            }
+
             List<String> availableTypeNames = Arrays.stream(BookingType.values())
                     .filter(bt -> !usedBookingTypes.contains(bt))
                     .map(BookingType::name)
@@ -69,25 +149,34 @@ public class AiBot {
                     diceRolls, String.join(", ", availableTypeNames));
 
 
-            String responseText = aiModel.askModel(systemPrompt, userPrompt, bt -> !usedBookingTypes.contains(bt));
+            String responseText = ask(systemPrompt, userPrompt, bt -> !usedBookingTypes.contains(bt), reasoning);
 
-            ObjectMapper mapper = new ObjectMapper();
             BookingSelection selection = null;
             if (responseText != null) {
                 try {
-                    selection = mapper.readValue(responseText, BookingSelection.class);
+                    selection = BOOKING_SELECTION_READER.readValue(responseText);
                 } catch (Exception e) {
                     log.error("Error parsing JSON response: {}", e.getMessage());
                     log.debug("Response text: {}", responseText);
                 }
             }
 
-            log.info("OpenAI structured booking type response: {}", selection);
+            log.debug("OpenAI structured booking type response: {}", selection);
 
             if (selection != null && selection.bookingType != null) {
                 try {
                     BookingType selectedType = BookingType.valueOf(selection.bookingType);
                     if (!usedBookingTypes.contains(selectedType)) {
+                        BookingType override = answerCheck != null ? answerCheck.override(diceRolls, usedBookingTypes, selectedType) : null;
+                        if (override != null) {
+                            selectedType = override;
+                            if (metrics != null) {
+                                metrics.recordOverride(AiDecisionMetrics.Phase.BOOK);
+                            }
+                        }
+                        if (decisionCache != null) {
+                            decisionCache.putBookingType(modelName, diceRolls, usedBookingTypes, selectedType);
+                        }
                         return selectedType;
                     }
                 } catch (IllegalArgumentException e) {
@@ -96,11 +185,25 @@ public class AiBot {
             }
 
             log.error("No booking type returned");
-            return Arrays.stream(BookingType.values()).filter(bt -> !usedBookingTypes.contains(bt)).findFirst().orElseThrow();
+            return fallbackBookingType(diceRolls, usedBookingTypes);
         } catch (Exception e) {
             log.error("Error calling OpenAI for booking type: {}", e.getMessage());
-            return Arrays.stream(BookingType.values()).filter(bt -> !usedBookingTypes.contains(bt)).findFirst().orElseThrow();
+            if (metrics != null) {
+                metrics.recordFailure(AiDecisionMetrics.Phase.BOOK);
+            }
+            return fallbackBookingType(diceRolls, usedBookingTypes);
+        }
+    }
+
+    private BookingType fallbackBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        if (metrics != null) {
+            metrics.recordFallback(AiDecisionMetrics.Phase.BOOK);
+        }
+        BookingType bookingType = fallback.chooseBookingType(diceRolls, usedBookingTypes);
+        if (bookingType != null && !usedBookingTypes.contains(bookingType)) {
+            return bookingType;
         }
+        return Arrays.stream(BookingType.values()).filter(bt -> !usedBookingTypes.contains(bt)).findFirst().orElseThrow();
     }
 
     @ToString
@@ -113,47 +216,136 @@ public class AiBot {
     }
 
     public int[] askAiWhichDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
-        try {
-            String availableTypes = Arrays.stream(BookingType.values())
-                    .filter(bt -> !usedBookingTypes.contains(bt))
-                    .map(BookingType::name)
-                    .collect(Collectors.joining(", "));
-
-            String systemPrompt = """
-                    You are an expert Yahtzee strategist. Analyze the dice and determine which dice to keep for optimal scoring.
-                    
-                    Never break the Yahtzee rules. Never invent new actions. Never use non existing options. Always follow the rules as strictly as 1000 peoples lives depend on it.
-                    Please respond with a JSON object in the following format:
-                    {"diceToKeep": [array of dice values], "reasoning": "string"}
-                    Where diceToKeep is an array of dice values to keep (empty array if none) and reasoning explains your choice.""";
+        return askAiWhichDiceToKeep(diceRolls, usedBookingTypes, round, null);
+    }
 
-            String userPrompt = String.format("You will be able to re-roll the dice %s. Your current dice: %s \nAvailable booking types: %s\nWhich dice should I keep and remember to list all dice to keep one by one? Do not list dice which are not in your current dice roll.",
-                    round == 1 ? "twice" : (round == 2 ? " once" : null), diceRolls, availableTypes);
+    /**
+     * @param reasoning gets the model's reasoning while it is produced, if the model streams it; may be null
+     */
+    public int[] askAiWhichDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round, Consumer<String> reasoning) {
+        long start = System.nanoTime();
+        try {
+            return decideDiceToKeep(diceRolls, usedBookingTypes, round, reasoning);
+        } finally {
+            if (metrics != null) {
+                metrics.recordDecision(AiDecisionMetrics.Phase.KEEP, System.nanoTime() - start);
+            }
+        }
+    }
 
-            String responseText = aiModel.askModel(systemPrompt, userPrompt, null);
+    private int[] decideDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round, Consumer<String> reasoning) {
+        try {
+            if (localModel != null) {
+                return localModel.chooseDiceToKeep(diceRolls, usedBookingTypes, round);
+            }
 
-            ObjectMapper mapper = new ObjectMapper();
-            DiceSelection selection = null;
-            if (responseText != null) {
-                try {
-                    selection = mapper.readValue(responseText, DiceSelection.class);
-                } catch (Exception e) {
-                    log.error("Error parsing JSON response: {}", e.getMessage());
-                    log.debug("Response text: {}", responseText);
+            if (decisionCache != null) {
+                int[] cached = decisionCache.getDiceToKeep(modelName, diceRolls, usedBookingTypes, round);
+                if (cached != null) {
+                    return cached;
                 }
             }
 
-            log.info("OpenAI structured dice response: {}", selection);
+            String responseText = ask(DICE_TO_KEEP_SYSTEM_PROMPT, diceToKeepUserPrompt(diceRolls, usedBookingTypes, round), null, reasoning);
 
-            if (selection != null && selection.diceToKeep != null) {
-                return filterByCount(diceRolls, selection.diceToKeep).stream().mapToInt(Integer::intValue).toArray();
+            List<Integer> diceToKeep = responseText != null ? acceptDiceToKeep(responseText, diceRolls, usedBookingTypes, round, metrics) : null;
+            if (diceToKeep != null) {
+                return diceToKeep.stream().mapToInt(Integer::intValue).toArray();
             }
 
             log.error("No dice positions to keep returned");
-            return new int[0];
+            return fallbackDiceToKeep(diceRolls, usedBookingTypes, round);
         } catch (Exception e) {
             log.error("Error calling OpenAI for dice to keep: {}", e.getMessage());
-            return new int[0];
+            if (metrics != null) {
+                metrics.recordFailure(AiDecisionMetrics.Phase.KEEP);
+            }
+            return fallbackDiceToKeep(diceRolls, usedBookingTypes, round);
+        }
+    }
+
+    /**
+     * Asks the model which dice to keep without waiting for the answer, so it is in the decision cache
+     * once the AI rolls these dice. None of the decision metrics are recorded for it.
+     *
+     * @return completes once the answer is cached, cancelling it cancels the model call
+     */
+    public CompletableFuture<Void> warmDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        if (localModel != null || decisionCache == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<String> answer = aiModel.askModelAsync(DICE_TO_KEEP_SYSTEM_PROMPT,
+                diceToKeepUserPrompt(diceRolls, usedBookingTypes, round), null);
+        CompletableFuture<Void> warmed = answer.thenAccept(responseText ->
+                acceptDiceToKeep(responseText, diceRolls, usedBookingTypes, round, null));
+        warmed.whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) {
+                answer.cancel(true);
+            }
+        });
+        return warmed;
+    }
+
+    private static String diceToKeepUserPrompt(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        String availableTypes = Arrays.stream(BookingType.values())
+                .filter(bt -> !usedBookingTypes.contains(bt))
+                .map(BookingType::name)
+                .collect(Collectors.joining(", "));
+
+        return String.format("You will be able to re-roll the dice %s. Your current dice: %s \nAvailable booking types: %s\nWhich dice should I keep and remember to list all dice to keep one by one? Do not list dice which are not in your current dice roll.",
+                round == 1 ? "twice" : (round == 2 ? " once" : null), diceRolls, availableTypes);
+    }
+
+    /**
+     * Parses the model's answer, checks it and puts it in the decision cache.
+     *
+     * @param metrics where to record an override, null to record none
+     * @return the dice to keep, null if the answer holds none
+     */
+    private List<Integer> acceptDiceToKeep(String responseText, List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round,
+                                           AiDecisionMetrics metrics) {
+        DiceSelection selection = null;
+        try {
+            selection = DICE_SELECTION_READER.readValue(responseText);
+        } catch (Exception e) {
+            log.error("Error parsing JSON response: {}", e.getMessage());
+            log.debug("Response text: {}", responseText);
+        }
+
+        log.debug("OpenAI structured dice response: {}", selection);
+
+        if (selection == null || selection.diceToKeep == null) {
+            return null;
+        }
+        List<Integer> diceToKeep = filterByCount(diceRolls, selection.diceToKeep);
+        int[] override = answerCheck != null ? answerCheck.override(diceRolls, usedBookingTypes, round, diceToKeep) : null;
+        if (override != null) {
+            diceToKeep = Arrays.stream(override).boxed().toList();
+            if (metrics != null) {
+                metrics.recordOverride(AiDecisionMetrics.Phase.KEEP);
+            }
+        }
+        if (decisionCache != null) {
+            decisionCache.putDiceToKeep(modelName, diceRolls, usedBookingTypes, round, diceToKeep);
+        }
+        return diceToKeep;
+    }
+
+    private int[] fallbackDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        if (metrics != null) {
+            metrics.recordFallback(AiDecisionMetrics.Phase.KEEP);
+        }
+        return fallback.chooseDiceToKeep(diceRolls, usedBookingTypes, round);
+    }
+
+    private String ask(String systemPrompt, String userPrompt, Function<Object, Boolean> verify, Consumer<String> reasoning) {
+        if (reasoning == null) {
+            return aiModel.askModel(systemPrompt, userPrompt, verify);
+        }
+        try {
+            return aiModel.askModelStreaming(systemPrompt, userPrompt, verify, reasoning).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
         }
     }
 
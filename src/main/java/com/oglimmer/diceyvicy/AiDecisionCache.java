@@ -0,0 +1,146 @@
+package com.oglimmer.diceyvicy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Remembers model decisions by canonical game situation: model, roll round, sorted dice
+ * multiset and used-booking-type mask. Rounds 1 and 2 hold which dice to keep, round 3 the
+ * booking type. Only answers the model actually gave are cached, never fallbacks.
+ * <p>
+ * Entries leave the cache by size and age. With a snapshot file configured the cache is
+ * written there on shutdown and read back on startup.
+ */
+@Slf4j
+@Component
+public class AiDecisionCache {
+
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+
+    private final AiDecisionCacheProperties properties;
+    private final Cache<Key, Integer> decisions;
+
+    record Key(String model, int round, int dice, int usedMask) {
+    }
+
+    public AiDecisionCache(AiDecisionCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, decisions, "aiDecisions");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * @return the dice values to keep, or null if the situation has not been decided yet
+     */
+    public int[] getDiceToKeep(String model, List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        Key key = key(model, round, diceRolls, usedBookingTypes);
+        Integer keep = key == null ? null : decisions.getIfPresent(key);
+        return keep == null ? null : DiceMultisets.values(keep).clone();
+    }
+
+    public void putDiceToKeep(String model, List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round, List<Integer> diceToKeep) {
+        Key key = key(model, round, diceRolls, usedBookingTypes);
+        int keep = DiceMultisets.indexOf(diceToKeep);
+        if (key != null && keep >= 0) {
+            decisions.put(key, keep);
+        }
+    }
+
+    /**
+     * @return the booking type, or null if the situation has not been decided yet
+     */
+    public BookingType getBookingType(String model, List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        Key key = key(model, 3, diceRolls, usedBookingTypes);
+        Integer bookingType = key == null ? null : decisions.getIfPresent(key);
+        return bookingType == null ? null : BOOKING_TYPES[bookingType];
+    }
+
+    public void putBookingType(String model, List<Integer> diceRolls, List<BookingType> usedBookingTypes, BookingType bookingType) {
+        Key key = key(model, 3, diceRolls, usedBookingTypes);
+        if (key != null) {
+            decisions.put(key, bookingType.ordinal());
+        }
+    }
+
+    private Key key(String model, int round, List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        if (!properties.isEnabled() || diceRolls == null || diceRolls.size() != 5) {
+            return null;
+        }
+        int dice = DiceMultisets.indexOf(diceRolls);
+        return dice < 0 ? null : new Key(model, round, dice, OptimalStrategyTable.usedMask(usedBookingTypes));
+    }
+
+    public long size() {
+        return decisions.estimatedSize();
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        Path file = snapshotFile();
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 5) {
+                    continue;
+                }
+                decisions.put(new Key(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3])),
+                        Integer.parseInt(fields[4]));
+                loaded++;
+            }
+            log.info("Loaded {} AI decisions from {}", loaded, file);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not load AI decision snapshot from {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void writeSnapshot() {
+        Path file = snapshotFile();
+        if (file == null) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (var entry : decisions.asMap().entrySet()) {
+                Key key = entry.getKey();
+                writer.write(key.model() + "\t" + key.round() + "\t" + key.dice() + "\t" + key.usedMask() + "\t" + entry.getValue());
+                writer.newLine();
+            }
+            log.info("Wrote {} AI decisions to {}", decisions.estimatedSize(), file);
+        } catch (IOException e) {
+            log.error("Could not write AI decision snapshot to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path snapshotFile() {
+        String file = properties.getSnapshotFile();
+        return properties.isEnabled() && file != null && !file.isBlank() ? Path.of(file) : null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-cache")
+public class AiDecisionCacheProperties {
+
+    private boolean enabled = true;
+
+    private long maxSize = 100_000;
+
+    /**
+     * How long a model answer is reused before the model is asked again.
+     */
+    private Duration ttl = Duration.ofDays(1);
+
+    /**
+     * File the cache is written to on shutdown and read from on startup; empty for no snapshot.
+     */
+    private String snapshotFile;
+}
@@ -0,0 +1,66 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decision latency, model failures, fallbacks and overridden answers of one {@link AiBot}, tagged with its model and
+ * the phase of the turn: {@code keep} (which dice to keep) or {@code book} (which type to book).
+ */
+public class AiDecisionMetrics {
+
+    public enum Phase {
+        KEEP, BOOK
+    }
+
+    private final Timer[] decisions = new Timer[Phase.values().length];
+    private final Counter[] failures = new Counter[Phase.values().length];
+    private final Counter[] fallbacks = new Counter[Phase.values().length];
+    private final Counter[] overrides = new Counter[Phase.values().length];
+
+    public AiDecisionMetrics(String modelName, MeterRegistry meterRegistry) {
+        for (Phase phase : Phase.values()) {
+            String tag = phase.name().toLowerCase();
+            decisions[phase.ordinal()] = Timer.builder("diceyvicy.ai.decision")
+                    .description("Time for the AI to decide, including cache lookups and fallbacks")
+                    .tag("model", modelName)
+                    .tag("phase", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            failures[phase.ordinal()] = Counter.builder("diceyvicy.ai.decision.failures")
+                    .description("Model calls that failed or timed out")
+                    .tag("model", modelName)
+                    .tag("phase", tag)
+                    .register(meterRegistry);
+            fallbacks[phase.ordinal()] = Counter.builder("diceyvicy.ai.decision.fallbacks")
+                    .description("Decisions made by the fallback because the model gave no usable answer")
+                    .tag("model", modelName)
+                    .tag("phase", tag)
+                    .register(meterRegistry);
+            overrides[phase.ordinal()] = Counter.builder("diceyvicy.ai.decision.overrides")
+                    .description("Model answers replaced because they were clearly worse than the expected value engine's")
+                    .tag("model", modelName)
+                    .tag("phase", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    public void recordDecision(Phase phase, long nanos) {
+        decisions[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailure(Phase phase) {
+        failures[phase.ordinal()].increment();
+    }
+
+    public void recordFallback(Phase phase) {
+        fallbacks[phase.ordinal()].increment();
+    }
+
+    public void recordOverride(Phase phase) {
+        overrides[phase.ordinal()].increment();
+    }
+}
@@ -1,15 +1,50 @@
 package com.oglimmer.diceyvicy;
 
 import com.openai.client.OpenAIClient;
+import com.openai.client.OpenAIClientAsync;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public interface AiModel {
 
-    OpenAIClient client = OpenAIOkHttpClient.builder()
-            .apiKey(System.getProperty("OPENAI_API_KEY", System.getenv("OPENAI_API_KEY")))
-            .build();
+    /**
+     * The OpenAI clients, created on first use so models that never call OpenAI don't need an API key.
+     */
+    final class OpenAi {
+        static final OpenAIClient client = OpenAIOkHttpClient.builder()
+                .apiKey(System.getProperty("OPENAI_API_KEY", System.getenv("OPENAI_API_KEY")))
+                .build();
+
+        static final OpenAIClientAsync asyncClient = client.async();
+
+        private OpenAi() {
+        }
+    }
 
     String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify);
+
+    /**
+     * Non-blocking variant of {@link #askModel}. Models backed by a remote API override this with
+     * the SDK's async client; the default answers on the calling thread.
+     */
+    default CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        try {
+            return CompletableFuture.completedFuture(askModel(systemPrompt, userPrompt, verify));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Variant of {@link #askModelAsync} that hands the model's reasoning to {@code reasoning} piece by
+     * piece while it is produced, on the thread that receives it. Models that stream override this; the
+     * default hands out no reasoning.
+     */
+    default CompletableFuture<String> askModelStreaming(String systemPrompt, String userPrompt, Function<Object, Boolean> verify,
+                                                        Consumer<String> reasoning) {
+        return askModelAsync(systemPrompt, userPrompt, verify);
+    }
 }
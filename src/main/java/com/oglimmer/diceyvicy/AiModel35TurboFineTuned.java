@@ -4,24 +4,38 @@ import com.oglimmer.kniffel.model.BookingType;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 @Slf4j
+@Component("35TurboFineTuned")
 public class AiModel35TurboFineTuned implements AiModel {
 
     @Override
     public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
-        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
+        return content(OpenAi.client.chat().completions().create(createParams(systemPrompt, userPrompt)), verify);
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        return OpenAi.asyncClient.chat().completions().create(createParams(systemPrompt, userPrompt))
+                .thenApply(chatCompletion -> content(chatCompletion, verify));
+    }
+
+    private ChatCompletionCreateParams createParams(String systemPrompt, String userPrompt) {
+        return ChatCompletionCreateParams.builder()
                 .model("ft:gpt-3.5-turbo-0125:personal::BuP2JgWv")
                 .addSystemMessage(systemPrompt)
                 .addUserMessage(userPrompt)
                 .maxCompletionTokens(200)
                 .temperature(0.1)
                 .build();
+    }
 
-        ChatCompletion chatCompletion = client.chat().completions().create(params);
+    private String content(ChatCompletion chatCompletion, Function<Object, Boolean> verify) {
         if (chatCompletion.choices().size() != 1) {
             log.error("Unexpected number of choices returned: {}", chatCompletion.choices().size());
             if (verify != null && Arrays.stream(BookingType.values()).anyMatch(verify::apply)) {
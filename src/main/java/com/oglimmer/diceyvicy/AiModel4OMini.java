@@ -1,25 +1,85 @@
 package com.oglimmer.diceyvicy;
 
+import com.openai.core.http.AsyncStreamResponse;
 import com.openai.models.Reasoning;
 import com.openai.models.ReasoningEffort;
+import com.openai.models.responses.Response;
 import com.openai.models.responses.ResponseCreateParams;
 import com.openai.models.responses.ResponseOutputText;
+import com.openai.models.responses.ResponseStreamEvent;
+import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
+@Component("4OMini")
 public class AiModel4OMini implements AiModel {
 
     public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
-        ResponseCreateParams createParams = ResponseCreateParams.builder()
+        return outputText(OpenAi.client.responses().create(createParams(systemPrompt, userPrompt, false)));
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        return OpenAi.asyncClient.responses().create(createParams(systemPrompt, userPrompt, false)).thenApply(this::outputText);
+    }
+
+    /**
+     * Streams the summary of the model's reasoning and completes as soon as the JSON object of the
+     * answer is closed; the rest of the stream is not waited for.
+     */
+    @Override
+    public CompletableFuture<String> askModelStreaming(String systemPrompt, String userPrompt, Function<Object, Boolean> verify,
+                                                       Consumer<String> reasoning) {
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        JsonObjectScanner scanner = new JsonObjectScanner();
+        AsyncStreamResponse<ResponseStreamEvent> stream = OpenAi.asyncClient.responses()
+                .createStreaming(createParams(systemPrompt, userPrompt, true));
+        stream.subscribe(new AsyncStreamResponse.Handler<>() {
+            @Override
+            public void onNext(ResponseStreamEvent event) {
+                if (answer.isDone()) {
+                    return;
+                }
+                event.reasoningSummaryTextDelta().ifPresent(delta -> reasoning.accept(delta.delta()));
+                event.outputTextDelta().ifPresent(delta -> {
+                    String json = scanner.append(delta.delta());
+                    if (json != null) {
+                        answer.complete(json);
+                    }
+                });
+                event.failed().ifPresent(failed -> answer.completeExceptionally(
+                        new IllegalStateException("o4-mini response failed: " + failed.response().error().map(Object::toString).orElse("no error given"))));
+            }
+
+            @Override
+            public void onComplete(Optional<Throwable> error) {
+                error.ifPresentOrElse(answer::completeExceptionally, () -> answer.complete(scanner.unclosed()));
+            }
+        });
+        // also stops the stream when the caller gives up on the answer
+        answer.whenComplete((json, error) -> stream.close());
+        return answer;
+    }
+
+    private ResponseCreateParams createParams(String systemPrompt, String userPrompt, boolean summarizeReasoning) {
+        Reasoning.Builder reasoning = Reasoning.builder().effort(ReasoningEffort.MEDIUM);
+        if (summarizeReasoning) {
+            reasoning.summary(Reasoning.Summary.AUTO);
+        }
+        return ResponseCreateParams.builder()
                 .model("o4-mini")
                 .input(ResponseCreateParams.Input.ofText(systemPrompt + "\n" + userPrompt))
-                .reasoning(Reasoning.builder().effort(ReasoningEffort.MEDIUM).build())
+                .reasoning(reasoning.build())
                 .build();
+    }
 
-
-        return client.responses().create(createParams).output().stream()
+    private String outputText(Response response) {
+        return response.output().stream()
                 .flatMap(item -> item.message().stream())
                 .flatMap(message -> message.content().stream())
                 .flatMap(content -> content.outputText().stream())
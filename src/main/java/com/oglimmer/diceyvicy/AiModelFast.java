@@ -0,0 +1,33 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The cheap difficulty: plays the best expected value of the current turn, see {@link ExpectedValueEngine}.
+ */
+@Component("Fast")
+public class AiModelFast implements LocalAiModel {
+
+    private final ExpectedValueEngine engine;
+
+    public AiModelFast() {
+        this(ExpectedValueEngine.shared());
+    }
+
+    public AiModelFast(ExpectedValueEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public int[] chooseDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        return engine.diceToKeep(diceRolls, OptimalStrategyTable.usedMask(usedBookingTypes), round);
+    }
+
+    @Override
+    public BookingType chooseBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        return engine.bookingType(diceRolls, OptimalStrategyTable.usedMask(usedBookingTypes));
+    }
+}
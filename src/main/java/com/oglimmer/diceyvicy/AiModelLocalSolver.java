@@ -0,0 +1,32 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@Component("LocalSolver")
+public class AiModelLocalSolver implements LocalAiModel {
+
+    // resolved on first use, the shared table is built in the background at startup
+    private final Supplier<OptimalStrategyTable> table;
+
+    public AiModelLocalSolver() {
+        this.table = OptimalStrategyTable::shared;
+    }
+
+    public AiModelLocalSolver(OptimalStrategyTable table) {
+        this.table = () -> table;
+    }
+
+    @Override
+    public int[] chooseDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+        return table.get().diceToKeep(diceRolls, OptimalStrategyTable.usedMask(usedBookingTypes), round);
+    }
+
+    @Override
+    public BookingType chooseBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+        return table.get().bookingType(diceRolls, OptimalStrategyTable.usedMask(usedBookingTypes));
+    }
+}
@@ -0,0 +1,64 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-model")
+public class AiModelProperties {
+
+    /**
+     * Deadline for one model answer, hedged request included.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * Send a second, identical request when the first is slower than the hedge percentile.
+     */
+    private boolean hedgeEnabled = false;
+
+    /**
+     * Latency percentile of recent calls after which the hedged request is sent.
+     */
+    private double hedgePercentile = 0.95;
+
+    /**
+     * Calls a model must have answered before hedging starts.
+     */
+    private int hedgeMinSamples = 20;
+
+    /**
+     * Consecutive failures (errors or timeouts) that open the circuit breaker.
+     */
+    private int failureThreshold = 5;
+
+    /**
+     * How long an open circuit breaker answers with the local fallback before trying the model again.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Stream the model's reasoning to the player while the AI decides, for models that can. Decisions that are
+     * batched are not streamed.
+     */
+    private boolean streamReasoning = false;
+
+    /**
+     * Check the answers of remote models against the expected value engine and override the clearly bad ones.
+     */
+    private boolean checkAnswers = true;
+
+    /**
+     * Points against par a booking may lose to the engine's best booking before it is overridden.
+     */
+    private double maxBookingLoss = 10;
+
+    /**
+     * Expected points a keep may lose to the engine's best keep before it is overridden.
+     */
+    private double maxKeepLoss = 5;
+}
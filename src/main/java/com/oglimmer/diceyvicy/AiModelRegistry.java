@@ -0,0 +1,78 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One shared {@link AiBot} per {@link AiModel} and {@link LocalAiModel} bean, keyed by the bean name
+ * the client sends as {@code aiModel}. A new model only needs to be a {@code @Component} with its model name.
+ */
+@Slf4j
+@Component
+public class AiModelRegistry {
+
+    static final String DEFAULT_MODEL = "4OMini";
+
+    private final Map<String, AiBot> bots;
+
+    public AiModelRegistry(Map<String, AiModel> models, Map<String, LocalAiModel> localModels, AiDecisionCache decisionCache,
+                           AiModelProperties properties, AiBatchProperties batchProperties, AiReplayProperties replayProperties,
+                           MeterRegistry meterRegistry) {
+        // a remote model that fails or times out is answered for by the local solver, or by the expected value engine
+        LocalAiModel fallback = localModels.get("LocalSolver");
+        AiAnswerCheck answerCheck = properties.isCheckAnswers() ? new AiAnswerCheck(ExpectedValueEngine.shared(), properties) : null;
+
+        Map<String, AiBot> bots = new HashMap<>();
+        // local models answer instantly, caching and deadlines only pay off for remote ones
+        localModels.forEach((modelName, model) -> bots.put(modelName, AiBot.builder()
+                .localModel(model)
+                .modelName(modelName)
+                .metrics(new AiDecisionMetrics(modelName, meterRegistry))
+                .build()));
+        models.forEach((modelName, model) -> bots.put(modelName, AiBot.builder()
+                .aiModel(remote(model, modelName, properties, batchProperties, replayProperties, meterRegistry))
+                .modelName(modelName)
+                .decisionCache(decisionCache)
+                .fallback(fallback)
+                .metrics(new AiDecisionMetrics(modelName, meterRegistry))
+                .answerCheck(answerCheck)
+                .build()));
+        this.bots = Map.copyOf(bots);
+        log.info("Registered AI models: {}", bots.keySet());
+    }
+
+    /**
+     * Batching sits below the deadline and the circuit breaker, so the time a decision waits for its batch counts against its deadline.
+     * Recording sits above batching, so the corpus gets the prompts of single decisions.
+     */
+    private static AiModel remote(AiModel model, String modelName, AiModelProperties properties, AiBatchProperties batchProperties,
+                                  AiReplayProperties replayProperties, MeterRegistry meterRegistry) {
+        AiModel batched = batchProperties.isEnabled() && batchProperties.getModels().contains(modelName)
+                ? new BatchingAiModel(model, modelName, batchProperties, meterRegistry)
+                : model;
+        AiModel recorded = replayProperties.getRecordTo() != null && !replayProperties.getRecordTo().isBlank()
+                && !(model instanceof AiModelReplay)
+                ? new RecordingAiModel(batched, Path.of(replayProperties.getRecordTo()))
+                : batched;
+        return new ResilientAiModel(recorded, modelName, properties, meterRegistry);
+    }
+
+    public AiBot getBot(String modelName) {
+        AiBot bot = modelName == null ? null : bots.get(modelName);
+        if (bot == null) {
+            log.warn("Unknown AI model type: {}, using default {}", modelName, DEFAULT_MODEL);
+            return bots.get(DEFAULT_MODEL);
+        }
+        return bot;
+    }
+
+    public Set<String> getModelNames() {
+        return bots.keySet();
+    }
+}
@@ -0,0 +1,180 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oglimmer.kniffel.model.BookingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers like a remote model without one, for testing and benchmarking offline. Answers come
+ * from a corpus of recorded conversations (see {@link RecordingAiModel}); a situation that was
+ * never recorded is answered by the {@link ExpectedValueEngine}. Every answer is delayed by a
+ * time drawn from the configured latency profile, which also spikes, hangs and fails a share of
+ * the requests, so upstream slowness can be reproduced. Nothing blocks while an answer is delayed.
+ */
+@Slf4j
+@Component("Replay")
+@ConditionalOnProperty(name = "diceyvicy.ai-replay.enabled", havingValue = "true")
+public class AiModelReplay implements AiModel {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern BOOKING_DICE = Pattern.compile("Dice rolls: \\[([\\d, ]*)]");
+    private static final Pattern KEEP_DICE = Pattern.compile("Your current dice: \\[([\\d, ]*)]");
+    private static final Pattern AVAILABLE = Pattern.compile("Available booking types: ([A-Z_, ]*)");
+
+    private record Prompt(String system, String user) {
+    }
+
+    private final AiReplayProperties.Latency latency;
+    private final ExpectedValueEngine engine;
+    private final Map<Prompt, List<String>> recorded;
+
+    @Autowired
+    public AiModelReplay(AiReplayProperties properties) {
+        this(properties, ExpectedValueEngine.shared());
+    }
+
+    AiModelReplay(AiReplayProperties properties, ExpectedValueEngine engine) {
+        this.latency = properties.getLatency();
+        this.engine = engine;
+        this.recorded = properties.getCorpus() == null || properties.getCorpus().isBlank()
+                ? Map.of()
+                : load(Path.of(properties.getCorpus()));
+    }
+
+    /**
+     * Reads the conversations of the corpus whose answer is a JSON object; others, like the
+     * question-and-answer part of the fine-tuning data, can't be the answer to a move.
+     */
+    private static Map<Prompt, List<String>> load(Path corpus) {
+        Map<Prompt, List<String>> recorded = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(corpus)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String system = "";
+                String user = null;
+                String answer = null;
+                for (JsonNode message : MAPPER.readTree(line).path("messages")) {
+                    String content = message.path("content").asText();
+                    switch (message.path("role").asText()) {
+                        case "system" -> system = content;
+                        case "user" -> user = content;
+                        case "assistant" -> answer = content;
+                        default -> {
+                        }
+                    }
+                }
+                if (user != null && answer != null && answer.trim().startsWith("{")) {
+                    recorded.computeIfAbsent(new Prompt(system, user), prompt -> new ArrayList<>(1)).add(answer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the replay corpus " + corpus, e);
+        }
+        log.info("Loaded {} recorded situations for replay from {}", recorded.size(), corpus);
+        return recorded;
+    }
+
+    @Override
+    public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        try {
+            return askModelAsync(systemPrompt, userPrompt, verify).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double outcome = random.nextDouble();
+        if (outcome < latency.getTimeoutRate()) {
+            return failAfter(latency.getTimeout().toNanos(), new TimeoutException("Replayed upstream timeout"));
+        }
+        long delay = answerTime(random);
+        if (outcome < latency.getTimeoutRate() + latency.getErrorRate()) {
+            return failAfter(delay, new IllegalStateException("Replayed upstream error"));
+        }
+        return CompletableFuture.supplyAsync(() -> answer(systemPrompt, userPrompt),
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    private long answerTime(ThreadLocalRandom random) {
+        long time = (long) (latency.getMedian().toNanos() * Math.exp(latency.getSigma() * random.nextGaussian()));
+        return random.nextDouble() < latency.getSpikeRate() ? time + latency.getSpike().toNanos() : time;
+    }
+
+    private static CompletableFuture<String> failAfter(long nanos, Exception error) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS).execute(() -> result.completeExceptionally(error));
+        return result;
+    }
+
+    String answer(String systemPrompt, String userPrompt) {
+        List<String> answers = recorded.get(new Prompt(systemPrompt, userPrompt));
+        if (answers != null) {
+            return answers.get(ThreadLocalRandom.current().nextInt(answers.size()));
+        }
+        return synthesize(userPrompt);
+    }
+
+    /**
+     * Reads the situation from the prompt {@link AiBot} wrote and answers with the engine's move.
+     */
+    private String synthesize(String userPrompt) {
+        Matcher available = AVAILABLE.matcher(userPrompt);
+        if (!available.find()) {
+            return null;
+        }
+        List<BookingType> used = new ArrayList<>(Arrays.asList(BookingType.values()));
+        for (String name : available.group(1).split(",")) {
+            if (!name.isBlank()) {
+                used.remove(BookingType.valueOf(name.trim()));
+            }
+        }
+        int usedMask = OptimalStrategyTable.usedMask(used);
+
+        Matcher booking = BOOKING_DICE.matcher(userPrompt);
+        if (booking.find()) {
+            BookingType bookingType = engine.bookingType(dice(booking.group(1)), usedMask);
+            return bookingType == null ? null
+                    : "{\"bookingType\": \"" + bookingType.name() + "\", \"reasoning\": \"replayed\"}";
+        }
+        Matcher keep = KEEP_DICE.matcher(userPrompt);
+        if (keep.find()) {
+            int round = userPrompt.contains("re-roll the dice twice") ? 1 : 2;
+            int[] diceToKeep = engine.diceToKeep(dice(keep.group(1)), usedMask, round);
+            return "{\"diceToKeep\": " + Arrays.toString(diceToKeep) + ", \"reasoning\": \"replayed\"}";
+        }
+        return null;
+    }
+
+    private static List<Integer> dice(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(value -> !value.isEmpty()).map(Integer::valueOf).toList();
+    }
+}
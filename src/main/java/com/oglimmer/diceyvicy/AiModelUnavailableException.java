@@ -0,0 +1,11 @@
+package com.oglimmer.diceyvicy;
+
+/**
+ * A model call was not made, because the model's circuit breaker is open.
+ */
+public class AiModelUnavailableException extends RuntimeException {
+
+    public AiModelUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,65 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-replay")
+public class AiReplayProperties {
+
+    /**
+     * Register the {@code Replay} model, which answers from a local corpus with simulated upstream latency.
+     */
+    private boolean enabled = false;
+
+    /**
+     * JSONL file of recorded answers in the chat fine-tuning format; situations not in it are answered by the
+     * expected value engine.
+     */
+    private String corpus;
+
+    /**
+     * JSONL file the answers of the remote models are appended to, in the format of {@link #corpus}.
+     */
+    private String recordTo;
+
+    private Latency latency = new Latency();
+
+    @Getter
+    @Setter
+    public static class Latency {
+
+        /**
+         * Median time of an answer; answer times are log-normal around it.
+         */
+        private Duration median = Duration.ofMillis(800);
+
+        /**
+         * Spread of the log-normal answer time; 0 answers every request after the median.
+         */
+        private double sigma = 0.4;
+
+        /**
+         * Share of answers delayed by an additional spike.
+         */
+        private double spikeRate = 0.01;
+
+        private Duration spike = Duration.ofSeconds(5);
+
+        /**
+         * Share of requests that hang until the upstream gives up.
+         */
+        private double timeoutRate = 0.001;
+
+        private Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * Share of requests that fail after the usual answer time.
+         */
+        private double errorRate = 0.002;
+    }
+}
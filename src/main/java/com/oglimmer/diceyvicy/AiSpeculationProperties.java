@@ -0,0 +1,35 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-speculation")
+public class AiSpeculationProperties {
+
+    /**
+     * Ask the model about the AI's likely first rolls while the player is still thinking.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Most likely first rolls warmed per player turn. Every warmed roll is one model call.
+     */
+    private int maxRolls = 6;
+
+    /**
+     * A roll is only warmed if its probability times the model's mean latency reaches this. The
+     * likeliest rolls come up in 1.5% of turns, so with the default a model needs a mean latency
+     * of about 6.5s before it is worth a paid call. Nothing is warmed before the model answered once.
+     */
+    private Duration minExpectedSaving = Duration.ofMillis(100);
+
+    /**
+     * Speculative model calls in flight across all games; more are skipped, not queued.
+     */
+    private int maxConcurrent = 32;
+}
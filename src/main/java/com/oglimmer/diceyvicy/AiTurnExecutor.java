@@ -0,0 +1,114 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Runs AI turns away from the STOMP inbound channel. Each step runs on a virtual thread of its own;
+ * a semaphore bounds them to {@link AiTurnProperties#getMaxConcurrent()} and a step finding no permit
+ * is rejected. The pause between two steps is a scheduled task instead of a sleeping thread.
+ */
+@Component
+public class AiTurnExecutor {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final ScheduledExecutorService scheduler;
+    private final AiTurnProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> turnTimers = new ConcurrentHashMap<>();
+    private final Counter rejectedCounter;
+
+    public AiTurnExecutor(AiTurnProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-turn-", 0).factory());
+        this.permits = new Semaphore(properties.getMaxConcurrent());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("ai-turn-scheduler").daemon().factory());
+
+        this.rejectedCounter = Counter.builder("diceyvicy.ai.turn.rejected")
+                .description("AI turn steps rejected because all slots were taken")
+                .register(meterRegistry);
+        Gauge.builder("diceyvicy.ai.turn.active", permits, p -> properties.getMaxConcurrent() - p.availablePermits())
+                .description("AI turn steps currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * With the CALLER_RUNS policy a rejected step runs on the calling thread.
+     *
+     * @throws RejectedExecutionException if all slots are taken and the rejection policy is ABORT
+     */
+    public void execute(Runnable step) {
+        try {
+            submit(step);
+        } catch (RejectedExecutionException e) {
+            if (properties.getRejectionPolicy() != AiTurnProperties.RejectionPolicy.CALLER_RUNS || executor.isShutdown()) {
+                throw e;
+            }
+            step.run();
+        }
+    }
+
+    /**
+     * Runs the step after the configured step delay; {@code onRejected} runs instead if the step is rejected
+     * then. Whatever the rejection policy, a step is never run on the scheduler thread.
+     */
+    public void executeDelayed(Runnable step, Runnable onRejected) {
+        try {
+            scheduler.schedule(() -> {
+                try {
+                    submit(step);
+                } catch (RejectedExecutionException e) {
+                    onRejected.run();
+                }
+            }, properties.getStepDelay().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            onRejected.run();
+        }
+    }
+
+    private void submit(Runnable step) {
+        if (!permits.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("All " + properties.getMaxConcurrent() + " AI turn slots are taken");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    step.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void recordTurn(String model, long milliseconds) {
+        turnTimers.computeIfAbsent(model == null ? "unknown" : model, tag -> Timer.builder("diceyvicy.ai.turn")
+                        .description("Wall time of a complete AI turn, including the delays between steps")
+                        .tag("model", tag)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(milliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+}
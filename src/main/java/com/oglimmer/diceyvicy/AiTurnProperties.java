@@ -0,0 +1,39 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.ai-turn")
+public class AiTurnProperties {
+
+    /**
+     * Number of AI turn steps that may run at the same time, each on its own virtual thread. A step
+     * over it is not queued, the rejection policy applies.
+     */
+    private int maxConcurrent = 64;
+
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+    /**
+     * Pause between two AI rerolls, so the player can follow what the AI does.
+     */
+    private Duration stepDelay = Duration.ofMillis(500);
+
+    public enum RejectionPolicy {
+        /**
+         * Drop the step, the game then finishes the AI's turn with the local fallback model.
+         */
+        ABORT,
+        /**
+         * Run the first step of a turn on the submitting game's mailbox thread, which slows down that
+         * game instead of playing the turn with the fallback. Delayed steps are never run on the caller,
+         * that would be the scheduler thread all games share; they are dropped as with ABORT.
+         */
+        CALLER_RUNS
+    }
+}
@@ -0,0 +1,226 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the decisions that games ask a remote {@link AiModel} for within a short window and
+ * sends them as one multi-item prompt, so a request against the model's rate limit decides many
+ * games at once. Decisions are batched by system prompt (keeping dice or booking); the model is
+ * asked to answer with a JSON array of one answer per situation, which is split back to the
+ * waiting decisions.
+ * <p>
+ * A batch of one is sent as a plain request. When the answer is not an array of the right size,
+ * the decisions of the batch are asked for one by one. A decision's {@code verify} is run on its
+ * part of the answer (the booking type it names); a decision whose part fails is asked for alone.
+ */
+@Slf4j
+public class BatchingAiModel implements AiModel {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader BOOKING_SELECTION_READER = MAPPER.readerFor(AiBot.BookingSelection.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final AiModel delegate;
+    private final AiBatchProperties properties;
+    private final DistributionSummary batchSize;
+    private final Counter unbatched;
+    private final Counter unverified;
+
+    // guarded by this
+    private final Map<String, List<Decision>> pending = new HashMap<>();
+
+    private record Decision(String userPrompt, Function<Object, Boolean> verify, CompletableFuture<String> answer) {
+    }
+
+    public BatchingAiModel(AiModel delegate, String modelName, AiBatchProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.batchSize = DistributionSummary.builder("diceyvicy.ai.batch.size")
+                .description("Decisions sent to the model in one request")
+                .tag("model", modelName)
+                .register(meterRegistry);
+        this.unbatched = Counter.builder("diceyvicy.ai.batch.unbatched")
+                .description("Batches whose answer could not be split and were asked for one by one")
+                .tag("model", modelName)
+                .register(meterRegistry);
+        this.unverified = Counter.builder("diceyvicy.ai.batch.unverified")
+                .description("Decisions whose part of a batch answer failed their check and were asked for alone")
+                .tag("model", modelName)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        try {
+            return askModelAsync(systemPrompt, userPrompt, verify).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        Decision decision = new Decision(userPrompt, verify, new CompletableFuture<>());
+        List<Decision> full = null;
+        synchronized (this) {
+            List<Decision> batch = pending.get(systemPrompt);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                pending.put(systemPrompt, batch);
+                List<Decision> scheduled = batch;
+                CompletableFuture.delayedExecutor(properties.getWindow().toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> windowEnded(systemPrompt, scheduled));
+            }
+            batch.add(decision);
+            if (batch.size() >= properties.getMaxSize()) {
+                pending.remove(systemPrompt);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(systemPrompt, full);
+        }
+        return decision.answer();
+    }
+
+    private void windowEnded(String systemPrompt, List<Decision> batch) {
+        synchronized (this) {
+            // a batch that filled up was sent already
+            if (pending.get(systemPrompt) != batch) {
+                return;
+            }
+            pending.remove(systemPrompt);
+        }
+        send(systemPrompt, batch);
+    }
+
+    private void send(String systemPrompt, List<Decision> batch) {
+        // decisions that timed out or were won by a hedged request meanwhile are not asked for
+        List<Decision> decisions = batch.stream().filter(decision -> !decision.answer().isDone()).toList();
+        if (decisions.isEmpty()) {
+            return;
+        }
+        batchSize.record(decisions.size());
+        if (decisions.size() == 1) {
+            sendAlone(systemPrompt, decisions.get(0));
+            return;
+        }
+        ask(batchSystemPrompt(systemPrompt, decisions.size()), batchUserPrompt(decisions), null).whenComplete((answer, error) -> {
+            if (error != null) {
+                decisions.forEach(decision -> decision.answer().completeExceptionally(error));
+                return;
+            }
+            List<String> answers = split(answer, decisions.size());
+            if (answers == null) {
+                log.warn("Batch answer for {} decisions could not be split, asking one by one", decisions.size());
+                unbatched.increment();
+                decisions.forEach(decision -> sendAlone(systemPrompt, decision));
+                return;
+            }
+            for (int i = 0; i < decisions.size(); i++) {
+                Decision decision = decisions.get(i);
+                if (verified(decision, answers.get(i))) {
+                    decision.answer().complete(answers.get(i));
+                } else {
+                    unverified.increment();
+                    sendAlone(systemPrompt, decision);
+                }
+            }
+        });
+    }
+
+    private void sendAlone(String systemPrompt, Decision decision) {
+        ask(systemPrompt, decision.userPrompt(), decision.verify()).whenComplete((answer, error) -> {
+            if (error == null) {
+                decision.answer().complete(answer);
+            } else {
+                decision.answer().completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * @return whether the answer passes the decision's check, which is given the booking type the answer names
+     */
+    private static boolean verified(Decision decision, String answer) {
+        if (decision.verify() == null) {
+            return true;
+        }
+        try {
+            AiBot.BookingSelection selection = BOOKING_SELECTION_READER.readValue(answer);
+            return selection.bookingType != null && Boolean.TRUE.equals(decision.verify().apply(BookingType.valueOf(selection.bookingType)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private CompletableFuture<String> ask(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        try {
+            return delegate.askModelAsync(systemPrompt, userPrompt, verify);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    static String batchSystemPrompt(String systemPrompt, int count) {
+        return systemPrompt + "\n\nYou are given " + count + " numbered situations from different games. "
+                + "Decide each one on its own and respond with a JSON array of " + count
+                + " answers, each in the format above, in the order of the situations, and nothing else.";
+    }
+
+    private static String batchUserPrompt(List<Decision> decisions) {
+        StringBuilder prompt = new StringBuilder();
+        for (int i = 0; i < decisions.size(); i++) {
+            if (i > 0) {
+                prompt.append("\n\n");
+            }
+            prompt.append("Situation ").append(i + 1).append(":\n").append(decisions.get(i).userPrompt());
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * @return the JSON text of each answer in the array, or null if the answer is no array of {@code count} answers
+     */
+    static List<String> split(String answer, int count) {
+        if (answer == null) {
+            return null;
+        }
+        int start = answer.indexOf('[');
+        int end = answer.lastIndexOf(']');
+        if (start < 0 || end < start) {
+            return null;
+        }
+        try {
+            JsonNode array = MAPPER.readTree(answer.substring(start, end + 1));
+            if (!array.isArray() || array.size() != count) {
+                return null;
+            }
+            List<String> answers = new ArrayList<>(count);
+            for (JsonNode element : array) {
+                answers.add(element.toString());
+            }
+            return answers;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
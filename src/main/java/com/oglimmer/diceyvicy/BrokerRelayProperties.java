@@ -0,0 +1,40 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.broker-relay")
+public class BrokerRelayProperties {
+
+    /**
+     * Relay game topics through an external STOMP broker (e.g. ActiveMQ or RabbitMQ) instead of the
+     * in-process simple broker, so a client gets the broadcasts of every replica.
+     */
+    private boolean enabled = false;
+
+    private String host = "localhost";
+
+    private int port = 61613;
+
+    /**
+     * Credentials of the client connections the relay opens for the WebSocket sessions.
+     */
+    private String login = "guest";
+
+    private String passcode = "guest";
+
+    /**
+     * Credentials of the one shared connection the replica publishes through.
+     */
+    private String systemLogin = "guest";
+
+    private String systemPasscode = "guest";
+
+    /**
+     * Virtual host sent in the STOMP CONNECT frames; none if empty.
+     */
+    private String virtualHost;
+}
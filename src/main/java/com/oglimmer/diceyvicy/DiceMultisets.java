@@ -0,0 +1,199 @@
+package com.oglimmer.diceyvicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Enumerates every multiset of 0..5 dice (462 in total, 252 of them full rolls) and the
+ * relations the strategy computations need between them: adding a die, the distinct
+ * sub-multisets a roll can keep, and the probability of rolling a full multiset.
+ * <p>
+ * Multisets are addressed by index; indices are ordered by dice count, so walking them
+ * backwards visits larger keeps before smaller ones.
+ */
+public final class DiceMultisets {
+
+    public static final int COUNT = 462;
+    public static final int ROLL_COUNT = 252;
+
+    private static final int[] SIZE = new int[COUNT];
+    private static final int[][] COUNTS = new int[COUNT][];
+    private static final int[][] VALUES = new int[COUNT][];
+    private static final int[] INDEX_BY_KEY = new int[46656];
+    private static final int[][] WITH_FACE = new int[COUNT][7];
+    private static final int[] ROLLS = new int[ROLL_COUNT];
+    private static final int[] ROLL_ORDINAL = new int[COUNT];
+    private static final int[][] SUBSETS = new int[ROLL_COUNT][];
+    private static final double[] ROLL_PROBABILITY = new double[ROLL_COUNT];
+
+    static {
+        Arrays.fill(INDEX_BY_KEY, -1);
+        Arrays.fill(ROLL_ORDINAL, -1);
+
+        int index = 0;
+        for (int size = 0; size <= 5; size++) {
+            index = enumerate(new int[7], 1, size, size, index);
+        }
+
+        int rollOrdinal = 0;
+        for (int i = 0; i < COUNT; i++) {
+            for (int face = 1; face <= 6; face++) {
+                if (SIZE[i] == 5) {
+                    WITH_FACE[i][face] = -1;
+                } else {
+                    int[] counts = COUNTS[i].clone();
+                    counts[face]++;
+                    WITH_FACE[i][face] = INDEX_BY_KEY[key(counts)];
+                }
+            }
+            if (SIZE[i] == 5) {
+                ROLLS[rollOrdinal] = i;
+                ROLL_ORDINAL[i] = rollOrdinal;
+                SUBSETS[rollOrdinal] = subsetsOf(COUNTS[i]);
+                ROLL_PROBABILITY[rollOrdinal] = probability(COUNTS[i]);
+                rollOrdinal++;
+            }
+        }
+    }
+
+    private DiceMultisets() {
+    }
+
+    private static int enumerate(int[] counts, int face, int remaining, int size, int index) {
+        if (face == 6) {
+            counts[6] = remaining;
+            SIZE[index] = size;
+            COUNTS[index] = counts.clone();
+            VALUES[index] = valuesOf(counts);
+            INDEX_BY_KEY[key(counts)] = index;
+            counts[6] = 0;
+            return index + 1;
+        }
+        for (int n = remaining; n >= 0; n--) {
+            counts[face] = n;
+            index = enumerate(counts, face + 1, remaining - n, size, index);
+        }
+        counts[face] = 0;
+        return index;
+    }
+
+    private static int[] subsetsOf(int[] counts) {
+        List<Integer> subsets = new ArrayList<>();
+        int[] sub = new int[7];
+        collectSubsets(counts, sub, 1, subsets);
+        return subsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void collectSubsets(int[] counts, int[] sub, int face, List<Integer> out) {
+        if (face > 6) {
+            out.add(INDEX_BY_KEY[key(sub)]);
+            return;
+        }
+        for (int n = counts[face]; n >= 0; n--) {
+            sub[face] = n;
+            collectSubsets(counts, sub, face + 1, out);
+        }
+        sub[face] = 0;
+    }
+
+    private static double probability(int[] counts) {
+        // multinomial: 5! / (c1! ... c6!) / 6^5
+        int permutations = 120;
+        for (int face = 1; face <= 6; face++) {
+            permutations /= factorial(counts[face]);
+        }
+        return permutations / 7776.0;
+    }
+
+    private static int factorial(int n) {
+        int result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    private static int[] valuesOf(int[] counts) {
+        int[] values = new int[Arrays.stream(counts).sum()];
+        int pos = 0;
+        for (int face = 1; face <= 6; face++) {
+            for (int n = 0; n < counts[face]; n++) {
+                values[pos++] = face;
+            }
+        }
+        return values;
+    }
+
+    private static int key(int[] counts) {
+        int key = 0;
+        for (int face = 6; face >= 1; face--) {
+            key = key * 6 + counts[face];
+        }
+        return key;
+    }
+
+    /**
+     * @return the multiset index of the given dice values, or -1 if a value is not a die face or there are more than 5
+     */
+    public static int indexOf(List<Integer> dice) {
+        if (dice.size() > 5) {
+            return -1;
+        }
+        int[] counts = new int[7];
+        for (Integer value : dice) {
+            if (value == null || value < 1 || value > 6) {
+                return -1;
+            }
+            counts[value]++;
+        }
+        return INDEX_BY_KEY[key(counts)];
+    }
+
+    public static int size(int index) {
+        return SIZE[index];
+    }
+
+    /**
+     * @return face counts indexed 1..6; callers must not modify the array
+     */
+    public static int[] counts(int index) {
+        return COUNTS[index];
+    }
+
+    /**
+     * @return the dice values in ascending order; callers must not modify the array
+     */
+    public static int[] values(int index) {
+        return VALUES[index];
+    }
+
+    /**
+     * @return the index of the multiset with one more die of the given face, or -1 for a full roll
+     */
+    public static int withFace(int index, int face) {
+        return WITH_FACE[index][face];
+    }
+
+    public static int roll(int rollOrdinal) {
+        return ROLLS[rollOrdinal];
+    }
+
+    /**
+     * @return the position 0..251 of a full roll among all rolls, or -1 if the multiset has fewer than 5 dice
+     */
+    public static int rollOrdinal(int index) {
+        return ROLL_ORDINAL[index];
+    }
+
+    /**
+     * @return the distinct multisets (by index) that can be kept from the roll, starting with the whole roll
+     */
+    public static int[] subsets(int rollOrdinal) {
+        return SUBSETS[rollOrdinal];
+    }
+
+    public static double rollProbability(int rollOrdinal) {
+        return ROLL_PROBABILITY[rollOrdinal];
+    }
+}
@@ -0,0 +1,59 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+
+/**
+ * Scores a dice multiset for a booking type. Works on face counts (index 1..6) so the
+ * solver tables can score all 252 rolls without building {@code List<Integer>} dice.
+ * The values match the scorecard preview in game.js.
+ */
+public final class DiceScores {
+
+    private DiceScores() {
+    }
+
+    public static int score(BookingType bookingType, int[] counts) {
+        int sum = 0;
+        int maxCount = 0;
+        for (int face = 1; face <= 6; face++) {
+            sum += face * counts[face];
+            maxCount = Math.max(maxCount, counts[face]);
+        }
+
+        return switch (bookingType) {
+            case ONES -> counts[1];
+            case TWOS -> 2 * counts[2];
+            case THREES -> 3 * counts[3];
+            case FOURS -> 4 * counts[4];
+            case FIVES -> 5 * counts[5];
+            case SIXES -> 6 * counts[6];
+            case THREE_OF_A_KIND -> maxCount >= 3 ? sum : 0;
+            case FOUR_OF_A_KIND -> maxCount >= 4 ? sum : 0;
+            case FULL_HOUSE -> isFullHouse(counts) ? 25 : 0;
+            case SMALL_STRAIGHT -> longestRun(counts) >= 4 ? 30 : 0;
+            case LARGE_STRAIGHT -> longestRun(counts) >= 5 ? 40 : 0;
+            case KNIFFEL -> maxCount == 5 ? 50 : 0;
+            case CHANCE -> sum;
+        };
+    }
+
+    private static boolean isFullHouse(int[] counts) {
+        boolean three = false;
+        boolean two = false;
+        for (int face = 1; face <= 6; face++) {
+            three |= counts[face] == 3;
+            two |= counts[face] == 2;
+        }
+        return three && two;
+    }
+
+    private static int longestRun(int[] counts) {
+        int longest = 0;
+        int current = 0;
+        for (int face = 1; face <= 6; face++) {
+            current = counts[face] > 0 ? current + 1 : 0;
+            longest = Math.max(longest, current);
+        }
+        return longest;
+    }
+}
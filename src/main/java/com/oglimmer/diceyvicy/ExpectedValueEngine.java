@@ -0,0 +1,201 @@
+package com.oglimmer.diceyvicy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.oglimmer.kniffel.model.BookingType;
+import com.oglimmer.kniffel.service.KniffelRules;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expected value of the moves of a single turn. Plays the {@code Fast} AI, checks the answers of
+ * remote models and decides when a model gives no answer at all.
+ * <p>
+ * A booking is worth its score minus the average score of its booking type in optimal play (its
+ * par), so booking a low score on a type that usually scores high costs what it should without a
+ * table of future values. The value of every keep of a used-booking-type mask is computed by one
+ * backward pass over the turn on first use (well under a millisecond) and memoized; the best keep
+ * of a roll is then the best of its at most 32 subsets.
+ */
+public final class ExpectedValueEngine {
+
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+    private static final int ALL_USED = (1 << BOOKING_TYPES.length) - 1;
+    private static final int[][] SCORES = new int[BOOKING_TYPES.length][DiceMultisets.ROLL_COUNT];
+    private static final double[] PAR = new double[BOOKING_TYPES.length];
+    private static final ExpectedValueEngine SHARED = new ExpectedValueEngine(2048);
+
+    static {
+        // scored by the rules library the game books with, once per roll
+        KniffelRules rules = new KniffelRules();
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            List<Integer> dice = Arrays.stream(DiceMultisets.values(DiceMultisets.roll(roll))).boxed().toList();
+            for (int type = 0; type < BOOKING_TYPES.length; type++) {
+                SCORES[type][roll] = rules.getScore(BOOKING_TYPES[type], dice);
+            }
+        }
+        for (int type = 0; type < BOOKING_TYPES.length; type++) {
+            PAR[type] = par(BOOKING_TYPES[type]);
+        }
+    }
+
+    // per mask: the value of every keep with two rerolls left, and with one
+    private final Cache<Integer, double[][]> keepValues;
+
+    ExpectedValueEngine(int maxMasks) {
+        this.keepValues = Caffeine.newBuilder().maximumSize(maxMasks).build();
+    }
+
+    public static ExpectedValueEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * Average score of the booking type in optimal solitaire play.
+     */
+    private static double par(BookingType bookingType) {
+        return switch (bookingType) {
+            case ONES -> 1.88;
+            case TWOS -> 5.28;
+            case THREES -> 8.57;
+            case FOURS -> 12.16;
+            case FIVES -> 15.69;
+            case SIXES -> 19.19;
+            case THREE_OF_A_KIND -> 21.66;
+            case FOUR_OF_A_KIND -> 13.10;
+            case FULL_HOUSE -> 22.59;
+            case SMALL_STRAIGHT -> 29.46;
+            case LARGE_STRAIGHT -> 32.71;
+            case KNIFFEL -> 16.87;
+            case CHANCE -> 22.01;
+        };
+    }
+
+    /**
+     * @param round the roll round the dice come from, 1 or 2
+     * @return the dice values to keep, or an empty array if the dice are not a valid roll
+     */
+    public int[] diceToKeep(List<Integer> diceRolls, int usedMask, int round) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= ALL_USED) {
+            return new int[0];
+        }
+        double[] values = keepValues(usedMask, round);
+        int best = -1;
+        for (int keep : DiceMultisets.subsets(roll)) {
+            if (best < 0 || values[keep] > values[best]) {
+                best = keep;
+            }
+        }
+        return DiceMultisets.values(best).clone();
+    }
+
+    /**
+     * @return the booking type with the best value, or null if the dice are not a valid roll or nothing is left to book
+     */
+    public BookingType bookingType(List<Integer> diceRolls, int usedMask) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= ALL_USED) {
+            return null;
+        }
+        return BOOKING_TYPES[bestType(usedMask, roll)];
+    }
+
+    /**
+     * @return the expected points lost by keeping {@code keep} instead of the best keep, infinity if {@code keep}
+     * is not part of the roll, or 0 if it can't be told
+     */
+    public double keepLoss(List<Integer> diceRolls, int usedMask, int round, List<Integer> keep) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= ALL_USED) {
+            return 0;
+        }
+        int kept = keep == null ? -1 : DiceMultisets.indexOf(keep);
+        double[] values = keepValues(usedMask, round);
+        double best = Double.NEGATIVE_INFINITY;
+        boolean valid = false;
+        for (int subset : DiceMultisets.subsets(roll)) {
+            best = Math.max(best, values[subset]);
+            valid |= subset == kept;
+        }
+        return valid ? best - values[kept] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the points lost against par by booking {@code bookingType} instead of the best type, or 0 if it can't be told
+     */
+    public double bookingLoss(List<Integer> diceRolls, int usedMask, BookingType bookingType) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= ALL_USED) {
+            return 0;
+        }
+        int best = bestType(usedMask, roll);
+        return bookingValue(best, roll) - bookingValue(bookingType.ordinal(), roll);
+    }
+
+    private static double bookingValue(int type, int roll) {
+        return SCORES[type][roll] - PAR[type];
+    }
+
+    private static int bestType(int usedMask, int roll) {
+        int best = -1;
+        for (int type = 0; type < BOOKING_TYPES.length; type++) {
+            if ((usedMask & (1 << type)) == 0 && (best < 0 || bookingValue(type, roll) > bookingValue(best, roll))) {
+                best = type;
+            }
+        }
+        return best;
+    }
+
+    private double[] keepValues(int usedMask, int round) {
+        return keepValues.get(usedMask, ExpectedValueEngine::computeKeepValues)[round <= 1 ? 0 : 1];
+    }
+
+    private static double[][] computeKeepValues(int usedMask) {
+        // after the last roll: the value of the best booking
+        double[] rollValues = new double[DiceMultisets.COUNT];
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            rollValues[DiceMultisets.roll(roll)] = bookingValue(bestType(usedMask, roll), roll);
+        }
+        double[] oneRerollLeft = averageOverRerolls(rollValues);
+
+        // after the second roll: the value of the best keep
+        double[] secondRollValues = new double[DiceMultisets.COUNT];
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (int keep : DiceMultisets.subsets(roll)) {
+                best = Math.max(best, oneRerollLeft[keep]);
+            }
+            secondRollValues[DiceMultisets.roll(roll)] = best;
+        }
+        double[] twoRerollsLeft = averageOverRerolls(secondRollValues);
+        return new double[][]{twoRerollsLeft, oneRerollLeft};
+    }
+
+    /**
+     * Values every keep by the average value of the rolls it can turn into, given the values of full rolls.
+     */
+    private static double[] averageOverRerolls(double[] rollValues) {
+        double[] values = rollValues.clone();
+        // a multiset with one die more always comes later in the enumeration
+        for (int keep = DiceMultisets.COUNT - 1; keep >= 0; keep--) {
+            if (DiceMultisets.size(keep) < 5) {
+                double sum = 0;
+                for (int face = 1; face <= 6; face++) {
+                    sum += values[DiceMultisets.withFace(keep, face)];
+                }
+                values[keep] = sum / 6;
+            }
+        }
+        return values;
+    }
+
+    private static int rollOrdinal(List<Integer> diceRolls) {
+        if (diceRolls == null || diceRolls.size() != 5) {
+            return -1;
+        }
+        int index = DiceMultisets.indexOf(diceRolls);
+        return index < 0 ? -1 : DiceMultisets.rollOrdinal(index);
+    }
+}
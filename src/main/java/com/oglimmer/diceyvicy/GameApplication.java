@@ -4,8 +4,14 @@ import com.oglimmer.kniffel.service.AppContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Slf4j
+@EnableScheduling
+@ConfigurationPropertiesScan
 @SpringBootApplication(scanBasePackageClasses = AppContextUtil.class, scanBasePackages = "com.oglimmer")
 public class GameApplication {
 
@@ -13,4 +19,10 @@ public class GameApplication {
         SpringApplication.run(GameApplication.class, args);
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpLocalSolver() {
+        // build (or load) the solver table in the background so the first LocalSolver game doesn't wait for it
+        Thread.ofVirtual().name("solver-warmup").start(OptimalStrategyTable::shared);
+    }
+
 }
\ No newline at end of file
@@ -4,7 +4,10 @@ import com.oglimmer.kniffel.model.BookingType;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,9 +25,19 @@ import java.util.Map;
 public class GameController {
 
     private final GameService gameService;
+    private final AdmissionController admissionController;
 
+    /**
+     * Answers 429 with a {@code Retry-After} when the client started too many games lately.
+     */
     @PostMapping("/start")
-    public ResponseEntity<GameResponse> startGame(@RequestBody StartGameRequest request) {
+    public ResponseEntity<GameResponse> startGame(@RequestBody StartGameRequest request, HttpServletRequest httpRequest) {
+        if (!admissionController.admitStart(httpRequest.getRemoteAddr())) {
+            log.info("Refused new game from {}, too many started", httpRequest.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionController.startRetryAfter().toSeconds()))
+                    .build();
+        }
         log.info("Starting new game for player: {} with AI model: {}", request.getPlayerName(), request.getAiModel());
         GameState gameState = gameService.startNewGame(request.getPlayerName(), request.getAiModel());
         return ResponseEntity.ok(GameResponse.fromGameState(gameState));
@@ -47,27 +60,30 @@ public class GameController {
         private boolean gameOver;
         private Map<String, PlayerData> players;
         private String aiAction;
+        private boolean closed;
+        // sequence number of the last delta this snapshot includes
+        private long seq;
 
         public static GameResponse fromGameState(GameState gameState) {
             GameResponse response = new GameResponse();
             response.gameId = gameState.getGameId();
+            if (gameState.getGame() == null) {
+                return response;
+            }
+
+            // read from the game state's primitive copy, lists are only built here for the response
             response.diceRolls = gameState.getDiceRolls();
             response.rollCount = gameState.getRollCount();
             response.gameOver = gameState.isGameOver();
+            response.currentPlayer = gameState.getPlayerName(gameState.getCurrentPlayerIndex());
 
-            if (gameState.getCurrentPlayer() != null) {
-                response.currentPlayer = gameState.getCurrentPlayer().getName();
-            }
-
-            if (gameState.getPlayers() != null) {
-                response.players = new HashMap<>();
-                gameState.getPlayers().forEach((name, player) -> {
-                    PlayerData playerData = new PlayerData();
-                    playerData.name = name;
-                    playerData.score = player.getScore();
-                    playerData.usedBookingTypes = player.getUsedBookingTypes();
-                    response.players.put(name, playerData);
-                });
+            response.players = new HashMap<>(4);
+            for (int i = 0; i < gameState.getPlayerCount(); i++) {
+                PlayerData playerData = new PlayerData();
+                playerData.name = gameState.getPlayerName(i);
+                playerData.score = gameState.getScore(i);
+                playerData.usedBookingTypes = GameState.bookingTypes(gameState.getUsedMask(i));
+                response.players.put(playerData.name, playerData);
             }
 
             return response;
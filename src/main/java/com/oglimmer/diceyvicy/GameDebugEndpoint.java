@@ -0,0 +1,108 @@
+package com.oglimmer.diceyvicy;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Turns on DEBUG logging of this application for single games at runtime:
+ * {@code POST /actuator/gamedebug/{gameId}} to start, {@code DELETE} to stop.
+ * <p>
+ * Game commands and AI steps run with the game id in the MDC; a logback turbo filter lets the
+ * DEBUG lines of the games in debug through, whatever the configured levels say. With no game
+ * in debug the filter returns right away.
+ * <p>
+ * Only games running on this replica can be put in debug, at most {@code diceyvicy.logging.max-debug-games}
+ * at a time; games that are gone meanwhile don't count. Like all actuator endpoints it is served on
+ * {@code management.server.port}, not the public port.
+ */
+@Component
+@Endpoint(id = "gamedebug")
+public class GameDebugEndpoint {
+
+    private static final String LOGGER_PREFIX = "com.oglimmer.";
+
+    private final GameDebugFilter filter = new GameDebugFilter();
+    private final GameRegistry gameRegistry;
+    private final GameLoggingProperties properties;
+
+    // replaced, never changed, so the filter reads it without locking
+    private volatile Set<String> debugGames = Set.of();
+
+    public GameDebugEndpoint(GameRegistry gameRegistry, GameLoggingProperties properties) {
+        this.gameRegistry = gameRegistry;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void install() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            filter.setContext(context);
+            filter.start();
+            context.addTurboFilter(filter);
+        }
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            context.getTurboFilterList().remove(filter);
+        }
+    }
+
+    @ReadOperation
+    public Set<String> debugGames() {
+        return debugGames;
+    }
+
+    @WriteOperation
+    public synchronized void enable(@Selector String gameId) {
+        if (!gameRegistry.contains(gameId)) {
+            throw new InvalidEndpointRequestException("Game " + gameId + " is not running on this replica", "Unknown game");
+        }
+        Set<String> games = new HashSet<>(debugGames);
+        games.removeIf(game -> !gameRegistry.contains(game));
+        if (games.add(gameId) && games.size() > properties.getMaxDebugGames()) {
+            throw new InvalidEndpointRequestException("At most " + properties.getMaxDebugGames() + " games can be in debug",
+                    "Too many games in debug");
+        }
+        debugGames = Set.copyOf(games);
+    }
+
+    @DeleteOperation
+    public synchronized void disable(@Selector String gameId) {
+        Set<String> games = new HashSet<>(debugGames);
+        games.remove(gameId);
+        debugGames = Set.copyOf(games);
+    }
+
+    private class GameDebugFilter extends TurboFilter {
+
+        @Override
+        public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+            Set<String> games = debugGames;
+            if (games.isEmpty() || !level.isGreaterOrEqual(Level.DEBUG) || !logger.getName().startsWith(LOGGER_PREFIX)) {
+                return FilterReply.NEUTRAL;
+            }
+            String gameId = MDC.get(GameMailbox.MDC_GAME_ID);
+            return gameId != null && games.contains(gameId) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+        }
+    }
+}
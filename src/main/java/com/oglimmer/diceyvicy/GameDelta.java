@@ -0,0 +1,50 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.oglimmer.kniffel.model.BookingType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes since the previous message on {@code /topic/game/{gameId}}. Fields that did not
+ * change are left out. A client that sees a gap in {@code seq} asks for a full
+ * {@link GameController.GameResponse} on {@code /app/game/{gameId}/sync}.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameDelta {
+
+    public static final int VERSION = 1;
+
+    private final String type = "delta";
+    private final int version = VERSION;
+    private final long seq;
+    private List<Integer> diceRolls;
+    private Integer rollCount;
+    private String currentPlayer;
+    private Boolean gameOver;
+    private List<Booking> bookings;
+    private String aiAction;
+    private Boolean closed;
+
+    public GameDelta(long seq) {
+        this.seq = seq;
+    }
+
+    void addBooking(Booking booking) {
+        if (bookings == null) {
+            bookings = new ArrayList<>(1);
+        }
+        bookings.add(booking);
+    }
+
+    /**
+     * A booking type a player used; the score changed by {@code scoreDelta}.
+     */
+    public record Booking(String player, BookingType bookingType, int scoreDelta) {
+    }
+}
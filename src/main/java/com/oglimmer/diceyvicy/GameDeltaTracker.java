@@ -0,0 +1,89 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+
+/**
+ * Remembers what the clients of one game have been sent and turns the current game state into a
+ * {@link GameDelta} against it. Starts from the state of the start response (sequence number 0).
+ * Only used from the game's mailbox, except for reading the sequence number.
+ */
+public class GameDeltaTracker {
+
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+
+    // also read outside the mailbox, when the store is checked for a newer snapshot of the game
+    private volatile long seq;
+    private int packedDice;
+    private int rollCount;
+    private int currentPlayerIndex;
+    private boolean gameOver;
+    private final int[] usedMasks;
+    private final int[] scores;
+
+    public GameDeltaTracker(GameState gameState) {
+        this(gameState, 0);
+    }
+
+    /**
+     * @param seq the sequence number of the last delta the clients got, for a game picked up from a snapshot
+     */
+    public GameDeltaTracker(GameState gameState, long seq) {
+        this.seq = seq;
+        packedDice = gameState.getPackedDice();
+        rollCount = gameState.getRollCount();
+        currentPlayerIndex = gameState.getCurrentPlayerIndex();
+        gameOver = gameState.isGameOver();
+        usedMasks = new int[gameState.getPlayerCount()];
+        scores = new int[gameState.getPlayerCount()];
+        for (int i = 0; i < usedMasks.length; i++) {
+            usedMasks[i] = gameState.getUsedMask(i);
+            scores[i] = gameState.getScore(i);
+        }
+    }
+
+    /**
+     * @return the sequence number of the last delta, which is also the one a snapshot taken now carries
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    public GameDelta next(GameState gameState, String aiAction) {
+        GameDelta delta = new GameDelta(++seq);
+        delta.setAiAction(aiAction);
+
+        if (gameState.getPackedDice() != packedDice) {
+            packedDice = gameState.getPackedDice();
+            delta.setDiceRolls(PackedDice.toList(packedDice));
+        }
+        if (gameState.getRollCount() != rollCount) {
+            rollCount = gameState.getRollCount();
+            delta.setRollCount(rollCount);
+        }
+        if (gameState.getCurrentPlayerIndex() != currentPlayerIndex) {
+            currentPlayerIndex = gameState.getCurrentPlayerIndex();
+            delta.setCurrentPlayer(gameState.getPlayerName(currentPlayerIndex));
+        }
+        if (gameState.isGameOver() != gameOver) {
+            gameOver = gameState.isGameOver();
+            delta.setGameOver(gameOver);
+        }
+
+        for (int i = 0; i < usedMasks.length; i++) {
+            int newlyUsed = gameState.getUsedMask(i) & ~usedMasks[i];
+            if (newlyUsed != 0) {
+                // one booking per turn; should there be more, the whole score change goes with the last
+                int scoreDelta = gameState.getScore(i) - scores[i];
+                while (newlyUsed != 0) {
+                    int ordinal = Integer.numberOfTrailingZeros(newlyUsed);
+                    newlyUsed &= newlyUsed - 1;
+                    delta.addBooking(new GameDelta.Booking(gameState.getPlayerName(i), BOOKING_TYPES[ordinal],
+                            newlyUsed == 0 ? scoreDelta : 0));
+                }
+            }
+            usedMasks[i] = gameState.getUsedMask(i);
+            scores[i] = gameState.getScore(i);
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,352 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of all running games, so a restarted replica can carry on with them.
+ * <p>
+ * The log is a sequence of memory-mapped segment files. Each record is framed by its length and
+ * CRC and is one of: a {@link GameSnapshot} (a new game, or a checkpoint), a move (the
+ * {@link GameDelta} of a broadcast, with the dice that were rolled, since rolls can't be
+ * repeated), or the end of a game. Appending copies the record into the mapping; a scheduled
+ * flush forces what was appended since the last flush to disk, off the move's path.
+ * <p>
+ * A checkpoint starts a new segment, writes a snapshot of every live game into it and then
+ * deletes the older segments. Recovery replays the segments in order: the snapshots plus the
+ * moves after them.
+ */
+@Slf4j
+@Component
+public class GameEventLog {
+
+    static final byte SNAPSHOT = 1;
+    static final byte MOVE = 2;
+    static final byte END = 3;
+
+    private static final int HEADER = 8;
+    private static final int DICE = 1;
+    private static final int ROLL_COUNT = 2;
+    private static final int CURRENT_PLAYER = 4;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("events-(\\d+)\\.log");
+
+    private final GameEventLogProperties properties;
+    private final Counter appendedCounter;
+    private final Timer flushTimer;
+    private final Map<String, GameSnapshot> recovered = new LinkedHashMap<>();
+
+    // guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segment;
+    private int flushedPosition;
+
+    public GameEventLog(GameEventLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.appendedCounter = Counter.builder("diceyvicy.event-log.appended")
+                .description("Records appended to the game event log")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("diceyvicy.event-log.flush")
+                .description("Time to force appended records to disk")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.getDir() != null && !properties.getDir().isBlank();
+    }
+
+    /**
+     * Replays the segments left by the previous run and starts a new one for this run.
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path dir = Path.of(properties.getDir());
+        Files.createDirectories(dir);
+        long time = System.currentTimeMillis();
+        List<Long> segments = segments();
+        for (long number : segments) {
+            replay(segmentFile(number));
+        }
+        if (!segments.isEmpty()) {
+            log.info("Recovered {} games from {} log segments in {}", recovered.size(), segments.size(),
+                    GameService.formatElapsedTime(System.currentTimeMillis() - time));
+        }
+        segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        openNextSegment();
+    }
+
+    /**
+     * @return the games that were running when the previous run stopped; each is only handed out once
+     */
+    public synchronized List<GameSnapshot> takeRecovered() {
+        List<GameSnapshot> games = new ArrayList<>(recovered.values());
+        recovered.clear();
+        return games;
+    }
+
+    public void appendSnapshot(GameSnapshot snapshot) {
+        if (isEnabled()) {
+            byte[] bytes = snapshot.toBytes();
+            byte[] body = new byte[bytes.length + 1];
+            body[0] = SNAPSHOT;
+            System.arraycopy(bytes, 0, body, 1, bytes.length);
+            append(body);
+        }
+    }
+
+    /**
+     * Only called from the game's mailbox, right after the delta was made from the game state.
+     */
+    public void appendMove(GameState gameState, GameDelta delta) {
+        if (!isEnabled()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MOVE);
+            out.writeUTF(gameState.getGameId());
+            out.writeLong(delta.getSeq());
+            int flags = (delta.getDiceRolls() != null ? DICE : 0)
+                    | (delta.getRollCount() != null ? ROLL_COUNT : 0)
+                    | (delta.getCurrentPlayer() != null ? CURRENT_PLAYER : 0);
+            out.writeByte(flags);
+            if ((flags & DICE) != 0) {
+                out.writeInt(gameState.getPackedDice());
+            }
+            if ((flags & ROLL_COUNT) != 0) {
+                out.writeByte(gameState.getRollCount());
+            }
+            if ((flags & CURRENT_PLAYER) != 0) {
+                out.writeByte(gameState.getCurrentPlayerIndex());
+            }
+            List<GameDelta.Booking> bookings = delta.getBookings() == null ? List.of() : delta.getBookings();
+            out.writeByte(bookings.size());
+            for (GameDelta.Booking booking : bookings) {
+                out.writeByte(playerIndex(gameState, booking.player()));
+                out.writeByte(booking.bookingType().ordinal());
+                out.writeShort(booking.scoreDelta());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    public void appendEnd(String gameId) {
+        if (!isEnabled()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(40);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(END);
+            out.writeUTF(gameId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(bytes.toByteArray());
+    }
+
+    private static int playerIndex(GameState gameState, String name) {
+        for (int i = 0; i < gameState.getPlayerCount(); i++) {
+            if (gameState.getPlayerName(i).equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown player " + name);
+    }
+
+    private synchronized void append(byte[] body) {
+        if (buffer == null) {
+            return;
+        }
+        if (buffer.remaining() < HEADER + body.length) {
+            try {
+                openNextSegment();
+            } catch (IOException e) {
+                log.error("Could not start a new event log segment, dropping record: {}", e.getMessage());
+                return;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.putInt(body.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(body);
+        appendedCounter.increment();
+    }
+
+    /**
+     * Forces the records appended since the last flush to disk.
+     */
+    @Scheduled(fixedDelayString = "${diceyvicy.event-log.flush-interval:100ms}")
+    public void flush() {
+        MappedByteBuffer toForce;
+        int from;
+        int to;
+        synchronized (this) {
+            if (buffer == null || buffer.position() == flushedPosition) {
+                return;
+            }
+            toForce = buffer;
+            from = flushedPosition;
+            to = buffer.position();
+            flushedPosition = to;
+        }
+        flushTimer.record(() -> toForce.force(from, to - from));
+    }
+
+    /**
+     * Starts a new segment for the snapshots of a checkpoint.
+     *
+     * @return the new segment; once all live games are written to it the older ones can be deleted
+     */
+    public synchronized long startCheckpoint() throws IOException {
+        openNextSegment();
+        return segment;
+    }
+
+    public void deleteSegmentsBefore(long number) {
+        try {
+            for (long older : segments()) {
+                if (older < number) {
+                    Files.deleteIfExists(segmentFile(older));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not delete old event log segments: {}", e.getMessage());
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        segment++;
+        Path file = segmentFile(segment);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, properties.getSegmentSize().toBytes());
+        flushedPosition = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        if (buffer != null) {
+            buffer.force(flushedPosition, buffer.position() - flushedPosition);
+            channel.close();
+            buffer = null;
+            channel = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.error("Could not close the event log: {}", e.getMessage());
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return Path.of(properties.getDir(), String.format("events-%08d.log", number));
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(properties.getDir()))) {
+            return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void replay(Path file) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+        }
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= HEADER) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            // a segment is zero-filled after its last record; a torn record ends the replay of the segment
+            if (length <= 0 || length > in.remaining()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            in.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Event log segment {} has a corrupt record, ignoring the rest of it", file.getFileName());
+                break;
+            }
+            apply(body);
+        }
+    }
+
+    private void apply(byte[] body) throws IOException {
+        switch (body[0]) {
+            case SNAPSHOT -> {
+                GameSnapshot snapshot = GameSnapshot.fromBytes(Arrays.copyOfRange(body, 1, body.length));
+                recovered.put(snapshot.gameId(), snapshot);
+            }
+            case MOVE -> {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+                String gameId = in.readUTF();
+                GameSnapshot game = recovered.get(gameId);
+                if (game != null) {
+                    recovered.put(gameId, applyMove(game, in));
+                }
+            }
+            case END -> recovered.remove(new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1)).readUTF());
+            default -> log.warn("Unknown event log record type {}", body[0]);
+        }
+    }
+
+    private static GameSnapshot applyMove(GameSnapshot game, DataInputStream in) throws IOException {
+        long seq = in.readLong();
+        int flags = in.readUnsignedByte();
+        int packedDice = (flags & DICE) != 0 ? in.readInt() : game.packedDice();
+        int rollCount = (flags & ROLL_COUNT) != 0 ? in.readUnsignedByte() : game.rollCount();
+        int currentPlayerIndex = (flags & CURRENT_PLAYER) != 0 ? in.readUnsignedByte() : game.currentPlayerIndex();
+        int[] usedMasks = game.usedMasks().clone();
+        int[] scores = game.scores().clone();
+        int bookings = in.readUnsignedByte();
+        for (int i = 0; i < bookings; i++) {
+            int player = in.readUnsignedByte();
+            usedMasks[player] |= 1 << in.readUnsignedByte();
+            scores[player] += in.readShort();
+        }
+        return new GameSnapshot(game.gameId(), game.aiModel(), seq, game.playerNames(), packedDice,
+                rollCount, currentPlayerIndex, usedMasks, scores);
+    }
+}
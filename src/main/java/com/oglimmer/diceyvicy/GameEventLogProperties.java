@@ -0,0 +1,36 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.event-log")
+public class GameEventLogProperties {
+
+    /**
+     * Directory of the write-ahead log; games are only recovered after a restart if it is set.
+     */
+    private String dir;
+
+    /**
+     * Size of one memory-mapped log segment. A full segment is continued in a new one.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+    /**
+     * How often appended records are forced to disk. A crash of the machine, not of the process,
+     * loses at most this much.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * How often all live games are written as snapshots to a new segment, after which the older
+     * segments are deleted. Bounds both disk use and recovery time.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+}
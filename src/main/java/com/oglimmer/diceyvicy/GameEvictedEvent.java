@@ -0,0 +1,18 @@
+package com.oglimmer.diceyvicy;
+
+/**
+ * Published by {@link GameRegistry} when it drops a game that has not finished.
+ */
+public record GameEvictedEvent(GameSession session, Reason reason) {
+
+    public enum Reason {
+        /**
+         * The registry was full and this was the least recently used game.
+         */
+        EVICTED,
+        /**
+         * The game was idle for longer than the idle timeout.
+         */
+        EXPIRED
+    }
+}
@@ -0,0 +1,31 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.logging")
+public class GameLoggingProperties {
+
+    /**
+     * Console log format: plain for people, json for log shippers. Read by logback-spring.xml.
+     */
+    private String format = "plain";
+
+    /**
+     * Log events buffered for the console. Read by logback-spring.xml.
+     */
+    private int queueSize = 8192;
+
+    /**
+     * Share of games whose moves are logged at INFO. The choice is made per game, so a logged game is logged completely.
+     */
+    private double moveSampleRate = 0.01;
+
+    /**
+     * Games that can be switched to DEBUG logging at the same time, see {@link GameDebugEndpoint}.
+     */
+    private int maxDebugGames = 20;
+}
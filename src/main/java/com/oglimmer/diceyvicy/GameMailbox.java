@@ -0,0 +1,74 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializes all commands of one game. Any thread may submit; at most one thread drains the
+ * queue at a time, so commands of a game run one after another in submission order while
+ * the mailboxes of different games drain in parallel.
+ * <p>
+ * The AI turn flag is volatile so player commands arriving during an AI turn can be rejected
+ * before they are queued.
+ * <p>
+ * Commands run with the game id in the MDC under {@link #MDC_GAME_ID}, so every line they log is keyed by the game.
+ */
+@Slf4j
+public class GameMailbox {
+
+    public static final String MDC_GAME_ID = "gameId";
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final String gameId;
+    private volatile boolean aiTurn;
+
+    public GameMailbox(Executor executor) {
+        this(executor, null);
+    }
+
+    public GameMailbox(Executor executor, String gameId) {
+        this.executor = executor;
+        this.gameId = gameId;
+    }
+
+    public void submit(Runnable command) {
+        commands.offer(command);
+        // only the submitter that finds the mailbox idle starts a drain
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        if (gameId != null) {
+            MDC.put(MDC_GAME_ID, gameId);
+        }
+        try {
+            do {
+                Runnable command = commands.poll();
+                try {
+                    command.run();
+                } catch (Exception e) {
+                    log.error("Game command failed", e);
+                }
+            } while (pending.decrementAndGet() > 0);
+        } finally {
+            MDC.remove(MDC_GAME_ID);
+        }
+    }
+
+    public boolean isAiTurn() {
+        return aiTurn;
+    }
+
+    public void setAiTurn(boolean aiTurn) {
+        this.aiTurn = aiTurn;
+    }
+}
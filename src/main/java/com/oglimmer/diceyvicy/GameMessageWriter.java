@@ -0,0 +1,181 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.oglimmer.kniffel.model.BookingType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the messages of {@code /topic/game/{gameId}} with Jackson's streaming generator instead
+ * of reflective data binding, into pooled buffers. The result is the finished JSON payload, so a
+ * message is encoded once no matter how many clients subscribe to the game.
+ * <p>
+ * The output is the same JSON that data binding produces for {@link GameController.GameResponse}
+ * and {@link GameDelta}.
+ */
+public final class GameMessageWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // buffers are pooled rather than thread-local, because mailboxes drain on short-lived virtual threads
+    private static final BlockingQueue<Buffer> BUFFERS = new ArrayBlockingQueue<>(64);
+
+    private GameMessageWriter() {
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(512);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private static byte[] write(Body body) {
+        Buffer buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = new Buffer();
+        }
+        try {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                body.write(generator);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not fail
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.reset();
+            BUFFERS.offer(buffer);
+        }
+    }
+
+    public static byte[] write(GameController.GameResponse response) {
+        return write(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("gameId", response.getGameId());
+            writeDice(generator, "diceRolls", response.getDiceRolls());
+            generator.writeStringField("currentPlayer", response.getCurrentPlayer());
+            generator.writeNumberField("rollCount", response.getRollCount());
+            generator.writeBooleanField("gameOver", response.isGameOver());
+            generator.writeFieldName("players");
+            if (response.getPlayers() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartObject();
+                for (Map.Entry<String, GameController.PlayerData> entry : response.getPlayers().entrySet()) {
+                    GameController.PlayerData player = entry.getValue();
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeStartObject();
+                    generator.writeStringField("name", player.getName());
+                    generator.writeNumberField("score", player.getScore());
+                    generator.writeFieldName("usedBookingTypes");
+                    if (player.getUsedBookingTypes() == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeStartArray();
+                        for (BookingType bookingType : player.getUsedBookingTypes()) {
+                            generator.writeString(bookingType.name());
+                        }
+                        generator.writeEndArray();
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeStringField("aiAction", response.getAiAction());
+            generator.writeBooleanField("closed", response.isClosed());
+            generator.writeNumberField("seq", response.getSeq());
+            generator.writeEndObject();
+        });
+    }
+
+    public static byte[] write(GameDelta delta) {
+        return write(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("type", delta.getType());
+            generator.writeNumberField("version", delta.getVersion());
+            generator.writeNumberField("seq", delta.getSeq());
+            if (delta.getDiceRolls() != null) {
+                writeDice(generator, "diceRolls", delta.getDiceRolls());
+            }
+            if (delta.getRollCount() != null) {
+                generator.writeNumberField("rollCount", delta.getRollCount());
+            }
+            if (delta.getCurrentPlayer() != null) {
+                generator.writeStringField("currentPlayer", delta.getCurrentPlayer());
+            }
+            if (delta.getGameOver() != null) {
+                generator.writeBooleanField("gameOver", delta.getGameOver());
+            }
+            if (delta.getBookings() != null) {
+                generator.writeArrayFieldStart("bookings");
+                for (GameDelta.Booking booking : delta.getBookings()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("player", booking.player());
+                    generator.writeStringField("bookingType", booking.bookingType().name());
+                    generator.writeNumberField("scoreDelta", booking.scoreDelta());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            if (delta.getAiAction() != null) {
+                generator.writeStringField("aiAction", delta.getAiAction());
+            }
+            if (delta.getClosed() != null) {
+                generator.writeBooleanField("closed", delta.getClosed());
+            }
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * A piece of the AI's reasoning while it decides, for the state of {@code seq}. It is no delta and
+     * does not advance the sequence.
+     */
+    public static byte[] writeReasoning(long seq, String text) {
+        return write(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("type", "reasoning");
+            generator.writeNumberField("seq", seq);
+            generator.writeStringField("text", text);
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Notice that a move was dropped for going over the client's limit. It is no delta and does not
+     * advance the sequence.
+     */
+    public static byte[] writeThrottled(long retryAfterMillis, String text) {
+        return write(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("type", "throttled");
+            generator.writeNumberField("retryAfterMs", retryAfterMillis);
+            generator.writeStringField("text", text);
+            generator.writeEndObject();
+        });
+    }
+
+    private static void writeDice(JsonGenerator generator, String fieldName, List<Integer> dice) throws IOException {
+        generator.writeFieldName(fieldName);
+        if (dice == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (int i = 0; i < dice.size(); i++) {
+            generator.writeNumber(dice.get(i));
+        }
+        generator.writeEndArray();
+    }
+}
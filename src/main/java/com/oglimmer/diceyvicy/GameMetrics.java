@@ -0,0 +1,82 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves, broadcast serialization time and live games, tagged with the AI model of the game so
+ * models can be compared by load. The meters of a model are registered with its first game.
+ */
+@Component
+public class GameMetrics {
+
+    public enum Move {
+        REROLL, BOOK
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final GameRegistry gameRegistry;
+    private final Map<String, ModelMeters> byModel = new ConcurrentHashMap<>();
+
+    private record ModelMeters(Counter[] moves, Timer deltaSerialization, Timer snapshotSerialization) {
+    }
+
+    public GameMetrics(MeterRegistry meterRegistry, GameRegistry gameRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.gameRegistry = gameRegistry;
+    }
+
+    public void recordMove(String model, Move move, boolean ai) {
+        meters(model).moves()[move.ordinal() * 2 + (ai ? 1 : 0)].increment();
+    }
+
+    public void recordSerialization(String model, boolean snapshot, long nanos) {
+        ModelMeters meters = meters(model);
+        (snapshot ? meters.snapshotSerialization() : meters.deltaSerialization()).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Makes sure the live games of the model are reported, called when a game starts.
+     */
+    public void gameStarted(String model) {
+        meters(model);
+    }
+
+    private ModelMeters meters(String model) {
+        return byModel.computeIfAbsent(model == null ? "unknown" : model, this::register);
+    }
+
+    private ModelMeters register(String model) {
+        Counter[] moves = new Counter[Move.values().length * 2];
+        for (Move move : Move.values()) {
+            for (String player : new String[]{"human", "ai"}) {
+                moves[move.ordinal() * 2 + (player.equals("ai") ? 1 : 0)] = Counter.builder("diceyvicy.moves")
+                        .description("Rerolls and bookings applied to games")
+                        .tag("model", model)
+                        .tag("move", move.name().toLowerCase())
+                        .tag("player", player)
+                        .register(meterRegistry);
+            }
+        }
+        Gauge.builder("diceyvicy.games.live.model", gameRegistry, registry -> registry.countGames(model))
+                .description("Games currently held in memory, by AI model")
+                .tag("model", model)
+                .register(meterRegistry);
+        return new ModelMeters(moves, serializationTimer(model, "delta"), serializationTimer(model, "snapshot"));
+    }
+
+    private Timer serializationTimer(String model, String message) {
+        return Timer.builder("diceyvicy.broadcast.serialization")
+                .description("Time to encode a game message before it is handed to the broker")
+                .tag("model", model)
+                .tag("message", message)
+                .register(meterRegistry);
+    }
+}
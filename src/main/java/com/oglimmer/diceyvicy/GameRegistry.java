@@ -0,0 +1,175 @@
+package com.oglimmer.diceyvicy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the running games. The registry is bounded: when it is full the least recently used
+ * game is evicted, and games that have been idle for longer than the idle timeout expire. Both
+ * publish a {@link GameEvictedEvent} so the player can be told.
+ * <p>
+ * The games are kept in a Caffeine cache that expires after access, so it keeps them in access
+ * order: finding the least recently used game doesn't scan the registry.
+ */
+@Slf4j
+@Component
+public class GameRegistry {
+
+    private final Cache<String, GameSession> cache;
+    private final ConcurrentMap<String, GameSession> sessions;
+    private final Policy.FixedExpiration<String, GameSession> accessOrder;
+    private final GameRegistryProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter evictedCounter;
+    private final Counter expiredCounter;
+
+    @Autowired
+    public GameRegistry(GameRegistryProperties properties, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this(properties, eventPublisher, meterRegistry, Ticker.systemTicker());
+    }
+
+    GameRegistry(GameRegistryProperties properties, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                 Ticker ticker) {
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getIdleTimeout())
+                .ticker(ticker)
+                // expired games are reported on the thread that cleans up, not on the common pool
+                .executor(Runnable::run)
+                .removalListener(this::onRemoval)
+                .build();
+        this.sessions = cache.asMap();
+        this.accessOrder = cache.policy().expireAfterAccess().orElseThrow();
+        Gauge.builder("diceyvicy.games.live", sessions, Map::size)
+                .description("Games currently held in memory")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("diceyvicy.games.evicted")
+                .description("Games evicted because the registry was full")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("diceyvicy.games.expired")
+                .description("Games removed after the idle timeout")
+                .register(meterRegistry);
+    }
+
+    public void register(GameSession session) {
+        makeRoom();
+        sessions.put(session.getGameId(), session);
+    }
+
+    /**
+     * @return the session registered for the game, which is the given one unless another thread registered the game first
+     */
+    public GameSession registerIfAbsent(GameSession session) {
+        makeRoom();
+        GameSession existing = sessions.putIfAbsent(session.getGameId(), session);
+        return existing == null ? session : existing;
+    }
+
+    private void makeRoom() {
+        while (sessions.size() >= properties.getMaxGames()) {
+            if (!evictLeastRecentlyUsed()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the game, marked as accessed, or null if there is no such game
+     */
+    public GameSession get(String gameId) {
+        return cache.getIfPresent(gameId);
+    }
+
+    public void remove(String gameId) {
+        sessions.remove(gameId);
+    }
+
+    /**
+     * Removes the session unless another one was registered for its game meanwhile.
+     */
+    public void remove(GameSession session) {
+        sessions.remove(session.getGameId(), session);
+    }
+
+    /**
+     * @return whether the game is registered, without marking it as accessed
+     */
+    public boolean contains(String gameId) {
+        return cache.policy().getIfPresentQuietly(gameId) != null;
+    }
+
+    /**
+     * @return whether the session is the one registered for its game, without marking it as accessed
+     */
+    public boolean isRegistered(GameSession session) {
+        return cache.policy().getIfPresentQuietly(session.getGameId()) == session;
+    }
+
+    public List<GameSession> getSessions() {
+        return List.copyOf(sessions.values());
+    }
+
+    /**
+     * @return the games against the given AI model
+     */
+    public int countGames(String modelName) {
+        int count = 0;
+        for (GameSession session : sessions.values()) {
+            if (session.getAiBot() != null && modelName.equals(session.getAiBot().getModelName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private boolean evictLeastRecentlyUsed() {
+        Map<String, GameSession> leastRecentlyUsed = accessOrder.oldest(1);
+        if (leastRecentlyUsed.isEmpty()) {
+            return false;
+        }
+        GameSession oldest = leastRecentlyUsed.values().iterator().next();
+        // another thread may have removed it in the meantime, then the caller just looks again
+        if (sessions.remove(oldest.getGameId(), oldest)) {
+            evictedCounter.increment();
+            log.info("Evicted least recently used game: {}", oldest.getGameId());
+            eventPublisher.publishEvent(new GameEvictedEvent(oldest, GameEvictedEvent.Reason.EVICTED));
+        }
+        return true;
+    }
+
+    /**
+     * Expired games are otherwise only removed while the registry is used.
+     */
+    @Scheduled(fixedDelayString = "${diceyvicy.games.sweep-interval:30s}")
+    public void sweepIdleGames() {
+        cache.cleanUp();
+    }
+
+    private void onRemoval(String gameId, GameSession session, RemovalCause cause) {
+        if (cause == RemovalCause.EXPIRED) {
+            expiredCounter.increment();
+            log.info("Removed idle game: {}", gameId);
+            eventPublisher.publishEvent(new GameEvictedEvent(session, GameEvictedEvent.Reason.EXPIRED));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.games")
+public class GameRegistryProperties {
+
+    /**
+     * Games kept at most; starting one more evicts the least recently used game.
+     */
+    private int maxGames = 10000;
+
+    /**
+     * Games without any command for this long are removed by the sweeper.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+}
@@ -4,73 +4,213 @@ import com.oglimmer.kniffel.model.BookingType;
 import com.oglimmer.kniffel.model.KniffelPlayer;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class GameService {
 
+    /**
+     * Where a session is told that its move was dropped; clients subscribe to it under {@code /user}.
+     */
+    static final String THROTTLED_DESTINATION = "/topic/throttled";
+
     private final SimpMessagingTemplate messagingTemplate;
-    private final Map<String, GameState> gameStates = new ConcurrentHashMap<>();
-    private final Map<String, AiBot> gameBots = new ConcurrentHashMap<>();
+    private final AiTurnExecutor aiTurnExecutor;
+    private final GameRegistry gameRegistry;
+    private final AiModelRegistry aiModelRegistry;
+    private final SpeculativeAiWarmer speculativeAiWarmer;
+    private final GameStateStore gameStateStore;
+    private final GameEventLog gameEventLog;
+    private final GameMetrics gameMetrics;
+    private final MoveLog moveLog;
+    private final AdmissionController admissionController;
+    private final Executor commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public GameState startNewGame(String playerName, String aiModel) {
         GameState gameState = new GameState();
         gameState.initializeGame(playerName);
         
-        // Create AI bot with selected model for this game
-        AiBot aiBot = new AiBot(aiModel);
-        gameBots.put(gameState.getGameId(), aiBot);
-        
-        gameStates.put(gameState.getGameId(), gameState);
+        // The AI bot of the selected model is shared by all games
+        AiBot aiBot = aiModelRegistry.getBot(aiModel);
+        GameSession session = new GameSession(gameState, aiBot, new GameMailbox(commandExecutor, gameState.getGameId()));
+        gameRegistry.register(session);
+        GameSnapshot snapshot = GameSnapshot.of(session);
+        gameStateStore.save(snapshot);
+        gameEventLog.appendSnapshot(snapshot);
+        gameMetrics.gameStarted(aiBot.getModelName());
+        speculativeAiWarmer.warm(session);
         return gameState;
     }
 
+    /**
+     * @return the game of this replica, or the game picked up from the store if another replica ran it or played on
+     * since; null if there is no such game
+     */
+    private GameSession findSession(String gameId) {
+        GameSession session = gameRegistry.get(gameId);
+        if (session != null && !gameStateStore.isEnabled()) {
+            return session;
+        }
+
+        GameSnapshot snapshot = gameStateStore.load(gameId);
+        if (session != null) {
+            if (snapshot == null || snapshot.seq() <= session.getDeltaTracker().getSeq()) {
+                return session;
+            }
+            // another replica picked the game up and played on, this copy is stale
+            log.info("Replacing stale copy of game {} with the stored one", gameId);
+            dropStaleCopy(session);
+        }
+        return snapshot == null ? null : pickUp(snapshot, "the game store");
+    }
+
+    private void dropStaleCopy(GameSession session) {
+        gameRegistry.remove(session);
+        speculativeAiWarmer.cancel(session.getGameId());
+    }
+
+    /**
+     * Rebuilds all games that were running when this replica stopped, from the event log.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverGames() {
+        int recovered = 0;
+        for (GameSnapshot snapshot : gameEventLog.takeRecovered()) {
+            if (pickUp(snapshot, "the event log") != null) {
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            log.info("Recovered {} games from the event log", recovered);
+        }
+    }
+
+    /**
+     * @return the session of the game, or null if the snapshot could not be restored
+     */
+    private GameSession pickUp(GameSnapshot snapshot, String source) {
+        String gameId = snapshot.gameId();
+        GameState gameState;
+        try {
+            gameState = GameState.restore(snapshot);
+        } catch (IllegalStateException e) {
+            log.error("Could not pick up game {} from {}", gameId, source, e);
+            return null;
+        }
+        GameSession restored = new GameSession(gameState, aiModelRegistry.getBot(snapshot.aiModel()),
+                new GameMailbox(commandExecutor, gameId), snapshot.seq());
+        GameSession session = gameRegistry.registerIfAbsent(restored);
+        if (session == restored) {
+            log.info("Picked up game {} from {}", gameId, source);
+            gameStateStore.save(snapshot);
+            gameEventLog.appendSnapshot(snapshot);
+            gameMetrics.gameStarted(snapshot.aiModel());
+            // the replica that went away may have been in the middle of the AI's turn
+            if (!gameState.isGameOver() && gameState.getCurrentPlayer().getName().equals("Jürgen-AI")) {
+                session.getMailbox().setAiTurn(true);
+                session.getMailbox().submit(() -> handleAiTurn(restored));
+            }
+        }
+        return session;
+    }
+
     public void handlePlayerReroll(String gameId, int[] dicePositionToKeep) {
-        GameState gameState = gameStates.get(gameId);
-        if (gameState == null) {
+        GameSession session = findSession(gameId);
+        if (session == null) {
             log.error("Game not found: {}", gameId);
             return;
         }
 
+        if (session.getMailbox().isAiTurn()) {
+            log.error("Cannot reroll during the AI turn for game: {}", gameId);
+            return;
+        }
+
+        session.getMailbox().submit(() -> applyPlayerReroll(session, dicePositionToKeep));
+    }
+
+    private void applyPlayerReroll(GameSession session, int[] dicePositionToKeep) {
+        String gameId = session.getGameId();
+        GameState gameState = session.getGameState();
+        if (session.getMailbox().isAiTurn()) {
+            log.error("Cannot reroll during the AI turn for game: {}", gameId);
+            return;
+        }
+
         if (gameState.getRollCount() >= 3) {
             log.error("Cannot reroll, already rolled 2 times for game: {}", gameId);
             return;
         }
 
         gameState.rerollDiceByPos(dicePositionToKeep);
-        log.info("Player rerolled dice for game: {}, roll count: {}", gameId, gameState.getRollCount());
-        broadcastGameState(gameId, gameState);
+        gameMetrics.recordMove(modelName(session), GameMetrics.Move.REROLL, false);
+        moveLog.reroll(gameState, gameState.getCurrentPlayer().getName());
+        broadcastGameState(session);
     }
 
     public void handlePlayerBook(String gameId, BookingType bookingType) {
-        GameState gameState = gameStates.get(gameId);
-        if (gameState == null) {
+        GameSession session = findSession(gameId);
+        if (session == null) {
             log.error("Game not found: {}", gameId);
             return;
         }
 
-        if (gameState.getCurrentPlayer().getUsedBookingTypes().contains(bookingType)) {
+        if (session.getMailbox().isAiTurn()) {
+            log.error("Cannot book during the AI turn for game: {}", gameId);
+            return;
+        }
+
+        session.getMailbox().submit(() -> applyPlayerBook(session, bookingType));
+    }
+
+    private void applyPlayerBook(GameSession session, BookingType bookingType) {
+        String gameId = session.getGameId();
+        GameState gameState = session.getGameState();
+        if (session.getMailbox().isAiTurn()) {
+            log.error("Cannot book during the AI turn for game: {}", gameId);
+            return;
+        }
+
+        if (gameState.isBooked(bookingType)) {
             log.error("Booking type {} already used for game: {}", bookingType, gameId);
             return;
         }
 
+        KniffelPlayer player = gameState.getCurrentPlayer();
+        int previousScore = player.getScore();
+        int bookedDice = gameState.getPackedDice();
         gameState.bookDiceRoll(bookingType);
-        log.info("Player booked dice roll for game: {} with booking type: {}", gameId, bookingType);
-        broadcastGameState(gameId, gameState);
+        gameMetrics.recordMove(modelName(session), GameMetrics.Move.BOOK, false);
+        moveLog.book(gameState, player.getName(), bookingType, bookedDice, player.getScore() - previousScore);
+        broadcastGameState(session);
 
         // Check if AI's turn
         if (!gameState.isGameOver() && gameState.getCurrentPlayer().getName().equals("Jürgen-AI")) {
-            handleAiTurn(gameId, gameState);
+            session.getMailbox().setAiTurn(true);
+            handleAiTurn(session);
         }
     }
 
@@ -94,82 +234,361 @@ public class GameService {
         return sb.toString().trim();
     }
 
-    private void handleAiTurn(String gameId, GameState gameState) {
-        long time = System.currentTimeMillis();
-        AiBot aiBot = gameBots.get(gameId);
-        if (aiBot == null) {
-            log.error("No AI bot found for game: {}", gameId);
+    /**
+     * Starts the AI turn if the admission controller has a slot for it. Otherwise the turn is played
+     * with the overflow model, or waits in line for a slot if there is none. A turn that finds the line
+     * full is played with the bot's local fallback, so the game never gets stuck.
+     */
+    private void handleAiTurn(GameSession session) {
+        AdmissionController.AiTurnSlot slot = admissionController.tryAcquireAiTurn();
+        if (slot != null) {
+            startAiTurn(session, session.getAiBot(), slot, "Jürgen is thinking about %s...");
             return;
         }
-        
-        // AI reroll logic
-        KniffelPlayer currentPlayer = gameState.getCurrentPlayer();
-        broadcastGameStateWithAction(gameId, gameState, "Jürgen is thinking about " + gameState.getDiceRolls() + "...");
+        AiBot overflowBot = overflowBot();
+        if (overflowBot != null) {
+            admissionController.aiTurnDegraded();
+            startAiTurn(session, overflowBot, AdmissionController.AiTurnSlot.UNCOUNTED,
+                    "The server is busy, Jürgen plays quick moves. He is thinking about %s...");
+            return;
+        }
+        int position = admissionController.awaitAiTurn(granted -> session.getMailbox().submit(() ->
+                startAiTurn(session, session.getAiBot(), granted, "Jürgen's turn came up, he is thinking about %s...")));
+        if (position > 0) {
+            broadcastGameStateWithAction(session, "The server is busy, Jürgen waits for his turn: "
+                    + position + (position == 1 ? " game is" : " games are") + " ahead of him.");
+        } else if (position < 0) {
+            log.warn("AI turn for game: {} played with the fallback model, too many AI turns waiting", session.getGameId());
+            admissionController.aiTurnDegraded();
+            startAiTurn(session, session.getAiBot().getFallbackBot(), AdmissionController.AiTurnSlot.UNCOUNTED,
+                    "The server is overloaded, Jürgen plays quick moves. He is thinking about %s...");
+        }
+    }
+
+    /**
+     * @return the bot of the overflow model, null if none is configured or there is no such model
+     */
+    private AiBot overflowBot() {
+        String overflowModel = admissionController.getOverflowModel();
+        return overflowModel != null && aiModelRegistry.getModelNames().contains(overflowModel)
+                ? aiModelRegistry.getBot(overflowModel)
+                : null;
+    }
+
+    private void startAiTurn(GameSession session, AiBot aiBot, AdmissionController.AiTurnSlot slot, String action) {
+        GameState gameState = session.getGameState();
+        broadcastGameStateWithAction(session, String.format(action, gameState.getDiceRolls()));
+        AiTurn aiTurn = new AiTurn(session, session.getGameId(), gameState, session.getMailbox(), aiBot, slot,
+                System.currentTimeMillis());
+        Future<?> speculation = speculativeAiWarmer.handOver(session.getGameId(), gameState.getDiceRolls());
+        submitAiStep(aiTurn, () -> {
+            awaitSpeculation(aiTurn, speculation);
+            aiRerollStep(aiTurn);
+        });
+    }
+
+    /**
+     * Waits for a model call already speculated on the AI's first roll, so the turn finds its
+     * answer in the decision cache instead of asking the model a second time.
+     */
+    private void awaitSpeculation(AiTurn aiTurn, Future<?> speculation) {
+        try {
+            speculation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            log.debug("Speculation failed for game: {}", aiTurn.gameId());
+        }
+    }
+
+    /**
+     * The AI decides on the AI turn executor and applies its decision through the game's mailbox.
+     * No player command can run in between, because the mailbox rejects them while the AI turn flag is set.
+     */
+    private record AiTurn(GameSession session, String gameId, GameState gameState, GameMailbox mailbox, AiBot aiBot,
+                          AdmissionController.AiTurnSlot slot, long startTime) {
+    }
+
+    private void submitAiStep(AiTurn aiTurn, Runnable step) {
+        try {
+            aiTurnExecutor.execute(() -> runAiStep(aiTurn, step));
+        } catch (RejectedExecutionException e) {
+            rejectAiTurn(aiTurn);
+        }
+    }
+
+    private void submitDelayedAiStep(AiTurn aiTurn, Runnable step) {
+        aiTurnExecutor.executeDelayed(() -> runAiStep(aiTurn, step), () -> rejectAiTurn(aiTurn));
+    }
+
+    private void runAiStep(AiTurn aiTurn, Runnable step) {
+        MDC.put(GameMailbox.MDC_GAME_ID, aiTurn.gameId());
+        try {
+            step.run();
+        } catch (Exception e) {
+            log.error("AI turn failed for game: {}, finishing it with the local fallback", aiTurn.gameId(), e);
+            aiTurn.mailbox().submit(() -> finishAiTurnLocally(aiTurn));
+        } finally {
+            MDC.remove(GameMailbox.MDC_GAME_ID);
+        }
+    }
+
+    private void rejectAiTurn(AiTurn aiTurn) {
+        log.warn("AI turn step rejected for game: {}, too many AI turns in flight, finishing it with the local fallback",
+                aiTurn.gameId());
+        aiTurn.mailbox().submit(() -> finishAiTurnLocally(aiTurn));
+    }
+
+    /**
+     * Plays the rest of an AI turn that can't go on as planned with the bot's local fallback, so the
+     * game never stays stuck in the AI's turn. Local decisions are instant, so it all runs in the mailbox.
+     */
+    private void finishAiTurnLocally(AiTurn aiTurn) {
+        if (!aiTurn.mailbox().isAiTurn()) {
+            return;
+        }
+        GameState gameState = aiTurn.gameState();
+        AiBot fallbackBot = aiTurn.aiBot().getFallbackBot();
+        List<BookingType> usedBookingTypes = gameState.getCurrentPlayer().getUsedBookingTypes();
         while (gameState.getRollCount() < 3) {
-            int[] diceToKeep = aiBot.askAiWhichDiceToKeep(
-                    gameState.getDiceRolls(),
-                    currentPlayer.getUsedBookingTypes(),
-                    gameState.getRollCount()
-            );
-
-            log.info("{} will reroll dice for game: {}, current dice: {}, keeping: {}", currentPlayer.getName(), gameId, gameState.getDiceRolls(), diceToKeep);
-            gameState.rerollDiceByVal(diceToKeep);
-
-            String aiAction = String.format("Jürgen kept dice: %s and re-rolled to %s - thinking again...",
-                    Arrays.toString(diceToKeep),
-                    gameState.getDiceRolls().stream().map(String::valueOf).collect(Collectors.joining(", ")));
-            broadcastGameStateWithAction(gameId, gameState, aiAction);
-
-            // Add delay for better UX
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            gameState.rerollDiceByVal(fallbackBot.askAiWhichDiceToKeep(gameState.getDiceRolls(), usedBookingTypes,
+                    gameState.getRollCount()));
+            gameMetrics.recordMove(modelName(aiTurn.session()), GameMetrics.Move.REROLL, true);
+            moveLog.reroll(gameState, gameState.getCurrentPlayer().getName());
         }
+        applyAiBook(aiTurn, fallbackBot.askAiBookingType(gameState.getDiceRolls(), usedBookingTypes));
+    }
+
+    private void aiRerollStep(AiTurn aiTurn) {
+        GameState gameState = aiTurn.gameState();
+        if (gameState.getRollCount() >= 3) {
+            aiBookStep(aiTurn);
+            return;
+        }
+
+        KniffelPlayer currentPlayer = gameState.getCurrentPlayer();
+        ReasoningStream reasoning = reasoningStream(aiTurn);
+        int[] diceToKeep = aiTurn.aiBot().askAiWhichDiceToKeep(
+                gameState.getDiceRolls(),
+                currentPlayer.getUsedBookingTypes(),
+                gameState.getRollCount(),
+                reasoning
+        );
+        reasoning.flush();
+
+        aiTurn.mailbox().submit(() -> applyAiReroll(aiTurn, diceToKeep));
+    }
+
+    private void applyAiReroll(AiTurn aiTurn, int[] diceToKeep) {
+        GameState gameState = aiTurn.gameState();
+        gameState.rerollDiceByVal(diceToKeep);
+        gameMetrics.recordMove(modelName(aiTurn.session()), GameMetrics.Move.REROLL, true);
+        moveLog.reroll(gameState, gameState.getCurrentPlayer().getName());
+
+        String aiAction = String.format("Jürgen kept dice: %s and re-rolled to %s - thinking again...",
+                Arrays.toString(diceToKeep),
+                PackedDice.toString(gameState.getPackedDice()));
+        broadcastGameStateWithAction(aiTurn.session(), aiAction);
 
-        // AI book
-        BookingType bookingType = aiBot.askAiBookingType(
+        // Add delay for better UX
+        submitDelayedAiStep(aiTurn, () -> aiRerollStep(aiTurn));
+    }
+
+    private void aiBookStep(AiTurn aiTurn) {
+        GameState gameState = aiTurn.gameState();
+        ReasoningStream reasoning = reasoningStream(aiTurn);
+        BookingType bookingType = aiTurn.aiBot().askAiBookingType(
                 gameState.getDiceRolls(),
-                currentPlayer.getUsedBookingTypes()
+                gameState.getCurrentPlayer().getUsedBookingTypes(),
+                reasoning
         );
+        reasoning.flush();
+
+        aiTurn.mailbox().submit(() -> applyAiBook(aiTurn, bookingType));
+    }
 
+    /**
+     * The reasoning frames go straight to the topic; they don't change the game, so they don't wait for its mailbox.
+     */
+    private ReasoningStream reasoningStream(AiTurn aiTurn) {
+        return new ReasoningStream(aiTurn.session().getDeltaTracker().getSeq(), payload -> send(aiTurn.gameId(), payload));
+    }
+
+    private void applyAiBook(AiTurn aiTurn, BookingType bookingType) {
+        GameState gameState = aiTurn.gameState();
+        KniffelPlayer currentPlayer = gameState.getCurrentPlayer();
         int previousScore = currentPlayer.getScore();
-        String finalDiceRoll = gameState.getDiceRolls().stream().map(String::valueOf).collect(Collectors.joining(", "));
+        int bookedDice = gameState.getPackedDice();
         gameState.bookDiceRoll(bookingType);
+        gameMetrics.recordMove(modelName(aiTurn.session()), GameMetrics.Move.BOOK, true);
         int newScore = currentPlayer.getScore();
         int scoreGained = newScore - previousScore;
+        aiTurn.mailbox().setAiTurn(false);
+        aiTurn.slot().release();
+        moveLog.book(gameState, currentPlayer.getName(), bookingType, bookedDice, scoreGained);
 
-        log.info("{} booked dice roll for game: {} with booking type: {} on dice: {}", currentPlayer.getName(), gameId, bookingType, finalDiceRoll);
-
-        long totalTime = System.currentTimeMillis() - time;
+        long totalTime = System.currentTimeMillis() - aiTurn.startTime();
+        aiTurnExecutor.recordTurn(modelName(aiTurn.session()), totalTime);
         String aiAction = String.format("Jürgen played for %s and booked %s for %d points with dice: [%s] - It's your turn now!",
                 formatElapsedTime(totalTime),
                 bookingType.toString().replace("_", " "),
                 scoreGained,
-                finalDiceRoll);
-        broadcastGameStateWithAction(gameId, gameState, aiAction);
+                PackedDice.toString(bookedDice));
+        broadcastGameStateWithAction(aiTurn.session(), aiAction);
+
+        if (!gameState.isGameOver()) {
+            speculativeAiWarmer.warm(aiTurn.session());
+        }
+    }
+
+    @EventListener
+    public void onGameEvicted(GameEvictedEvent event) {
+        GameSession session = event.session();
+        speculativeAiWarmer.cancel(session.getGameId());
+        String message = event.reason() == GameEvictedEvent.Reason.EXPIRED
+                ? "This game was closed because nobody played for too long."
+                : "This game was closed because the server is full.";
+        session.getMailbox().submit(() -> {
+            GameSnapshot stored = gameStateStore.load(session.getGameId());
+            if (stored != null && stored.seq() > session.getDeltaTracker().getSeq()) {
+                // another replica picked the game up and played on, this copy is just stale
+                log.info("Dropped stale copy of game {}, it moved to another replica", session.getGameId());
+                gameEventLog.appendEnd(session.getGameId());
+                return;
+            }
+            GameDelta delta = session.getDeltaTracker().next(session.getGameState(), message);
+            delta.setClosed(true);
+            send(session.getGameId(), write(session, delta));
+            gameStateStore.remove(session.getGameId());
+            gameEventLog.appendEnd(session.getGameId());
+        });
+    }
+
+    /**
+     * Writes every live game to a new event log segment, then drops the older segments. Each
+     * snapshot is taken in its game's mailbox, so it is never torn by a move.
+     */
+    @Scheduled(fixedDelayString = "${diceyvicy.event-log.snapshot-interval:5m}",
+            initialDelayString = "${diceyvicy.event-log.snapshot-interval:5m}")
+    public void checkpointEventLog() {
+        if (!gameEventLog.isEnabled()) {
+            return;
+        }
+        long checkpoint;
+        try {
+            checkpoint = gameEventLog.startCheckpoint();
+        } catch (IOException e) {
+            log.error("Could not start an event log checkpoint: {}", e.getMessage());
+            return;
+        }
+        List<GameSession> sessions = gameRegistry.getSessions();
+        AtomicInteger pending = new AtomicInteger(sessions.size() + 1);
+        Runnable done = () -> {
+            if (pending.decrementAndGet() == 0) {
+                gameEventLog.deleteSegmentsBefore(checkpoint);
+                log.debug("Event log checkpoint of {} games done", sessions.size());
+            }
+        };
+        for (GameSession session : sessions) {
+            session.getMailbox().submit(() -> {
+                try {
+                    // a game that ended or was evicted meanwhile has already been logged as ended
+                    if (gameRegistry.isRegistered(session) && !session.getGameState().isGameOver()) {
+                        gameEventLog.appendSnapshot(GameSnapshot.of(session));
+                    }
+                } finally {
+                    done.run();
+                }
+            });
+        }
+        done.run();
     }
 
-    private void broadcastGameState(String gameId, GameState gameState) {
-        broadcastGameStateWithAction(gameId, gameState, null);
+    /**
+     * Sends a full snapshot, for clients that connected late or missed a delta.
+     */
+    public void handleSync(String gameId) {
+        GameSession session = findSession(gameId);
+        if (session == null) {
+            log.error("Game not found: {}", gameId);
+            return;
+        }
+
+        session.getMailbox().submit(() -> {
+            GameController.GameResponse response = GameController.GameResponse.fromGameState(session.getGameState());
+            response.setSeq(session.getDeltaTracker().getSeq());
+            long start = System.nanoTime();
+            byte[] payload = GameMessageWriter.write(response);
+            gameMetrics.recordSerialization(modelName(session), true, System.nanoTime() - start);
+            send(gameId, payload);
+        });
     }
 
-    private void broadcastGameStateWithAction(String gameId, GameState gameState, String aiAction) {
+    private void broadcastGameState(GameSession session) {
+        broadcastGameStateWithAction(session, null);
+    }
+
+    private void broadcastGameStateWithAction(GameSession session, String aiAction) {
+        String gameId = session.getGameId();
+        GameState gameState = session.getGameState();
         log.debug("Broadcasting game state for game: {}, action: {}", gameId, aiAction);
-        GameController.GameResponse response = GameController.GameResponse.fromGameState(gameState);
-        response.setAiAction(aiAction);
-        messagingTemplate.convertAndSend("/topic/game/" + gameId, response);
+        GameDelta delta = session.getDeltaTracker().next(gameState, aiAction);
+        send(gameId, write(session, delta));
+        gameEventLog.appendMove(gameState, delta);
         
         // Clean up if game is over
         if (gameState.isGameOver()) {
             cleanupGame(gameId);
+        } else if (gameStateStore.isEnabled() && !gameStateStore.save(GameSnapshot.of(session))) {
+            // the next command picks the game up from the store again
+            log.info("Dropped stale copy of game {}, another replica played on", gameId);
+            dropStaleCopy(session);
         }
     }
     
+    private byte[] write(GameSession session, GameDelta delta) {
+        long start = System.nanoTime();
+        byte[] payload = GameMessageWriter.write(delta);
+        gameMetrics.recordSerialization(modelName(session), false, System.nanoTime() - start);
+        return payload;
+    }
+
+    private static String modelName(GameSession session) {
+        return session.getAiBot().getModelName();
+    }
+
+    /**
+     * Tells the session whose move the admission controller dropped, and no other, to slow down. The
+     * game didn't change, so this goes out right away instead of through the mailbox.
+     */
+    public void handleThrottledMove(String sessionId, Duration retryAfter) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, THROTTLED_DESTINATION,
+                GameMessageWriter.writeThrottled(retryAfter.toMillis(), "Slow down, that move was not made. Try again in a moment."),
+                accessor.getMessageHeaders());
+    }
+
+    /**
+     * Hands the encoded JSON to the broker as is, it is not converted again for any subscriber.
+     * It goes out as octet-stream, because that is what makes plain WebSocket sessions send it as
+     * a binary frame, as is, rather than decode it to a String for a text frame and encode it again.
+     * SockJS sessions get it as text, see {@link SockJsTextFrames}.
+     */
+    private void send(String gameId, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send("/topic/game/" + gameId, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
     private void cleanupGame(String gameId) {
-        gameStates.remove(gameId);
-        gameBots.remove(gameId);
+        gameRegistry.remove(gameId);
+        gameStateStore.remove(gameId);
+        gameEventLog.appendEnd(gameId);
+        speculativeAiWarmer.cancel(gameId);
         log.info("Cleaned up game: {}", gameId);
     }
 }
\ No newline at end of file
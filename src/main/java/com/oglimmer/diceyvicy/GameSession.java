@@ -0,0 +1,33 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+
+/**
+ * Everything the server keeps for one running game.
+ */
+@Getter
+public class GameSession {
+
+    private final GameState gameState;
+    private final AiBot aiBot;
+    private final GameMailbox mailbox;
+    private final GameDeltaTracker deltaTracker;
+
+    public GameSession(GameState gameState, AiBot aiBot, GameMailbox mailbox) {
+        this(gameState, aiBot, mailbox, 0);
+    }
+
+    /**
+     * @param seq the sequence number of the last delta sent, when the game continues from a snapshot
+     */
+    public GameSession(GameState gameState, AiBot aiBot, GameMailbox mailbox, long seq) {
+        this.gameState = gameState;
+        this.aiBot = aiBot;
+        this.mailbox = mailbox;
+        this.deltaTracker = new GameDeltaTracker(gameState, seq);
+    }
+
+    public String getGameId() {
+        return gameState.getGameId();
+    }
+}
@@ -0,0 +1,90 @@
+package com.oglimmer.diceyvicy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Everything another replica needs to pick a game up: the game's compact state from
+ * {@link GameState}, the AI model and the sequence number of the last delta sent. Encoded it
+ * takes well under 100 bytes.
+ */
+public record GameSnapshot(String gameId, String aiModel, long seq, String[] playerNames, int packedDice,
+                           int rollCount, int currentPlayerIndex, int[] usedMasks, int[] scores) {
+
+    private static final int VERSION = 1;
+
+    /**
+     * Only called from the game's mailbox, so the state can't change while it is copied.
+     */
+    public static GameSnapshot of(GameSession session) {
+        GameState gameState = session.getGameState();
+        int players = gameState.getPlayerCount();
+        String[] playerNames = new String[players];
+        int[] usedMasks = new int[players];
+        int[] scores = new int[players];
+        for (int i = 0; i < players; i++) {
+            playerNames[i] = gameState.getPlayerName(i);
+            usedMasks[i] = gameState.getUsedMask(i);
+            scores[i] = gameState.getScore(i);
+        }
+        return new GameSnapshot(gameState.getGameId(), session.getAiBot().getModelName(), session.getDeltaTracker().getSeq(),
+                playerNames, gameState.getPackedDice(), gameState.getRollCount(), gameState.getCurrentPlayerIndex(), usedMasks, scores);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(gameId);
+            out.writeUTF(aiModel == null ? "" : aiModel);
+            out.writeLong(seq);
+            out.writeInt(packedDice);
+            out.writeByte(rollCount);
+            out.writeByte(currentPlayerIndex);
+            out.writeByte(playerNames.length);
+            for (int i = 0; i < playerNames.length; i++) {
+                out.writeUTF(playerNames[i]);
+                out.writeShort(usedMasks[i]);
+                out.writeShort(scores[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a snapshot of this version
+     */
+    public static GameSnapshot fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported game snapshot version " + version);
+            }
+            String gameId = in.readUTF();
+            String aiModel = in.readUTF();
+            long seq = in.readLong();
+            int packedDice = in.readInt();
+            int rollCount = in.readUnsignedByte();
+            int currentPlayerIndex = in.readUnsignedByte();
+            int players = in.readUnsignedByte();
+            String[] playerNames = new String[players];
+            int[] usedMasks = new int[players];
+            int[] scores = new int[players];
+            for (int i = 0; i < players; i++) {
+                playerNames[i] = in.readUTF();
+                usedMasks[i] = in.readUnsignedShort();
+                scores[i] = in.readUnsignedShort();
+            }
+            return new GameSnapshot(gameId, aiModel.isEmpty() ? null : aiModel, seq, playerNames, packedDice,
+                    rollCount, currentPlayerIndex, usedMasks, scores);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Not a game snapshot", e);
+        }
+    }
+}
@@ -3,22 +3,54 @@ package com.oglimmer.diceyvicy;
 import com.oglimmer.kniffel.model.BookingType;
 import com.oglimmer.kniffel.model.KniffelGame;
 import com.oglimmer.kniffel.model.KniffelPlayer;
+import lombok.AccessLevel;
 import lombok.Data;
-import lombok.extern.slf4j.Slf4j;
+import lombok.Getter;
+import lombok.Setter;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.IntStream;
 
+/**
+ * One game between the player and Jürgen-AI.
+ * <p>
+ * {@link KniffelGame} keeps dice and scorecards as boxed lists. After every move they are copied
+ * into primitives (packed dice, a used-booking-type mask and score per player), so the reads on
+ * every move (roll count, booking checks, game over, broadcasts) neither scan lists nor allocate.
+ */
 @Data
-@Slf4j
 public class GameState {
 
+    private static final int ALL_BOOKED = (1 << BookingType.values().length) - 1;
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+
     private String gameId;
+    // only set together with the primitives, see initializeGame and restore
+    @Setter(AccessLevel.NONE)
     private KniffelGame game;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private KniffelPlayer[] playerOrder;
+    @Setter(AccessLevel.NONE)
+    private int packedDice;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int rollCount;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int currentPlayerIndex;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] usedMasks;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] scores;
+
     public GameState() {
         this.gameId = UUID.randomUUID().toString();
     }
@@ -27,6 +59,86 @@ public class GameState {
         KniffelPlayer player = new KniffelPlayer(playerName);
         KniffelPlayer ai = new KniffelPlayer("Jürgen-AI");
         this.game = new KniffelGame(List.of(player, ai));
+        this.playerOrder = new KniffelPlayer[]{player, ai};
+        this.usedMasks = new int[2];
+        this.scores = new int[2];
+        refresh();
+    }
+
+    /**
+     * Rebuilds a game from a snapshot, e.g. one another replica wrote to the {@link GameStateStore}.
+     * <p>
+     * {@link KniffelGame} has no way to be set to a state, so the game is started with the current
+     * player first (the turn order stays the same), its roll round advanced by rerolls that keep all
+     * five dice, and the dice, scores and used booking types written to the fields behind their
+     * getters. The order in which booking types were used is not kept.
+     *
+     * @throws IllegalStateException if the rules library did not take the snapshot's state
+     */
+    public static GameState restore(GameSnapshot snapshot) {
+        int playerCount = snapshot.playerNames().length;
+        KniffelPlayer[] players = new KniffelPlayer[playerCount];
+        List<KniffelPlayer> turnOrder = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new KniffelPlayer(snapshot.playerNames()[i]);
+            setField(players[i], "usedBookingTypes", bookingTypes(snapshot.usedMasks()[i]));
+            setField(players[i], "score", snapshot.scores()[i]);
+        }
+        for (int i = 0; i < playerCount; i++) {
+            turnOrder.add(players[(snapshot.currentPlayerIndex() + i) % playerCount]);
+        }
+
+        GameState gameState = new GameState();
+        gameState.gameId = snapshot.gameId();
+        gameState.game = new KniffelGame(turnOrder);
+        setField(gameState.game, "diceRolls", PackedDice.toList(snapshot.packedDice()));
+        int[] allDice = filterByPositions(snapshot.packedDice(), new int[]{1, 2, 3, 4, 5});
+        for (int round = gameState.game.getRollRound(); round < snapshot.rollCount(); round++) {
+            gameState.game.reRollDice(allDice);
+        }
+        gameState.playerOrder = players;
+        gameState.usedMasks = new int[playerCount];
+        gameState.scores = new int[playerCount];
+        gameState.refresh();
+
+        if (gameState.packedDice != snapshot.packedDice() || gameState.rollCount != snapshot.rollCount()
+                || gameState.currentPlayerIndex != snapshot.currentPlayerIndex()
+                || !Arrays.equals(gameState.usedMasks, snapshot.usedMasks()) || !Arrays.equals(gameState.scores, snapshot.scores())) {
+            throw new IllegalStateException("The rules library did not take the snapshot of game " + snapshot.gameId());
+        }
+        return gameState;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Cannot restore " + name + " of " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Copies the library's state into the primitive fields; called after every move.
+     */
+    private void refresh() {
+        packedDice = PackedDice.pack(game.getDiceRolls());
+        rollCount = game.getRollRound();
+        KniffelPlayer current = game.getCurrentPlayer();
+        for (int i = 0; i < playerOrder.length; i++) {
+            KniffelPlayer player = playerOrder[i];
+            if (player == current) {
+                currentPlayerIndex = i;
+            }
+            List<BookingType> used = player.getUsedBookingTypes();
+            int mask = 0;
+            for (int j = 0; j < used.size(); j++) {
+                mask |= 1 << used.get(j).ordinal();
+            }
+            usedMasks[i] = mask;
+            scores[i] = player.getScore();
+        }
     }
 
     public List<Integer> getDiceRolls() {
@@ -38,28 +150,65 @@ public class GameState {
     }
 
     public int getRollCount() {
-        return game.getRollRound();
+        return rollCount;
     }
 
     public void rerollDiceByPos(int[] dicePositionToKeep) {
-        int[] diceValueToKeep = filterByPositions(game.getDiceRolls(), dicePositionToKeep);
-        log.info("Player {} rerolled dice, dice to keep: {}, current dice: {}", getCurrentPlayer().getName(), diceValueToKeep, game.getDiceRolls());
-        game.reRollDice(diceValueToKeep);
-        log.info("Player {} after rerolled dice, {}", getCurrentPlayer().getName(), game.getDiceRolls());
+        rerollDiceByVal(filterByPositions(packedDice, dicePositionToKeep));
     }
 
     public void rerollDiceByVal(int[] diceValueToKeep) {
-        log.info("Player {} rerolled dice, dice to keep: {}, current dice: {}", getCurrentPlayer().getName(), diceValueToKeep, game.getDiceRolls());
         game.reRollDice(diceValueToKeep);
-        log.info("Player {} after rerolled dice, {}", getCurrentPlayer().getName(), game.getDiceRolls());
+        refresh();
     }
 
     public void bookDiceRoll(BookingType bookingType) {
         game.bookDiceRoll(bookingType);
+        refresh();
+    }
+
+    /**
+     * @return whether the current player has used the booking type
+     */
+    public boolean isBooked(BookingType bookingType) {
+        return (usedMasks[currentPlayerIndex] & 1 << bookingType.ordinal()) != 0;
     }
 
     public boolean isGameOver() {
-        return getCurrentPlayer().getUsedBookingTypes().size() == BookingType.values().length;
+        return usedMasks[currentPlayerIndex] == ALL_BOOKED;
+    }
+
+    public int getPlayerCount() {
+        return playerOrder.length;
+    }
+
+    public String getPlayerName(int playerIndex) {
+        return playerOrder[playerIndex].getName();
+    }
+
+    public int getUsedMask(int playerIndex) {
+        return usedMasks[playerIndex];
+    }
+
+    public int getScore(int playerIndex) {
+        return scores[playerIndex];
+    }
+
+    public int getCurrentPlayerIndex() {
+        return currentPlayerIndex;
+    }
+
+    /**
+     * @return the booking types of the mask in enum order
+     */
+    public static List<BookingType> bookingTypes(int usedMask) {
+        List<BookingType> bookingTypes = new ArrayList<>(Integer.bitCount(usedMask));
+        for (BookingType bookingType : BOOKING_TYPES) {
+            if ((usedMask & 1 << bookingType.ordinal()) != 0) {
+                bookingTypes.add(bookingType);
+            }
+        }
+        return bookingTypes;
     }
 
     public Map<String, KniffelPlayer> getPlayers() {
@@ -70,12 +219,30 @@ public class GameState {
         if (source == null || positions == null) {
             return new int[0];
         }
-        return IntStream.of(positions)
-                .mapToObj(pos -> pos > 0 && pos <= source.size()
-                        ? source.get(pos - 1)
-                        : null)
-                .filter(Objects::nonNull)
-                .mapToInt(Integer::intValue)
-                .toArray();
+        int[] values = new int[positions.length];
+        int count = 0;
+        for (int pos : positions) {
+            if (pos > 0 && pos <= source.size()) {
+                values[count++] = source.get(pos - 1);
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * @param positions 1-based positions of the dice to keep; positions outside 1..5 are ignored
+     */
+    public static int[] filterByPositions(int packedDice, int[] positions) {
+        if (positions == null) {
+            return new int[0];
+        }
+        int[] values = new int[positions.length];
+        int count = 0;
+        for (int pos : positions) {
+            if (pos > 0 && pos <= PackedDice.DICE) {
+                values[count++] = PackedDice.die(packedDice, pos - 1);
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.oglimmer.diceyvicy;
+
+/**
+ * Keeps a snapshot of every running game outside the {@link GameRegistry} of one replica. A game
+ * whose replica went away (rolling deploy, scale-in) is picked up from here by the replica its
+ * player's next command lands on.
+ * <p>
+ * Which store is used is set by {@code diceyvicy.store.type}: {@code memory} (the default, for a
+ * single replica, keeps nothing) or {@code redis}, shared by all replicas.
+ */
+public interface GameStateStore {
+
+    /**
+     * @return false if the store keeps nothing, so there is no need to take snapshots for it
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called after every broadcast, from the game's mailbox. A snapshot older than the stored one
+     * is not written.
+     *
+     * @return false if the store has a newer snapshot, i.e. another replica picked the game up and played on
+     */
+    boolean save(GameSnapshot snapshot);
+
+    /**
+     * @return the last snapshot of the game, or null if the store doesn't know the game
+     */
+    GameSnapshot load(String gameId);
+
+    void remove(String gameId);
+}
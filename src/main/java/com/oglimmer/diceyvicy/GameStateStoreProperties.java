@@ -0,0 +1,33 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.store")
+public class GameStateStoreProperties {
+
+    public enum Type {
+        MEMORY, REDIS
+    }
+
+    /**
+     * MEMORY keeps no snapshots, a single replica needs none; REDIS shares them between replicas
+     * (connection set by {@code spring.data.redis.*}).
+     */
+    private Type type = Type.MEMORY;
+
+    /**
+     * Snapshots of games without any move for this long are dropped by the shared store.
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /**
+     * Prefix of the keys in the shared store.
+     */
+    private String keyPrefix = "diceyvicy:game:";
+}
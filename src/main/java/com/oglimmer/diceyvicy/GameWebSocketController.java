@@ -10,23 +10,53 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
+import java.util.Map;
+
 @Controller
 @AllArgsConstructor
 @Slf4j
 public class GameWebSocketController {
 
     private final GameService gameService;
+    private final AdmissionController admissionController;
 
     @MessageMapping("/game/{gameId}/reroll")
-    public void rerollDice(@DestinationVariable String gameId, @Payload RerollRequest request) {
-        gameService.handlePlayerReroll(gameId, request.getDiceToKeep());
+    public void rerollDice(@DestinationVariable String gameId, @Payload RerollRequest request, SimpMessageHeaderAccessor headers) {
+        if (admitMove(gameId, headers)) {
+            gameService.handlePlayerReroll(gameId, request.getDiceToKeep());
+        }
     }
 
     @MessageMapping("/game/{gameId}/book")
-    public void bookDiceRoll(@DestinationVariable String gameId, @Payload BookRequest request) {
-        gameService.handlePlayerBook(gameId, request.getBookingType());
+    public void bookDiceRoll(@DestinationVariable String gameId, @Payload BookRequest request, SimpMessageHeaderAccessor headers) {
+        if (admitMove(gameId, headers)) {
+            gameService.handlePlayerBook(gameId, request.getBookingType());
+        }
+    }
+
+    /**
+     * A move over the client's limit is dropped and the client told so; the game didn't change, so it can
+     * simply try again.
+     */
+    private boolean admitMove(String gameId, SimpMessageHeaderAccessor headers) {
+        Map<String, Object> attributes = headers.getSessionAttributes();
+        String clientAddress = attributes == null ? null : (String) attributes.get(AdmissionController.CLIENT_ADDRESS);
+        if (admissionController.admitMove(headers.getSessionId(), clientAddress)) {
+            return true;
+        }
+        log.debug("Dropped move for game: {} from session {}, too many moves", gameId, headers.getSessionId());
+        if (admissionController.notifyDroppedMove(headers.getSessionId())) {
+            gameService.handleThrottledMove(headers.getSessionId(), admissionController.moveRetryAfter());
+        }
+        return false;
+    }
+
+    @MessageMapping("/game/{gameId}/sync")
+    public void syncGameState(@DestinationVariable String gameId) {
+        gameService.handleSync(gameId);
     }
 
     @Getter
@@ -0,0 +1,32 @@
+package com.oglimmer.diceyvicy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The default store, for a single replica. Its {@link GameRegistry} holds the only copy of a game
+ * there is, so nothing is kept and no snapshots are taken for it.
+ */
+@Component
+@ConditionalOnProperty(name = "diceyvicy.store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryGameStateStore implements GameStateStore {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean save(GameSnapshot snapshot) {
+        return true;
+    }
+
+    @Override
+    public GameSnapshot load(String gameId) {
+        return null;
+    }
+
+    @Override
+    public void remove(String gameId) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.oglimmer.diceyvicy;
+
+/**
+ * Finds the first JSON object in text that arrives in pieces. Text before the object is dropped
+ * and nothing after it is kept, so a streamed answer only ever holds the object itself.
+ */
+class JsonObjectScanner {
+
+    private final StringBuilder object = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean closed;
+
+    /**
+     * @return the object once the piece closes it, otherwise null
+     */
+    String append(String piece) {
+        if (closed) {
+            return null;
+        }
+        for (int i = 0; i < piece.length(); i++) {
+            char c = piece.charAt(i);
+            if (depth == 0 && c != '{') {
+                continue;
+            }
+            object.append(c);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                closed = true;
+                return object.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return what was received of an object that never closed, or null if none started
+     */
+    String unclosed() {
+        return closed || object.isEmpty() ? null : object.toString();
+    }
+}
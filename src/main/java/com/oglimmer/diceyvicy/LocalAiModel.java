@@ -0,0 +1,16 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+
+import java.util.List;
+
+/**
+ * A model that decides in-process. Unlike an {@link AiModel} it is not prompted: {@link AiBot}
+ * calls the typed methods directly, so no prompt is built and no JSON is parsed.
+ */
+public interface LocalAiModel {
+
+    int[] chooseDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round);
+
+    BookingType chooseBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes);
+}
@@ -0,0 +1,88 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs the moves of games to the {@code com.oglimmer.diceyvicy.moves} logger, as structured
+ * key-value pairs besides the message.
+ * <p>
+ * Only a sample of the games is logged at INFO, chosen by the hash of the game id so every
+ * replica agrees on it. The moves of all other games are logged at DEBUG, which is off unless
+ * the logger is set to DEBUG or the game is switched to debug with {@link GameDebugEndpoint}.
+ * A suppressed move costs a level check and builds nothing.
+ */
+@Slf4j(topic = "com.oglimmer.diceyvicy.moves")
+@Component
+public class MoveLog {
+
+    private static final int SAMPLE_BUCKETS = 10_000;
+
+    private final int sampledBuckets;
+
+    public MoveLog(GameLoggingProperties properties) {
+        this.sampledBuckets = (int) Math.round(properties.getMoveSampleRate() * SAMPLE_BUCKETS);
+    }
+
+    public boolean isSampled(String gameId) {
+        return Math.floorMod(gameId.hashCode(), SAMPLE_BUCKETS) < sampledBuckets;
+    }
+
+    /**
+     * @return the level to log the moves of the game at, or null if they are not logged
+     */
+    private Level level(String gameId) {
+        if (isSampled(gameId)) {
+            return log.isInfoEnabled() ? Level.INFO : null;
+        }
+        return log.isDebugEnabled() ? Level.DEBUG : null;
+    }
+
+    /**
+     * Called after the reroll, from the game's mailbox.
+     */
+    public void reroll(GameState gameState, String player) {
+        Level level = level(gameState.getGameId());
+        if (level == null) {
+            return;
+        }
+        String dice = PackedDice.toString(gameState.getPackedDice());
+        log.atLevel(level)
+                .addKeyValue("move", "reroll")
+                .addKeyValue("player", player)
+                .addKeyValue("rollCount", gameState.getRollCount())
+                .addKeyValue("dice", dice)
+                .setMessage("{} rerolled to [{}], roll {}")
+                .addArgument(player)
+                .addArgument(dice)
+                .addArgument(gameState.getRollCount())
+                .log();
+    }
+
+    /**
+     * Called after the booking, from the game's mailbox.
+     *
+     * @param packedDice the dice that were booked, the game has rolled new ones already
+     */
+    public void book(GameState gameState, String player, BookingType bookingType, int packedDice, int scoreGained) {
+        Level level = level(gameState.getGameId());
+        if (level == null) {
+            return;
+        }
+        String dice = PackedDice.toString(packedDice);
+        log.atLevel(level)
+                .addKeyValue("move", "book")
+                .addKeyValue("player", player)
+                .addKeyValue("bookingType", bookingType)
+                .addKeyValue("dice", dice)
+                .addKeyValue("score", scoreGained)
+                .setMessage("{} booked {} on [{}] for {} points")
+                .addArgument(player)
+                .addArgument(bookingType)
+                .addArgument(dice)
+                .addArgument(scoreGained)
+                .log();
+    }
+}
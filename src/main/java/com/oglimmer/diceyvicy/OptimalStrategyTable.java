@@ -0,0 +1,261 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Solitaire-optimal decisions for every used-booking-type mask, roll round and dice multiset.
+ * <p>
+ * The table is computed by backward induction over the 8192 masks: the expected final score
+ * of a mask is derived from the masks with one more booking type used. For every mask it keeps
+ * the best multiset to keep after the first and second roll and the best booking type after
+ * the third, so a decision is a single array lookup.
+ * <p>
+ * There is no upper-section bonus in the state because the rules library scores none: a
+ * player's score is the sum of its bookings.
+ */
+@Slf4j
+public final class OptimalStrategyTable {
+
+    private static final BookingType[] BOOKING_TYPES = BookingType.values();
+    private static final int MASK_COUNT = 1 << BOOKING_TYPES.length;
+    private static final int FILE_MAGIC = 0x4B4E4650;
+    private static final int FILE_VERSION = 1;
+
+    private final double[] expectedScore;
+    private final short[] keepAfterFirstRoll;
+    private final short[] keepAfterSecondRoll;
+    private final byte[] booking;
+
+    private OptimalStrategyTable(double[] expectedScore, short[] keepAfterFirstRoll, short[] keepAfterSecondRoll, byte[] booking) {
+        this.expectedScore = expectedScore;
+        this.keepAfterFirstRoll = keepAfterFirstRoll;
+        this.keepAfterSecondRoll = keepAfterSecondRoll;
+        this.booking = booking;
+    }
+
+    /**
+     * The process-wide table. Loaded from {@code SOLVER_TABLE_FILE} when that file exists,
+     * otherwise computed once and written there if the variable is set.
+     */
+    public static OptimalStrategyTable shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final OptimalStrategyTable INSTANCE = loadOrCompute(
+                System.getProperty("SOLVER_TABLE_FILE", System.getenv("SOLVER_TABLE_FILE")));
+    }
+
+    static OptimalStrategyTable loadOrCompute(String file) {
+        if (file != null && !file.isBlank()) {
+            Path path = Path.of(file);
+            if (Files.exists(path)) {
+                try {
+                    return load(path);
+                } catch (IOException e) {
+                    log.error("Could not load solver table from {}, recomputing: {}", path, e.getMessage());
+                }
+            }
+            OptimalStrategyTable table = compute();
+            try {
+                table.save(path);
+            } catch (IOException e) {
+                log.error("Could not write solver table to {}: {}", path, e.getMessage());
+            }
+            return table;
+        }
+        return compute();
+    }
+
+    public static OptimalStrategyTable compute() {
+        long time = System.currentTimeMillis();
+        int entries = MASK_COUNT * DiceMultisets.ROLL_COUNT;
+        OptimalStrategyTable table = new OptimalStrategyTable(new double[MASK_COUNT],
+                new short[entries], new short[entries], new byte[entries]);
+
+        int[][] scores = new int[BOOKING_TYPES.length][DiceMultisets.ROLL_COUNT];
+        for (int type = 0; type < BOOKING_TYPES.length; type++) {
+            for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+                scores[type][roll] = DiceScores.score(BOOKING_TYPES[type], DiceMultisets.counts(DiceMultisets.roll(roll)));
+            }
+        }
+
+        // a mask only depends on masks with more bits set, so each popcount level can run in parallel
+        for (int used = BOOKING_TYPES.length - 1; used >= 0; used--) {
+            int bits = used;
+            IntStream.range(0, MASK_COUNT)
+                    .filter(mask -> Integer.bitCount(mask) == bits)
+                    .parallel()
+                    .forEach(mask -> table.solve(mask, scores));
+        }
+
+        log.info("Computed solver table in {}, expected score {}",
+                GameService.formatElapsedTime(System.currentTimeMillis() - time), String.format("%.2f", table.expectedScore[0]));
+        return table;
+    }
+
+    private void solve(int mask, int[][] scores) {
+        int base = mask * DiceMultisets.ROLL_COUNT;
+
+        // after the third roll: book the type with the best score plus future value
+        double[] values = new double[DiceMultisets.COUNT];
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            double best = Double.NEGATIVE_INFINITY;
+            int bestType = -1;
+            for (int type = 0; type < BOOKING_TYPES.length; type++) {
+                if ((mask & (1 << type)) == 0) {
+                    double value = scores[type][roll] + expectedScore[mask | (1 << type)];
+                    if (value > best) {
+                        best = value;
+                        bestType = type;
+                    }
+                }
+            }
+            values[DiceMultisets.roll(roll)] = best;
+            booking[base + roll] = (byte) bestType;
+        }
+
+        values = bestKeeps(values, keepAfterSecondRoll, base);
+        values = bestKeeps(values, keepAfterFirstRoll, base);
+
+        double expected = 0;
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            expected += DiceMultisets.rollProbability(roll) * values[DiceMultisets.roll(roll)];
+        }
+        expectedScore[mask] = expected;
+    }
+
+    /**
+     * Turns the values of full rolls into the values of every keep (by averaging over the next
+     * die), then picks the best keep for every roll one reroll earlier.
+     */
+    private static double[] bestKeeps(double[] rollValues, short[] decisions, int base) {
+        for (int keep = DiceMultisets.COUNT - 1; keep >= 0; keep--) {
+            if (DiceMultisets.size(keep) < 5) {
+                double sum = 0;
+                for (int face = 1; face <= 6; face++) {
+                    sum += rollValues[DiceMultisets.withFace(keep, face)];
+                }
+                rollValues[keep] = sum / 6;
+            }
+        }
+
+        double[] previous = new double[DiceMultisets.COUNT];
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            double best = Double.NEGATIVE_INFINITY;
+            int bestKeep = -1;
+            for (int keep : DiceMultisets.subsets(roll)) {
+                if (rollValues[keep] > best) {
+                    best = rollValues[keep];
+                    bestKeep = keep;
+                }
+            }
+            previous[DiceMultisets.roll(roll)] = best;
+            decisions[base + roll] = (short) bestKeep;
+        }
+        return previous;
+    }
+
+    public static int usedMask(Collection<BookingType> usedBookingTypes) {
+        int mask = 0;
+        for (BookingType bookingType : usedBookingTypes) {
+            mask |= 1 << bookingType.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * @param round the roll round the dice come from, 1 or 2
+     * @return the dice values to keep, or an empty array if the dice are not a valid roll
+     */
+    public int[] diceToKeep(List<Integer> diceRolls, int usedMask, int round) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= MASK_COUNT - 1) {
+            return new int[0];
+        }
+        short[] decisions = round <= 1 ? keepAfterFirstRoll : keepAfterSecondRoll;
+        return DiceMultisets.values(decisions[usedMask * DiceMultisets.ROLL_COUNT + roll]).clone();
+    }
+
+    /**
+     * @return the booking type to book the dice on, or null if the dice are not a valid roll or nothing is left to book
+     */
+    public BookingType bookingType(List<Integer> diceRolls, int usedMask) {
+        int roll = rollOrdinal(diceRolls);
+        if (roll < 0 || usedMask < 0 || usedMask >= MASK_COUNT - 1) {
+            return null;
+        }
+        return BOOKING_TYPES[booking[usedMask * DiceMultisets.ROLL_COUNT + roll]];
+    }
+
+    /**
+     * @return the expected score still to be made with optimal play from the given mask
+     */
+    public double expectedScore(int usedMask) {
+        return expectedScore[usedMask];
+    }
+
+    private static int rollOrdinal(List<Integer> diceRolls) {
+        if (diceRolls == null || diceRolls.size() != 5) {
+            return -1;
+        }
+        int index = DiceMultisets.indexOf(diceRolls);
+        return index < 0 ? -1 : DiceMultisets.rollOrdinal(index);
+    }
+
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(MASK_COUNT);
+            out.writeInt(DiceMultisets.ROLL_COUNT);
+            for (double value : expectedScore) {
+                out.writeDouble(value);
+            }
+            for (short keep : keepAfterFirstRoll) {
+                out.writeShort(keep);
+            }
+            for (short keep : keepAfterSecondRoll) {
+                out.writeShort(keep);
+            }
+            out.write(booking);
+        }
+        log.info("Saved solver table to {}", path);
+    }
+
+    public static OptimalStrategyTable load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || in.readInt() != MASK_COUNT || in.readInt() != DiceMultisets.ROLL_COUNT) {
+                throw new IOException("Not a solver table of version " + FILE_VERSION);
+            }
+            int entries = MASK_COUNT * DiceMultisets.ROLL_COUNT;
+            double[] expectedScore = new double[MASK_COUNT];
+            short[] keepAfterFirstRoll = new short[entries];
+            short[] keepAfterSecondRoll = new short[entries];
+            byte[] booking = new byte[entries];
+            for (int i = 0; i < MASK_COUNT; i++) {
+                expectedScore[i] = in.readDouble();
+            }
+            for (int i = 0; i < entries; i++) {
+                keepAfterFirstRoll[i] = in.readShort();
+            }
+            for (int i = 0; i < entries; i++) {
+                keepAfterSecondRoll[i] = in.readShort();
+            }
+            in.readFully(booking);
+            log.info("Loaded solver table from {}", path);
+            return new OptimalStrategyTable(expectedScore, keepAfterFirstRoll, keepAfterSecondRoll, booking);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Per session outbound buffer in front of the socket, so a slow client holds up neither the
+ * outbound channel's threads nor other sessions. Frames are queued and written by one virtual
+ * thread per session. While they wait, game updates that a newer one supersedes are dropped: a
+ * snapshot replaces everything queued for its game, and a delta or snapshot the AI's reasoning
+ * about the state before it. A buffer over {@code send-buffer-size-limit} keeps only the newest
+ * update per game; the client notices the gap in the sequence and resyncs. A client that still
+ * doesn't catch up, or whose socket takes longer than {@code send-time-limit} for one frame, is
+ * disconnected.
+ */
+@Slf4j
+class OutboundFrameBuffer implements WebSocketHandlerDecoratorFactory {
+
+    private static final String GAME_TOPIC = "/topic/game/";
+    // headers of a MESSAGE frame fit in far less, the rest is never looked at
+    private static final int HEADER_SCAN_LIMIT = 512;
+
+    enum Kind {
+        SNAPSHOT, DELTA, REASONING, OTHER
+    }
+
+    /**
+     * A frame waiting to be written; {@code destination} is only set for game updates.
+     */
+    record Frame(WebSocketMessage<?> message, String destination, Kind kind, int size) {
+
+        static Frame of(WebSocketMessage<?> message) {
+            String head;
+            if (message instanceof TextMessage text) {
+                String payload = text.getPayload();
+                head = payload.substring(0, Math.min(payload.length(), HEADER_SCAN_LIMIT));
+            } else if (message instanceof BinaryMessage binary) {
+                ByteBuffer payload = binary.getPayload().duplicate();
+                byte[] bytes = new byte[Math.min(payload.remaining(), HEADER_SCAN_LIMIT)];
+                payload.get(bytes);
+                head = new String(bytes, StandardCharsets.ISO_8859_1);
+            } else {
+                head = "";
+            }
+            String destination = destination(head);
+            int bodyStart = head.indexOf("\n\n");
+            if (destination == null || bodyStart < 0) {
+                return new Frame(message, null, Kind.OTHER, message.getPayloadLength());
+            }
+            // the writers put the type first, snapshots have none; a type not known here supersedes nothing
+            String body = head.substring(bodyStart + 2);
+            Kind kind = body.startsWith("{\"type\":\"reasoning\"") ? Kind.REASONING
+                    : body.startsWith("{\"type\":\"delta\"") ? Kind.DELTA
+                    : body.startsWith("{\"type\":") ? Kind.OTHER
+                    : Kind.SNAPSHOT;
+            return new Frame(message, destination, kind, message.getPayloadLength());
+        }
+
+        private static String destination(String head) {
+            if (!head.startsWith("MESSAGE\n")) {
+                return null;
+            }
+            int start = head.indexOf("\ndestination:" + GAME_TOPIC);
+            if (start < 0) {
+                return null;
+            }
+            start += "\ndestination:".length();
+            int end = head.indexOf('\n', start);
+            return end < 0 ? null : head.substring(start, end);
+        }
+
+        boolean isUpdate() {
+            return kind == Kind.SNAPSHOT || kind == Kind.DELTA;
+        }
+    }
+
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitNanos;
+    private final Executor writers;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final Counter coalescedCounter;
+    private final Counter terminatedCounter;
+
+    OutboundFrameBuffer(WebSocketTransportProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-send-", 0).factory()));
+    }
+
+    OutboundFrameBuffer(WebSocketTransportProperties properties, MeterRegistry meterRegistry, Executor writers) {
+        this.bufferSizeLimit = (int) properties.getSendBufferSizeLimit().toBytes();
+        this.sendTimeLimitNanos = properties.getSendTimeLimit().toNanos();
+        this.writers = writers;
+        Gauge.builder("diceyvicy.websocket.outbound.buffered", bufferedBytes, AtomicLong::get)
+                .description("Bytes waiting in the sessions' outbound buffers")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("diceyvicy.websocket.outbound.coalesced")
+                .description("Queued frames dropped because a newer game update superseded them")
+                .register(meterRegistry);
+        this.terminatedCounter = Counter.builder("diceyvicy.websocket.outbound.terminated")
+                .description("Sessions closed because the client did not keep up")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(new BufferedSession(session));
+            }
+        };
+    }
+
+    class BufferedSession extends WebSocketSessionDecorator {
+
+        // guarded by this
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        private int queuedBytes;
+        private boolean writing;
+        private long writeStart;
+        private CloseStatus closeAfterWriting;
+        private boolean terminated;
+
+        BufferedSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            Frame frame = Frame.of(message);
+            String reason;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                reason = enqueue(frame);
+                if (reason == null && !writing) {
+                    writing = true;
+                    writers.execute(this::write);
+                }
+            }
+            if (reason != null) {
+                terminate(reason);
+            }
+        }
+
+        /**
+         * @return why the session can't be kept, null if the frame was queued
+         */
+        private String enqueue(Frame frame) {
+            if (writing && writeStart != 0 && System.nanoTime() - writeStart > sendTimeLimitNanos) {
+                return "a frame took longer than " + sendTimeLimitNanos / 1_000_000 + "ms to send";
+            }
+            if (frame.isUpdate()) {
+                drop(queued -> frame.destination().equals(queued.destination())
+                        && (frame.kind() == Kind.SNAPSHOT || queued.kind() == Kind.REASONING));
+            }
+            queue.addLast(frame);
+            add(frame.size());
+            if (queuedBytes > bufferSizeLimit) {
+                keepNewestUpdates();
+                if (queuedBytes > bufferSizeLimit) {
+                    return queuedBytes + " bytes queued";
+                }
+            }
+            return null;
+        }
+
+        private void keepNewestUpdates() {
+            Set<String> newest = new HashSet<>();
+            Set<Frame> keep = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Iterator<Frame> it = queue.descendingIterator(); it.hasNext(); ) {
+                Frame queued = it.next();
+                if (queued.isUpdate() && newest.add(queued.destination())) {
+                    keep.add(queued);
+                }
+            }
+            drop(queued -> queued.destination() != null && !keep.contains(queued));
+        }
+
+        private void drop(Predicate<Frame> superseded) {
+            for (Iterator<Frame> it = queue.iterator(); it.hasNext(); ) {
+                Frame queued = it.next();
+                if (superseded.test(queued)) {
+                    it.remove();
+                    add(-queued.size());
+                    coalescedCounter.increment();
+                }
+            }
+        }
+
+        private void add(int bytes) {
+            queuedBytes += bytes;
+            bufferedBytes.addAndGet(bytes);
+        }
+
+        private void write() {
+            while (true) {
+                Frame frame;
+                CloseStatus close;
+                synchronized (this) {
+                    frame = terminated ? null : queue.pollFirst();
+                    if (frame != null) {
+                        add(-frame.size());
+                        writeStart = System.nanoTime();
+                    } else {
+                        writing = false;
+                        writeStart = 0;
+                    }
+                    close = frame == null && !terminated ? closeAfterWriting : null;
+                }
+                if (frame == null) {
+                    if (close != null) {
+                        closeQuietly(close);
+                    }
+                    return;
+                }
+                try {
+                    getDelegate().sendMessage(frame.message());
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Failed to send to session {}: {}", getId(), e.toString());
+                    synchronized (this) {
+                        discard();
+                        terminated = true;
+                        writing = false;
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void terminate(String reason) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                discard();
+            }
+            terminatedCounter.increment();
+            log.warn("Closing session {}, the client doesn't keep up: {}", getId(), reason);
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+
+        private void discard() {
+            add(-queuedBytes);
+            queue.clear();
+        }
+
+        private void closeQuietly(CloseStatus status) {
+            try {
+                getDelegate().close(status);
+            } catch (IOException e) {
+                log.debug("Failed to close session {}: {}", getId(), e.toString());
+            }
+        }
+
+        /**
+         * Waits for the queued frames, e.g. an ERROR frame sent right before.
+         */
+        @Override
+        public void close(CloseStatus status) throws IOException {
+            synchronized (this) {
+                if (writing) {
+                    closeAfterWriting = status;
+                    return;
+                }
+            }
+            super.close(status);
+        }
+
+        @Override
+        public void close() throws IOException {
+            close(CloseStatus.NORMAL);
+        }
+    }
+}
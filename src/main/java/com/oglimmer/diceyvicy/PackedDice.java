@@ -0,0 +1,61 @@
+package com.oglimmer.diceyvicy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Five dice in one int, three bits per die with the first die in the lowest bits. Two rolls are
+ * equal exactly when their packed ints are, so comparing them needs neither lists nor boxing.
+ */
+public final class PackedDice {
+
+    public static final int DICE = 5;
+    private static final int BITS = 3;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private PackedDice() {
+    }
+
+    /**
+     * @return the packed dice, or 0 if there are not exactly five
+     */
+    public static int pack(List<Integer> dice) {
+        if (dice == null || dice.size() != DICE) {
+            return 0;
+        }
+        int packed = 0;
+        for (int i = DICE - 1; i >= 0; i--) {
+            packed = packed << BITS | dice.get(i);
+        }
+        return packed;
+    }
+
+    /**
+     * @param index 0-based position of the die
+     */
+    public static int die(int packed, int index) {
+        return packed >>> (index * BITS) & MASK;
+    }
+
+    public static List<Integer> toList(int packed) {
+        List<Integer> dice = new ArrayList<>(DICE);
+        for (int i = 0; i < DICE; i++) {
+            dice.add(die(packed, i));
+        }
+        return dice;
+    }
+
+    /**
+     * @return the dice as "1, 2, 3, 4, 5"
+     */
+    public static String toString(int packed) {
+        StringBuilder sb = new StringBuilder(3 * DICE);
+        for (int i = 0; i < DICE; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(die(packed, i));
+        }
+        return sb.toString();
+    }
+}
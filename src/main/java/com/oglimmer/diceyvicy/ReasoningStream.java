@@ -0,0 +1,43 @@
+package com.oglimmer.diceyvicy;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects the reasoning the model streams for one AI decision and sends it on as small frames
+ * (see {@link GameMessageWriter#writeReasoning}), a line or a few words at a time rather than a
+ * frame per token.
+ */
+class ReasoningStream implements Consumer<String> {
+
+    private static final int FRAME_CHARS = 64;
+
+    private final long seq;
+    private final Consumer<byte[]> sender;
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * @param seq the sequence number of the state the AI decides on
+     */
+    ReasoningStream(long seq, Consumer<byte[]> sender) {
+        this.seq = seq;
+        this.sender = sender;
+    }
+
+    @Override
+    public synchronized void accept(String text) {
+        pending.append(text);
+        if (pending.length() >= FRAME_CHARS || text.indexOf('\n') >= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends what is left, once the decision is made.
+     */
+    public synchronized void flush() {
+        if (!pending.isEmpty()) {
+            sender.accept(GameMessageWriter.writeReasoning(seq, pending.toString()));
+            pending.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Appends every answer of a model to a corpus for {@link AiModelReplay}, one conversation per
+ * line in the chat fine-tuning format, so a recording can also be used to fine-tune a model.
+ */
+@Slf4j
+public class RecordingAiModel implements AiModel {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AiModel delegate;
+    private final Path corpus;
+
+    public RecordingAiModel(AiModel delegate, Path corpus) {
+        this.delegate = delegate;
+        this.corpus = corpus;
+    }
+
+    @Override
+    public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        String answer = delegate.askModel(systemPrompt, userPrompt, verify);
+        record(systemPrompt, userPrompt, answer);
+        return answer;
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        return delegate.askModelAsync(systemPrompt, userPrompt, verify)
+                .thenApply(answer -> record(systemPrompt, userPrompt, answer));
+    }
+
+    @Override
+    public CompletableFuture<String> askModelStreaming(String systemPrompt, String userPrompt, Function<Object, Boolean> verify,
+                                                       Consumer<String> reasoning) {
+        return delegate.askModelStreaming(systemPrompt, userPrompt, verify, reasoning)
+                .thenApply(answer -> record(systemPrompt, userPrompt, answer));
+    }
+
+    private String record(String systemPrompt, String userPrompt, String answer) {
+        if (answer == null) {
+            return null;
+        }
+        ObjectNode line = MAPPER.createObjectNode();
+        ArrayNode messages = line.putArray("messages");
+        messages.addObject().put("role", "system").put("content", systemPrompt);
+        messages.addObject().put("role", "user").put("content", userPrompt);
+        messages.addObject().put("role", "assistant").put("content", answer);
+        synchronized (this) {
+            try (Writer writer = Files.newBufferedWriter(corpus, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(MAPPER.writeValueAsString(line));
+                writer.write('\n');
+            } catch (IOException e) {
+                log.error("Could not record an answer to {}: {}", corpus, e.getMessage());
+            }
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,89 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Keeps the snapshots in Redis, one hash per game (the snapshot and its sequence number) that
+ * expires when the game has been idle for the store's TTL. A snapshot is only written if it is not
+ * older than the stored one, checked and written in one script, so a replica with a stale copy
+ * can't overwrite the game another replica played on. A failing Redis costs the failover, not the
+ * game: errors are logged and the game goes on from the replica's memory.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "diceyvicy.store.type", havingValue = "redis")
+public class RedisGameStateStore implements GameStateStore {
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final RedisScript<Long> SAVE_IF_NEWER = RedisScript.of("""
+            local stored = redis.call('HGET', KEYS[1], 'seq')
+            if stored and tonumber(stored) > tonumber(ARGV[2]) then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'snapshot', ARGV[1], 'seq', ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1""", Long.class);
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final GameStateStoreProperties properties;
+
+    public RedisGameStateStore(RedisConnectionFactory connectionFactory, GameStateStoreProperties properties) {
+        this.properties = properties;
+        this.redis = new RedisTemplate<>();
+        redis.setConnectionFactory(connectionFactory);
+        redis.setKeySerializer(RedisSerializer.string());
+        redis.setValueSerializer(RedisSerializer.byteArray());
+        redis.setHashKeySerializer(RedisSerializer.string());
+        redis.setHashValueSerializer(RedisSerializer.byteArray());
+        redis.afterPropertiesSet();
+    }
+
+    @Override
+    public boolean save(GameSnapshot snapshot) {
+        try {
+            Long saved = redis.execute(SAVE_IF_NEWER, List.of(key(snapshot.gameId())), snapshot.toBytes(),
+                    ascii(snapshot.seq()), ascii(properties.getTtl().toMillis()));
+            return saved == null || saved == 1;
+        } catch (RuntimeException e) {
+            log.warn("Could not store snapshot of game {}: {}", snapshot.gameId(), e.getMessage());
+            return true;
+        }
+    }
+
+    @Override
+    public GameSnapshot load(String gameId) {
+        try {
+            byte[] bytes = redis.<String, byte[]>opsForHash().get(key(gameId), SNAPSHOT);
+            return bytes == null ? null : GameSnapshot.fromBytes(bytes);
+        } catch (RuntimeException e) {
+            log.warn("Could not load snapshot of game {}: {}", gameId, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String gameId) {
+        try {
+            redis.delete(key(gameId));
+        } catch (RuntimeException e) {
+            log.warn("Could not remove snapshot of game {}: {}", gameId, e.getMessage());
+        }
+    }
+
+    private static byte[] ascii(long number) {
+        return Long.toString(number).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private String key(String gameId) {
+        return properties.getKeyPrefix() + gameId;
+    }
+}
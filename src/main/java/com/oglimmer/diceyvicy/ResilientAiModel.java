@@ -0,0 +1,180 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Wraps a remote {@link AiModel} so a slow or failing upstream can't hold up a game: every answer
+ * has a deadline, a second identical request is sent when the first is slower than usual, and a
+ * {@link CircuitBreaker} fails calls immediately while the model keeps failing. Callers fall back
+ * to a local decision when a call fails. Cancelling an answer cancels its requests.
+ */
+@Slf4j
+public class ResilientAiModel implements AiModel {
+
+    /**
+     * Timer of answered calls, tagged with {@code model}.
+     */
+    static final String LATENCY_METER = "diceyvicy.ai.model.latency";
+
+    private final AiModel delegate;
+    private final String modelName;
+    private final AiModelProperties properties;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer latency;
+    private final Counter hedges;
+    private final Counter timeouts;
+    private final Counter rejected;
+
+    public ResilientAiModel(AiModel delegate, String modelName, AiModelProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.properties = properties;
+        this.circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+        this.latency = Timer.builder(LATENCY_METER)
+                .description("Latency of answered model calls")
+                .tag("model", modelName)
+                .publishPercentiles(0.5, properties.getHedgePercentile())
+                .register(meterRegistry);
+        this.hedges = Counter.builder("diceyvicy.ai.model.hedged").tag("model", modelName).register(meterRegistry);
+        this.timeouts = Counter.builder("diceyvicy.ai.model.timeouts").tag("model", modelName).register(meterRegistry);
+        this.rejected = Counter.builder("diceyvicy.ai.model.rejected")
+                .description("Calls not made because the circuit breaker was open")
+                .tag("model", modelName)
+                .register(meterRegistry);
+        meterRegistry.gauge("diceyvicy.ai.model.circuit.open", List.of(Tag.of("model", modelName)),
+                circuitBreaker, cb -> cb.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    public AiModel getDelegate() {
+        return delegate;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        try {
+            return askModelAsync(systemPrompt, userPrompt, verify).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+        return askModelStreaming(systemPrompt, userPrompt, verify, null);
+    }
+
+    /**
+     * Only the first request streams reasoning, a hedged request is asked without. Without
+     * {@code diceyvicy.ai-model.stream-reasoning} nothing is streamed.
+     */
+    @Override
+    public CompletableFuture<String> askModelStreaming(String systemPrompt, String userPrompt, Function<Object, Boolean> verify,
+                                                       Consumer<String> reasoning) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new AiModelUnavailableException(modelName + " is unavailable, circuit breaker open"));
+        }
+        boolean trial = circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN;
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        attempt(systemPrompt, userPrompt, verify, properties.isStreamReasoning() ? reasoning : null, result, attempts, outstanding);
+
+        long hedgeDelay = hedgeDelayMillis();
+        if (hedgeDelay > 0) {
+            CompletableFuture.runAsync(() -> {
+                if (!result.isDone()) {
+                    hedges.increment();
+                    outstanding.incrementAndGet();
+                    attempt(systemPrompt, userPrompt, verify, null, result, attempts, outstanding);
+                }
+            }, CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS));
+        }
+
+        CompletableFuture<String> answered = result.orTimeout(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((answer, error) -> {
+                    // the losing or timed out requests are not needed anymore
+                    attempts.forEach(attempt -> attempt.cancel(true));
+                    if (error == null) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        if (error instanceof TimeoutException) {
+                            timeouts.increment();
+                        }
+                        circuitBreaker.onFailure();
+                        log.error("Call to {} failed: {}", modelName, error.toString());
+                    }
+                });
+        // a cancelled answer skips the callback above, it is no failure of the model, but a trial call
+        // has to be given back or the breaker never closes again
+        answered.whenComplete((answer, error) -> {
+            if (error instanceof CancellationException) {
+                result.cancel(true);
+                attempts.forEach(attempt -> attempt.cancel(true));
+                if (trial) {
+                    circuitBreaker.onCancelled();
+                }
+            }
+        });
+        return answered;
+    }
+
+    private void attempt(String systemPrompt, String userPrompt, Function<Object, Boolean> verify, Consumer<String> reasoning,
+                         CompletableFuture<String> result, List<CompletableFuture<String>> attempts, AtomicInteger outstanding) {
+        long start = System.nanoTime();
+        CompletableFuture<String> attempt = reasoning == null
+                ? delegate.askModelAsync(systemPrompt, userPrompt, verify)
+                : delegate.askModelStreaming(systemPrompt, userPrompt, verify, reasoning);
+        attempts.add(attempt);
+        attempt.whenComplete((answer, error) -> {
+            if (error == null) {
+                latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                result.complete(answer);
+            } else if (outstanding.decrementAndGet() == 0) {
+                // the last request standing failed
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * @return the configured latency percentile of recent calls, or 0 to not hedge
+     */
+    private long hedgeDelayMillis() {
+        if (!properties.isHedgeEnabled()) {
+            return 0;
+        }
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        if (snapshot.count() < properties.getHedgeMinSamples()) {
+            return 0;
+        }
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == properties.getHedgePercentile()) {
+                return (long) percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,165 @@
+package com.oglimmer.diceyvicy;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.oglimmer.kniffel.model.BookingType;
+import com.oglimmer.kniffel.model.KniffelGame;
+import com.oglimmer.kniffel.model.KniffelPlayer;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Plays solitaire games without Spring or WebSockets, through the same reroll and book flow an
+ * AI turn takes in {@link GameService}: reroll until the third roll, then book. Games run in
+ * parallel on all cores.
+ * <p>
+ * Usage: {@code ./mvnw -q compile exec:java -Dexec.mainClass=com.oglimmer.diceyvicy.SimulationRunner -Dexec.args="100000 solver fast greedy random aibot"}
+ */
+public final class SimulationRunner {
+
+    private static final int MAX_SCORE = 512;
+
+    private static final Map<String, Supplier<SimulationStrategy>> STRATEGIES = Map.of(
+            "solver", () -> SimulationStrategy.solver(OptimalStrategyTable.shared()),
+            "fast", () -> SimulationStrategy.fast(ExpectedValueEngine.shared()),
+            "greedy", SimulationStrategy::greedy,
+            "random", SimulationStrategy::random,
+            "aibot", () -> SimulationStrategy.aiBot(AiBot.builder().aiModel(stubModel()).build()));
+
+    private SimulationRunner() {
+    }
+
+    public static void main(String[] args) {
+        // AiBot logs every answer, which would dominate the run
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<String> strategies = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : List.of("solver", "greedy", "random");
+        for (String name : strategies) {
+            Supplier<SimulationStrategy> strategy = STRATEGIES.get(name);
+            if (strategy == null) {
+                System.err.println("Unknown strategy " + name + ", expected one of " + STRATEGIES.keySet());
+                continue;
+            }
+            System.out.println(name + ": " + run(strategy.get(), games));
+        }
+    }
+
+    public static SimulationResult run(SimulationStrategy strategy, int games) {
+        long start = System.nanoTime();
+        SimulationResult result = IntStream.range(0, games)
+                .parallel()
+                .map(game -> play(strategy))
+                .collect(SimulationResult::new, SimulationResult::add, SimulationResult::combine);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * @return the final score of one solitaire game
+     */
+    public static int play(SimulationStrategy strategy) {
+        KniffelPlayer player = new KniffelPlayer("Simulation");
+        KniffelGame game = new KniffelGame(List.of(player));
+        List<BookingType> usedBookingTypes = player.getUsedBookingTypes();
+
+        for (int turn = 0; turn < BookingType.values().length; turn++) {
+            while (game.getRollRound() < 3) {
+                game.reRollDice(strategy.diceToKeep(game.getDiceRolls(), usedBookingTypes, game.getRollRound()));
+            }
+            BookingType bookingType = strategy.bookingType(game.getDiceRolls(), usedBookingTypes);
+            if (bookingType == null || usedBookingTypes.contains(bookingType)) {
+                bookingType = Arrays.stream(BookingType.values()).filter(bt -> !usedBookingTypes.contains(bt)).findFirst().orElseThrow();
+            }
+            game.bookDiceRoll(bookingType);
+        }
+        return player.getScore();
+    }
+
+    /**
+     * A model that answers instantly, so a simulation measures {@link AiBot} itself: keeps no dice
+     * and books the first open type.
+     */
+    static AiModel stubModel() {
+        return (systemPrompt, userPrompt, verify) -> {
+            if (verify == null) {
+                return "{\"diceToKeep\": [], \"reasoning\": \"simulation\"}";
+            }
+            BookingType bookingType = Arrays.stream(BookingType.values()).filter(verify::apply).findFirst().orElseThrow();
+            return "{\"bookingType\": \"" + bookingType.name() + "\", \"reasoning\": \"simulation\"}";
+        };
+    }
+
+    /**
+     * Score distribution of a run. Filled per thread and combined at the end.
+     */
+    public static final class SimulationResult {
+
+        private final long[] histogram = new long[MAX_SCORE];
+        private long games;
+        private long sum;
+        private long sumOfSquares;
+        private long elapsedNanos;
+
+        private void add(int score) {
+            histogram[Math.min(Math.max(score, 0), MAX_SCORE - 1)]++;
+            games++;
+            sum += score;
+            sumOfSquares += (long) score * score;
+        }
+
+        private void combine(SimulationResult other) {
+            for (int score = 0; score < MAX_SCORE; score++) {
+                histogram[score] += other.histogram[score];
+            }
+            games += other.games;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double getMean() {
+            return games == 0 ? 0 : (double) sum / games;
+        }
+
+        public double getStandardDeviation() {
+            double mean = getMean();
+            return games == 0 ? 0 : Math.sqrt(Math.max(0, (double) sumOfSquares / games - mean * mean));
+        }
+
+        /**
+         * @param percentile between 0 and 1
+         */
+        public int getPercentile(double percentile) {
+            long rank = (long) Math.ceil(percentile * games);
+            long seen = 0;
+            for (int score = 0; score < MAX_SCORE; score++) {
+                seen += histogram[score];
+                if (seen >= rank && seen > 0) {
+                    return score;
+                }
+            }
+            return 0;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games in %s (%.0f games/s), mean %.1f, stddev %.1f, min %d, p5 %d, p50 %d, p95 %d, max %d",
+                    games, GameService.formatElapsedTime(elapsedNanos / 1_000_000), getGamesPerSecond(), getMean(),
+                    getStandardDeviation(), getPercentile(0), getPercentile(0.05), getPercentile(0.5), getPercentile(0.95),
+                    getPercentile(1));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How a simulated player moves. Implementations are called from many threads at once and must not
+ * keep per-game state.
+ */
+public interface SimulationStrategy {
+
+    /**
+     * @param round the roll round the dice come from, 1 or 2
+     * @return the dice values to keep
+     */
+    int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round);
+
+    BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes);
+
+    /**
+     * Plays through {@link AiBot}, so prompts are built and answers parsed exactly as in a game.
+     */
+    static SimulationStrategy aiBot(AiBot aiBot) {
+        return new SimulationStrategy() {
+            @Override
+            public int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                return aiBot.askAiWhichDiceToKeep(diceRolls, usedBookingTypes, round);
+            }
+
+            @Override
+            public BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                return aiBot.askAiBookingType(diceRolls, usedBookingTypes);
+            }
+        };
+    }
+
+    /**
+     * Keeps every die with even odds and books a random open type.
+     */
+    static SimulationStrategy random() {
+        return new SimulationStrategy() {
+            @Override
+            public int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                return diceRolls.stream().filter(die -> random.nextBoolean()).mapToInt(Integer::intValue).toArray();
+            }
+
+            @Override
+            public BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                List<BookingType> open = openTypes(usedBookingTypes);
+                return open.get(ThreadLocalRandom.current().nextInt(open.size()));
+            }
+        };
+    }
+
+    /**
+     * Keeps the most frequent face (the higher one on a tie) and books the open type that scores most right now.
+     */
+    static SimulationStrategy greedy() {
+        return new SimulationStrategy() {
+            @Override
+            public int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                int[] counts = counts(diceRolls);
+                int best = 6;
+                for (int face = 5; face >= 1; face--) {
+                    if (counts[face] > counts[best]) {
+                        best = face;
+                    }
+                }
+                int[] keep = new int[counts[best]];
+                Arrays.fill(keep, best);
+                return keep;
+            }
+
+            @Override
+            public BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                int[] counts = counts(diceRolls);
+                return openTypes(usedBookingTypes).stream()
+                        .max(Comparator.comparingInt(bookingType -> DiceScores.score(bookingType, counts)))
+                        .orElseThrow();
+            }
+        };
+    }
+
+    /**
+     * Plays the solitaire-optimal moves of the given table.
+     */
+    static SimulationStrategy solver(OptimalStrategyTable table) {
+        AiModelLocalSolver solver = new AiModelLocalSolver(table);
+        return new SimulationStrategy() {
+            @Override
+            public int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                return solver.chooseDiceToKeep(diceRolls, usedBookingTypes, round);
+            }
+
+            @Override
+            public BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                return solver.chooseBookingType(diceRolls, usedBookingTypes);
+            }
+        };
+    }
+
+    /**
+     * Plays the best expected value of the current turn, like the {@code Fast} AI.
+     */
+    static SimulationStrategy fast(ExpectedValueEngine engine) {
+        AiModelFast fast = new AiModelFast(engine);
+        return new SimulationStrategy() {
+            @Override
+            public int[] diceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                return fast.chooseDiceToKeep(diceRolls, usedBookingTypes, round);
+            }
+
+            @Override
+            public BookingType bookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                return fast.chooseBookingType(diceRolls, usedBookingTypes);
+            }
+        };
+    }
+
+    private static List<BookingType> openTypes(List<BookingType> usedBookingTypes) {
+        List<BookingType> open = new ArrayList<>(Arrays.asList(BookingType.values()));
+        open.removeAll(usedBookingTypes);
+        return open;
+    }
+
+    private static int[] counts(List<Integer> diceRolls) {
+        int[] counts = new int[7];
+        for (int die : diceRolls) {
+            counts[die]++;
+        }
+        return counts;
+    }
+}
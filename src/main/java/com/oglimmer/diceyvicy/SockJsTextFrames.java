@@ -0,0 +1,51 @@
+package com.oglimmer.diceyvicy;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+
+/**
+ * Sends binary STOMP frames to SockJS sessions as text frames, since SockJS has no binary frames.
+ * Spring means to do that itself but checks the session after wrapping it, so the check never
+ * matches and SockJS sessions would reject every {@code application/octet-stream} broadcast.
+ */
+class SockJsTextFrames implements WebSocketHandlerDecoratorFactory {
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                boolean sockJs = WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession;
+                super.afterConnectionEstablished(sockJs ? new TextOnlySession(session) : session);
+            }
+        };
+    }
+
+    static class TextOnlySession extends WebSocketSessionDecorator {
+
+        TextOnlySession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof BinaryMessage binary) {
+                // the frames carry JSON, which is UTF-8 already
+                byte[] bytes = new byte[binary.getPayloadLength()];
+                binary.getPayload().duplicate().get(bytes);
+                super.sendMessage(new TextMessage(bytes));
+            } else {
+                super.sendMessage(message);
+            }
+        }
+    }
+}
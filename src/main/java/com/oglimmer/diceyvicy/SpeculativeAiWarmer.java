@@ -0,0 +1,164 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import com.oglimmer.kniffel.model.KniffelPlayer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+/**
+ * Warms the {@link AiDecisionCache} while the player is deciding. The AI's used booking types
+ * can't change during the player's turn, so the keep decisions for its most likely first
+ * rolls can be asked for in advance.
+ * <p>
+ * Even the most likely roll comes up in only 1.5% of turns, so a roll is warmed only when its
+ * probability times the model's mean latency reaches {@code min-expected-saving}. When the
+ * player hands over, the speculation for the roll the AI actually got is awaited and all others
+ * are cancelled, which cancels their model calls. Speculative calls are not counted in the
+ * AI's decision metrics.
+ */
+@Slf4j
+@Component
+public class SpeculativeAiWarmer {
+
+    // full rolls, most likely first
+    private static final int[] ROLLS_BY_PROBABILITY = IntStream.range(0, DiceMultisets.ROLL_COUNT).boxed()
+            .sorted(Comparator.comparingDouble(DiceMultisets::rollProbability).reversed())
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+    private final AiSpeculationProperties properties;
+    private final AiDecisionCache decisionCache;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore permits;
+    private final Map<String, Map<Integer, CompletableFuture<Void>>> speculations = new ConcurrentHashMap<>();
+    private final Counter startedCounter;
+    private final Counter usedCounter;
+    private final Counter cancelledCounter;
+    private final Counter failedCounter;
+
+    public SpeculativeAiWarmer(AiSpeculationProperties properties, AiDecisionCache decisionCache, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.decisionCache = decisionCache;
+        this.meterRegistry = meterRegistry;
+        this.permits = new Semaphore(properties.getMaxConcurrent());
+        this.startedCounter = Counter.builder("diceyvicy.ai.speculation.started")
+                .description("Speculative model calls started")
+                .register(meterRegistry);
+        this.usedCounter = Counter.builder("diceyvicy.ai.speculation.used")
+                .description("AI turns whose first roll had been speculated on")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("diceyvicy.ai.speculation.cancelled")
+                .description("Speculative model calls cancelled because the AI rolled something else")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("diceyvicy.ai.speculation.failed")
+                .description("Speculative model calls that failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts speculating for the AI of the game; called when the player's turn begins.
+     */
+    public void warm(GameSession session) {
+        AiBot aiBot = session.getAiBot();
+        if (!properties.isEnabled() || !decisionCache.isEnabled() || aiBot.isLocal()) {
+            return;
+        }
+        KniffelPlayer ai = session.getGameState().getPlayers().get("Jürgen-AI");
+        if (ai == null) {
+            return;
+        }
+        List<BookingType> usedBookingTypes = List.copyOf(ai.getUsedBookingTypes());
+        String gameId = session.getGameId();
+        double meanLatencyMillis = meanLatencyMillis(aiBot.getModelName());
+
+        Map<Integer, CompletableFuture<Void>> futures = new ConcurrentHashMap<>();
+        Map<Integer, CompletableFuture<Void>> previous = speculations.put(gameId, futures);
+        if (previous != null) {
+            cancelAll(previous);
+        }
+
+        for (int i = 0; i < Math.min(properties.getMaxRolls(), ROLLS_BY_PROBABILITY.length); i++) {
+            double expectedSavingMillis = DiceMultisets.rollProbability(ROLLS_BY_PROBABILITY[i]) * meanLatencyMillis;
+            if (expectedSavingMillis < properties.getMinExpectedSaving().toMillis()) {
+                // the rolls are sorted by probability, the remaining ones are worth even less
+                break;
+            }
+            int roll = DiceMultisets.roll(ROLLS_BY_PROBABILITY[i]);
+            List<Integer> dice = Arrays.stream(DiceMultisets.values(roll)).boxed().toList();
+            if (decisionCache.getDiceToKeep(aiBot.getModelName(), dice, usedBookingTypes, 1) != null) {
+                continue;
+            }
+            if (!permits.tryAcquire()) {
+                log.debug("No permit left to speculate for game: {}", gameId);
+                break;
+            }
+            startedCounter.increment();
+            CompletableFuture<Void> future;
+            try {
+                future = aiBot.warmDiceToKeep(dice, usedBookingTypes, 1);
+            } catch (RuntimeException e) {
+                permits.release();
+                failedCounter.increment();
+                log.debug("Speculation failed for game: {}", gameId, e);
+                continue;
+            }
+            future.whenComplete((ignored, error) -> {
+                permits.release();
+                if (error != null && !(error instanceof CancellationException)) {
+                    failedCounter.increment();
+                    log.debug("Speculation failed for game: {}", gameId, error);
+                }
+            });
+            futures.put(roll, future);
+        }
+    }
+
+    /**
+     * @return the mean latency of the model's answered calls, 0 while it has none
+     */
+    private double meanLatencyMillis(String modelName) {
+        Timer latency = meterRegistry.find(ResilientAiModel.LATENCY_METER).tag("model", modelName).timer();
+        return latency == null || latency.count() == 0 ? 0 : latency.mean(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels every speculation of the game except the one for the roll the AI got.
+     *
+     * @return completes when that speculation is done, or right away if there was none
+     */
+    public Future<?> handOver(String gameId, List<Integer> diceRolls) {
+        Map<Integer, CompletableFuture<Void>> futures = speculations.remove(gameId);
+        if (futures == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Future<?> match = futures.remove(DiceMultisets.indexOf(diceRolls));
+        cancelAll(futures);
+        if (match == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        usedCounter.increment();
+        return match;
+    }
+
+    public void cancel(String gameId) {
+        Map<Integer, CompletableFuture<Void>> futures = speculations.remove(gameId);
+        if (futures != null) {
+            cancelAll(futures);
+        }
+    }
+
+    private void cancelAll(Map<Integer, CompletableFuture<Void>> futures) {
+        for (CompletableFuture<Void> future : futures.values()) {
+            if (future.cancel(true)) {
+                cancelledCounter.increment();
+            }
+        }
+    }
+}
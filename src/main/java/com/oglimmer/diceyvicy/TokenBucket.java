@@ -0,0 +1,31 @@
+package com.oglimmer.diceyvicy;
+
+/**
+ * Allows {@code burst} operations at once and {@code rate} per second on average.
+ */
+class TokenBucket {
+
+    private final double nanosPerToken;
+    private final double burst;
+
+    // guarded by this
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double rate, int burst, long nowNanos) {
+        this.nanosPerToken = 1_000_000_000d / rate;
+        this.burst = Math.max(burst, 1);
+        this.tokens = this.burst;
+        this.refilledAt = nowNanos;
+    }
+
+    synchronized boolean tryTake(long nowNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - refilledAt) / nanosPerToken);
+        refilledAt = nowNanos;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
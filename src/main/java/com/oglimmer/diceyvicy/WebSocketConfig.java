@@ -1,23 +1,80 @@
 package com.oglimmer.diceyvicy;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final BrokerRelayProperties brokerRelay;
+    private final WebSocketTransportProperties transport;
+    private final TaskScheduler messageBrokerTaskScheduler;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketConfig(BrokerRelayProperties brokerRelay, WebSocketTransportProperties transport,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler,
+                           MeterRegistry meterRegistry) {
+        this.brokerRelay = brokerRelay;
+        this.transport = transport;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (brokerRelay.isEnabled()) {
+            // a game's broadcasts may come from any replica once it was picked up from the game store
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(brokerRelay.getHost())
+                    .setRelayPort(brokerRelay.getPort())
+                    .setClientLogin(brokerRelay.getLogin())
+                    .setClientPasscode(brokerRelay.getPasscode())
+                    .setSystemLogin(brokerRelay.getSystemLogin())
+                    .setSystemPasscode(brokerRelay.getSystemPasscode());
+            if (brokerRelay.getVirtualHost() != null && !brokerRelay.getVirtualHost().isBlank()) {
+                relay.setVirtualHost(brokerRelay.getVirtualHost());
+            }
+        } else {
+            long heartbeat = transport.getHeartbeat().toMillis();
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[]{heartbeat, heartbeat})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         config.setApplicationDestinationPrefixes("/app");
+        // game deltas are numbered, a client must get them in the order they were sent
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/game-websocket").setAllowedOriginPatterns("*").withSockJS();
+        // plain WebSocket, preferred by the client: no SockJS framing, binary frames, and permessage-deflate
+        // when the browser asks for it, which the servlet container negotiates on its own
+        registry.addEndpoint("/game-ws").setAllowedOriginPatterns("*").addInterceptors(new ClientAddressInterceptor());
+        // for clients whose network doesn't let a WebSocket through
+        registry.addEndpoint("/game-websocket").setAllowedOriginPatterns("*").addInterceptors(new ClientAddressInterceptor())
+                .withSockJS();
+    }
+
+    /**
+     * The send limits are enforced by the {@link OutboundFrameBuffer}, which never lets a send block; Spring's
+     * own buffer in front of it is set to the same limits.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit((int) transport.getMessageSizeLimit().toBytes())
+                .setSendBufferSizeLimit((int) transport.getSendBufferSizeLimit().toBytes())
+                .setSendTimeLimit((int) transport.getSendTimeLimit().toMillis())
+                .addDecoratorFactory(new SockJsTextFrames())
+                .addDecoratorFactory(new OutboundFrameBuffer(transport, meterRegistry));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Queue depth and busy threads of the STOMP channels. A growing inbound queue means commands
+ * wait before they reach a game's mailbox; a growing outbound queue means clients don't keep up.
+ */
+@Component
+public class WebSocketMetrics {
+
+    public WebSocketMetrics(@Qualifier("clientInboundChannelExecutor") Executor inboundExecutor,
+                            @Qualifier("clientOutboundChannelExecutor") Executor outboundExecutor,
+                            MeterRegistry meterRegistry) {
+        register("inbound", inboundExecutor, meterRegistry);
+        register("outbound", outboundExecutor, meterRegistry);
+    }
+
+    private static void register(String channel, Executor executor, MeterRegistry meterRegistry) {
+        if (!(executor instanceof ThreadPoolTaskExecutor pool)) {
+            return;
+        }
+        Gauge.builder("diceyvicy.websocket." + channel + ".queue", pool, p -> p.getThreadPoolExecutor().getQueue().size())
+                .description("Messages waiting on the client " + channel + " channel")
+                .register(meterRegistry);
+        Gauge.builder("diceyvicy.websocket." + channel + ".active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads busy on the client " + channel + " channel")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.oglimmer.diceyvicy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "diceyvicy.websocket")
+public class WebSocketTransportProperties {
+
+    /**
+     * Largest inbound STOMP message; game commands are a few dozen bytes.
+     */
+    private DataSize messageSizeLimit = DataSize.ofKilobytes(16);
+
+    /**
+     * Outbound bytes buffered for a client that doesn't keep up. Beyond it only the newest update of
+     * each game is kept, and if that is still too much the session is closed.
+     */
+    private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(256);
+
+    /**
+     * How long a single send to a client may take before its session is closed.
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /**
+     * STOMP heartbeat interval of the in-process broker, in both directions; 0 for none. Finds dead
+     * connections behind proxies that don't close them.
+     */
+    private Duration heartbeat = Duration.ofSeconds(10);
+}
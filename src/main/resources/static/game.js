@@ -3,7 +3,13 @@ class DiceGame {
         this.gameId = null;
         this.playerName = null;
         this.stompClient = null;
+        // plain WebSocket until it fails to connect once, then SockJS for the rest of the page
+        this.transport = 'native';
         this.gameState = null;
+        this.seq = 0;
+        this.syncing = false;
+        this.reasoning = '';
+        this.reconnectAttempts = 0;
         this.isPlayerTurn = false;
         
         this.init();
@@ -92,6 +98,13 @@ class DiceGame {
                 })
             });
             
+            if (response.status === 429) {
+                const retryAfter = response.headers.get('Retry-After') || 'a few';
+                alert(`You started a lot of games lately, please try again in ${retryAfter} seconds.`);
+                document.getElementById('startButton').disabled = false;
+                document.getElementById('startButton').textContent = 'Start Game';
+                return;
+            }
             if (!response.ok) {
                 throw new Error('Failed to start game');
             }
@@ -99,6 +112,7 @@ class DiceGame {
             const gameData = await response.json();
             this.gameId = gameData.gameId;
             this.gameState = gameData;
+            this.seq = gameData.seq;
             
             this.showGameScreen();
             this.connectWebSocket();
@@ -113,21 +127,140 @@ class DiceGame {
     }
     
     connectWebSocket() {
-        const socket = new SockJS('/game-websocket');
-        this.stompClient = Stomp.over(socket);
+        const nativeTransport = this.transport === 'native';
+        const scheme = window.location.protocol === 'https:' ? 'wss' : 'ws';
+        const client = new StompJs.Client({
+            brokerURL: nativeTransport ? `${scheme}://${window.location.host}/game-ws` : undefined,
+            webSocketFactory: nativeTransport ? undefined : () => new SockJS('/game-websocket'),
+            // reconnects are ours, they count attempts and resync
+            reconnectDelay: 0,
+            heartbeatIncoming: 10000,
+            heartbeatOutgoing: 10000
+        });
+        let connected = false;
         
-        this.stompClient.connect({}, (frame) => {
-            console.log('Connected to WebSocket');
+        client.onConnect = () => {
+            console.log(`Connected to WebSocket (${this.transport})`);
+            connected = true;
+            this.reconnectAttempts = 0;
             
-            this.stompClient.subscribe(`/topic/game/${this.gameId}`, (message) => {
-                const gameState = JSON.parse(message.body);
-                this.gameState = gameState;
+            client.subscribe(`/topic/game/${this.gameId}`, (message) => {
+                const update = JSON.parse(message.body);
+                if (update.closed) {
+                    this.closeGame(update.aiAction);
+                    return;
+                }
+                if (update.type === 'reasoning') {
+                    this.showReasoning(update);
+                    return;
+                }
+                if (update.type === 'delta') {
+                    if (!this.applyDelta(update)) {
+                        return;
+                    }
+                } else {
+                    this.gameState = update;
+                    this.seq = update.seq;
+                    this.syncing = false;
+                }
+                this.reasoning = '';
                 this.updateGameUI();
             });
-        }, (error) => {
-            console.error('WebSocket connection error:', error);
+            // only this session is told when one of its moves was dropped
+            client.subscribe('/user/topic/throttled', (message) => this.showThrottled(JSON.parse(message.body)));
+            // anything sent between the start response and the subscription is in the snapshot
+            this.requestSync();
+        };
+        client.onStompError = (frame) => console.error('STOMP error:', frame.headers.message);
+        client.onWebSocketClose = () => {
+            if (this.stompClient !== client) {
+                return; // closed on purpose
+            }
+            if (!connected && nativeTransport) {
+                console.warn('WebSocket unavailable, falling back to SockJS');
+                this.transport = 'sockjs';
+                this.connectWebSocket();
+                return;
+            }
+            console.error('WebSocket connection lost');
+            this.reconnect();
+        };
+        this.stompClient = client;
+        client.activate();
+    }
+    
+    reconnect() {
+        if (!this.gameId) {
+            return;
+        }
+        // the server may have been a replica that went away, another one picks the game up and the sync catches up
+        this.reconnectAttempts++;
+        if (this.reconnectAttempts > 5) {
             alert('Connection error. Please refresh the page.');
+            return;
+        }
+        setTimeout(() => this.connectWebSocket(), 1000 * this.reconnectAttempts);
+    }
+    
+    requestSync() {
+        this.syncing = true;
+        this.stompClient.publish({destination: `/app/game/${this.gameId}/sync`});
+    }
+    
+    applyDelta(delta) {
+        if (delta.seq <= this.seq) {
+            return false; // already part of the state
+        }
+        if (delta.seq !== this.seq + 1) {
+            if (!this.syncing) {
+                console.warn(`Missed game updates (expected ${this.seq + 1}, got ${delta.seq}), resyncing`);
+                this.requestSync();
+            }
+            return false;
+        }
+        
+        const state = this.gameState;
+        this.seq = delta.seq;
+        if (delta.diceRolls !== undefined) state.diceRolls = delta.diceRolls;
+        if (delta.rollCount !== undefined) state.rollCount = delta.rollCount;
+        if (delta.currentPlayer !== undefined) state.currentPlayer = delta.currentPlayer;
+        if (delta.gameOver !== undefined) state.gameOver = delta.gameOver;
+        (delta.bookings || []).forEach(booking => {
+            const player = state.players[booking.player];
+            player.usedBookingTypes.push(booking.bookingType);
+            player.score += booking.scoreDelta;
         });
+        state.aiAction = delta.aiAction || null;
+        return true;
+    }
+    
+    showReasoning(frame) {
+        // reasoning about a state the client has moved past, or not reached yet, is of no use
+        if (frame.seq !== this.seq) {
+            return;
+        }
+        this.reasoning += frame.text;
+        this.updateAiActionDisplay();
+    }
+    
+    showThrottled(frame) {
+        // the move was dropped and the game didn't change; the next update restores the AI's action
+        document.getElementById('ai-action-text').textContent = frame.text;
+        document.getElementById('ai-reasoning-text').textContent = '';
+        document.getElementById('ai-action-display').style.display = 'block';
+    }
+    
+    closeGame(reason) {
+        if (this.stompClient) {
+            const client = this.stompClient;
+            this.stompClient = null;
+            client.deactivate();
+        }
+        this.gameId = null;
+        alert(reason || 'This game was closed.');
+        document.getElementById('startButton').disabled = false;
+        document.getElementById('startButton').textContent = 'Start Game';
+        this.showStartScreen();
     }
     
     rollDice() {
@@ -142,9 +275,10 @@ class DiceGame {
             }
         });
         
-        this.stompClient.send(`/app/game/${this.gameId}/reroll`, {}, JSON.stringify({
-            diceToKeep: diceToKeep
-        }));
+        this.stompClient.publish({
+            destination: `/app/game/${this.gameId}/reroll`,
+            body: JSON.stringify({diceToKeep: diceToKeep})
+        });
         
         document.querySelectorAll('.dice-keep').forEach((checkbox, index) => {
             checkbox.checked = false;
@@ -158,9 +292,10 @@ class DiceGame {
             return;
         }
         
-        this.stompClient.send(`/app/game/${this.gameId}/book`, {}, JSON.stringify({
-            bookingType: bookingType
-        }));
+        this.stompClient.publish({
+            destination: `/app/game/${this.gameId}/book`,
+            body: JSON.stringify({bookingType: bookingType})
+        });
     }
     
     updateGameUI() {
@@ -255,9 +390,11 @@ class DiceGame {
     updateAiActionDisplay() {
         const aiActionDisplay = document.getElementById('ai-action-display');
         const aiActionText = document.getElementById('ai-action-text');
+        const aiReasoningText = document.getElementById('ai-reasoning-text');
         
         if (this.gameState.aiAction) {
             aiActionText.textContent = this.gameState.aiAction;
+            aiReasoningText.textContent = this.reasoning;
             aiActionDisplay.style.display = 'block';
 
             // setTimeout(() => {
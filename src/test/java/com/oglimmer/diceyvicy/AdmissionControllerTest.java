@@ -0,0 +1,117 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControllerTest {
+
+    @Test
+    void testTokenBucketRefillsAtItsRateUpToTheBurst() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(2, 3, now);
+        assertTrue(bucket.tryTake(now));
+        assertTrue(bucket.tryTake(now));
+        assertTrue(bucket.tryTake(now));
+        assertFalse(bucket.tryTake(now));
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertTrue(bucket.tryTake(now));
+        assertFalse(bucket.tryTake(now));
+
+        // a long pause fills the bucket only up to the burst
+        now += TimeUnit.MINUTES.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryTake(now));
+        }
+        assertFalse(bucket.tryTake(now));
+    }
+
+    @Test
+    void testStartsAreLimitedPerAddress() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setStartsPerIp(new AdmissionProperties.Limit(0.01, 2));
+        AdmissionController admission = new AdmissionController(properties, new SimpleMeterRegistry());
+
+        assertTrue(admission.admitStart("10.0.0.1"));
+        assertTrue(admission.admitStart("10.0.0.1"));
+        assertFalse(admission.admitStart("10.0.0.1"));
+        assertTrue(admission.admitStart("10.0.0.2"));
+        assertTrue(admission.admitStart(null));
+        assertEquals(100, admission.startRetryAfter().toSeconds());
+    }
+
+    @Test
+    void testMovesAreLimitedPerSessionAndPerAddress() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMovesPerSession(new AdmissionProperties.Limit(0.01, 2));
+        properties.setMovesPerIp(new AdmissionProperties.Limit(0.01, 3));
+        AdmissionController admission = new AdmissionController(properties, new SimpleMeterRegistry());
+
+        assertTrue(admission.admitMove("s1", "10.0.0.1"));
+        assertTrue(admission.admitMove("s1", "10.0.0.1"));
+        assertFalse(admission.admitMove("s1", "10.0.0.1"));
+        // another session of the same client only gets what is left of the address' limit
+        assertTrue(admission.admitMove("s2", "10.0.0.1"));
+        assertFalse(admission.admitMove("s2", "10.0.0.1"));
+        assertTrue(admission.admitMove("s3", "10.0.0.2"));
+        assertEquals(100, admission.moveRetryAfter().toSeconds());
+
+        // a flooding session is told once per retry window, not for every dropped move
+        assertTrue(admission.notifyDroppedMove("s1"));
+        assertFalse(admission.notifyDroppedMove("s1"));
+        assertTrue(admission.notifyDroppedMove("s2"));
+    }
+
+    @Test
+    void testAiTurnsOverTheCapWaitForAFreedSlot() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxAiTurns(1);
+        properties.setMaxWaitingAiTurns(2);
+        AdmissionController admission = new AdmissionController(properties, new SimpleMeterRegistry());
+        List<AdmissionController.AiTurnSlot> started = new ArrayList<>();
+
+        AdmissionController.AiTurnSlot first = admission.tryAcquireAiTurn();
+        assertNotNull(first);
+        assertNull(admission.tryAcquireAiTurn());
+        assertEquals(1, admission.awaitAiTurn(started::add));
+        assertEquals(2, admission.awaitAiTurn(started::add));
+        assertEquals(-1, admission.awaitAiTurn(started::add));
+
+        first.release();
+        // released twice, e.g. by a failed step and its rejection, it still frees one slot
+        first.release();
+        assertEquals(1, started.size());
+        assertEquals(1, admission.getAiTurnsInFlight());
+        assertEquals(1, admission.getWaitingAiTurns());
+
+        started.get(0).release();
+        started.get(1).release();
+        assertEquals(0, admission.getAiTurnsInFlight());
+        assertEquals(0, admission.awaitAiTurn(started::add));
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    void testDisabledAdmitsEverything() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setEnabled(false);
+        properties.setMaxAiTurns(0);
+        properties.setStartsPerIp(new AdmissionProperties.Limit(0.01, 1));
+        AdmissionController admission = new AdmissionController(properties, new SimpleMeterRegistry());
+
+        assertTrue(admission.admitStart("10.0.0.1"));
+        assertTrue(admission.admitStart("10.0.0.1"));
+        assertSame(AdmissionController.AiTurnSlot.UNCOUNTED, admission.tryAcquireAiTurn());
+    }
+}
@@ -0,0 +1,70 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiDecisionCacheTest {
+
+    private static AiDecisionCache newCache(String snapshotFile) {
+        AiDecisionCacheProperties properties = new AiDecisionCacheProperties();
+        properties.setSnapshotFile(snapshotFile);
+        return new AiDecisionCache(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testSameSituationAsksModelOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        AiModel model = (systemPrompt, userPrompt, verify) -> {
+            calls.incrementAndGet();
+            return "{\"diceToKeep\": [6, 6], \"reasoning\": \"sixes\"}";
+        };
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").decisionCache(newCache(null)).build();
+
+        assertArrayEquals(new int[]{6, 6}, aiBot.askAiWhichDiceToKeep(List.of(6, 1, 6, 2, 3), List.of(), 1));
+        // same multiset in a different order
+        assertArrayEquals(new int[]{6, 6}, aiBot.askAiWhichDiceToKeep(List.of(3, 2, 6, 1, 6), List.of(), 1));
+        assertEquals(1, calls.get());
+
+        // a different round is a different situation
+        aiBot.askAiWhichDiceToKeep(List.of(6, 1, 6, 2, 3), List.of(), 2);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testUnparseableAnswerIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        AiModel model = (systemPrompt, userPrompt, verify) -> {
+            calls.incrementAndGet();
+            return "no json";
+        };
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").decisionCache(newCache(null)).build();
+
+        aiBot.askAiBookingType(List.of(1, 2, 3, 4, 5), List.of(BookingType.ONES));
+        aiBot.askAiBookingType(List.of(1, 2, 3, 4, 5), List.of(BookingType.ONES));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testSnapshotSurvivesRestart(@TempDir Path dir) {
+        String file = dir.resolve("decisions.tsv").toString();
+        AiDecisionCache cache = newCache(file);
+        cache.putBookingType("stub", List.of(2, 2, 2, 5, 5), List.of(BookingType.CHANCE), BookingType.FULL_HOUSE);
+        cache.putDiceToKeep("stub", List.of(1, 2, 3, 4, 6), List.of(), 2, List.of(1, 2, 3, 4));
+        cache.writeSnapshot();
+
+        AiDecisionCache restarted = newCache(file);
+        restarted.loadSnapshot();
+        assertEquals(2, restarted.size());
+        assertEquals(BookingType.FULL_HOUSE, restarted.getBookingType("stub", List.of(5, 2, 5, 2, 2), List.of(BookingType.CHANCE)));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, restarted.getDiceToKeep("stub", List.of(6, 4, 3, 2, 1), List.of(), 2));
+        assertNull(restarted.getBookingType("other", List.of(5, 2, 5, 2, 2), List.of(BookingType.CHANCE)));
+    }
+}
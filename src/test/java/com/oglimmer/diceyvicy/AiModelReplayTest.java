@@ -0,0 +1,73 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AiModelReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private static AiReplayProperties instant() {
+        AiReplayProperties properties = new AiReplayProperties();
+        properties.getLatency().setMedian(Duration.ZERO);
+        properties.getLatency().setSpikeRate(0);
+        properties.getLatency().setTimeoutRate(0);
+        properties.getLatency().setErrorRate(0);
+        return properties;
+    }
+
+    @Test
+    void testSynthesizesAnswersToTheBotsPrompts() {
+        AiBot aiBot = AiBot.builder().aiModel(new AiModelReplay(instant())).build();
+
+        assertEquals(BookingType.SMALL_STRAIGHT, aiBot.askAiBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+        assertArrayEquals(new int[]{6, 6, 6}, aiBot.askAiWhichDiceToKeep(List.of(6, 6, 6, 1, 2), List.of(), 1));
+    }
+
+    @Test
+    void testReplaysRecordedAnswers() throws Exception {
+        Path corpus = dir.resolve("corpus.jsonl");
+        AiModel recorded = (systemPrompt, userPrompt, verify) -> "{\"bookingType\": \"CHANCE\", \"reasoning\": \"recorded\"}";
+        AiBot.builder().aiModel(new RecordingAiModel(recorded, corpus)).build().askAiBookingType(List.of(1, 2, 3, 4, 6), List.of());
+        // the question-and-answer lines of the fine-tuning data are no answers to a move
+        Files.writeString(corpus, Files.readString(corpus) + Files.readAllLines(Path.of("fine-tune-openai/yahtzee_training_data.jsonl")).get(0) + "\n");
+
+        AiReplayProperties properties = instant();
+        properties.setCorpus(corpus.toString());
+        AiBot aiBot = AiBot.builder().aiModel(new AiModelReplay(properties)).build();
+
+        assertEquals(BookingType.CHANCE, aiBot.askAiBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+        assertEquals(BookingType.KNIFFEL, aiBot.askAiBookingType(List.of(5, 5, 5, 5, 5), List.of()));
+    }
+
+    @Test
+    void testInjectsLatencyAndTimeouts() throws Exception {
+        AiReplayProperties properties = instant();
+        properties.getLatency().setMedian(Duration.ofMillis(50));
+        properties.getLatency().setSigma(0);
+        AiModelReplay replay = new AiModelReplay(properties);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> answer = replay.askModelAsync("", "Dice rolls: [5, 5, 5, 5, 5]\nAvailable booking types: KNIFFEL", null);
+        assertFalse(answer.isDone());
+        assertTrue(answer.get().contains("KNIFFEL"));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+
+        properties.getLatency().setTimeoutRate(1);
+        properties.getLatency().setTimeout(Duration.ofMillis(10));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> replay.askModelAsync("", "", null).get());
+        assertInstanceOf(TimeoutException.class, error.getCause());
+    }
+}
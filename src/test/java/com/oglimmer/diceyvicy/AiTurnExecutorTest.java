@@ -0,0 +1,91 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AiTurnExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AiTurnExecutor aiTurnExecutor;
+
+    @AfterEach
+    void tearDown() {
+        aiTurnExecutor.shutdown();
+    }
+
+    private AiTurnExecutor aiTurnExecutor(AiTurnProperties.RejectionPolicy rejectionPolicy) {
+        AiTurnProperties properties = new AiTurnProperties();
+        properties.setMaxConcurrent(1);
+        properties.setRejectionPolicy(rejectionPolicy);
+        aiTurnExecutor = new AiTurnExecutor(properties, meterRegistry);
+        return aiTurnExecutor;
+    }
+
+    private double active() {
+        return meterRegistry.get("diceyvicy.ai.turn.active").gauge().value();
+    }
+
+    @Test
+    void testStepOverTheLimitIsRejectedNotQueued() throws InterruptedException {
+        AiTurnExecutor executor = aiTurnExecutor(AiTurnProperties.RejectionPolicy.ABORT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, active());
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+        }));
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.turn.rejected").counter().count());
+
+        // the finished step gives its slot back
+        release.countDown();
+        CountDownLatch next = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (active() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        executor.execute(next::countDown);
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCallerRunsAStepOverTheLimit() throws InterruptedException {
+        AiTurnExecutor executor = aiTurnExecutor(AiTurnProperties.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (active() < 1 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        Thread[] ranOn = new Thread[1];
+        executor.execute(() -> ranOn[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), ranOn[0]);
+        release.countDown();
+    }
+}
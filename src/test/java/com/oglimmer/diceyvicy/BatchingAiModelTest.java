@@ -0,0 +1,130 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingAiModelTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * Answers each situation of a request with its number, and a single situation with {"item": "single"}.
+     */
+    private AiModel recordingModel(boolean answerBatches) {
+        return new AiModel() {
+            @Override
+            public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                requests.add(userPrompt);
+                int situations = userPrompt.split("Situation ").length - 1;
+                if (situations == 0) {
+                    return CompletableFuture.completedFuture("{\"item\": \"" + userPrompt + "\"}");
+                }
+                if (!answerBatches) {
+                    return CompletableFuture.completedFuture("Sorry, I can only do one at a time.");
+                }
+                String answers = String.join(",", IntStream.rangeClosed(1, situations).mapToObj(i -> "{\"item\": " + i + "}").toList());
+                return CompletableFuture.completedFuture("```json\n[" + answers + "]\n```");
+            }
+        };
+    }
+
+    private BatchingAiModel batchingModel(AiModel delegate, Duration window, int maxSize) {
+        AiBatchProperties properties = new AiBatchProperties();
+        properties.setEnabled(true);
+        properties.setWindow(window);
+        properties.setMaxSize(maxSize);
+        return new BatchingAiModel(delegate, "stub", properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testDecisionsWithinWindowShareOneRequest() {
+        BatchingAiModel model = batchingModel(recordingModel(true), Duration.ofMillis(100), 16);
+
+        List<CompletableFuture<String>> answers = IntStream.range(0, 3)
+                .mapToObj(i -> model.askModelAsync("keep", "dice " + i, null))
+                .toList();
+        CompletableFuture<String> booking = model.askModelAsync("book", "dice 9", null);
+
+        assertEquals("{\"item\":1}", answers.get(0).join());
+        assertEquals("{\"item\":2}", answers.get(1).join());
+        assertEquals("{\"item\":3}", answers.get(2).join());
+        assertEquals("{\"item\": \"dice 9\"}", booking.join());
+        assertEquals(2, requests.size());
+        assertTrue(requests.contains("Situation 1:\ndice 0\n\nSituation 2:\ndice 1\n\nSituation 3:\ndice 2"));
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaiting() {
+        BatchingAiModel model = batchingModel(recordingModel(true), Duration.ofMinutes(1), 2);
+
+        CompletableFuture<String> first = model.askModelAsync("keep", "dice 1", null);
+        CompletableFuture<String> second = model.askModelAsync("keep", "dice 2", null);
+
+        assertTrue(first.isDone());
+        assertEquals("{\"item\":2}", second.join());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void testUnsplittableAnswerIsAskedOneByOne() {
+        BatchingAiModel model = batchingModel(recordingModel(false), Duration.ofMillis(50), 16);
+
+        CompletableFuture<String> first = model.askModelAsync("keep", "dice 1", null);
+        CompletableFuture<String> second = model.askModelAsync("keep", "dice 2", null);
+
+        assertEquals("{\"item\": \"dice 1\"}", first.join());
+        assertEquals("{\"item\": \"dice 2\"}", second.join());
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void testAnswerFailingItsCheckIsAskedAlone() {
+        AiModel model = new AiModel() {
+            @Override
+            public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                requests.add(userPrompt);
+                if (userPrompt.startsWith("Situation ")) {
+                    return CompletableFuture.completedFuture("[{\"bookingType\": \"KNIFFEL\"}, {\"bookingType\": \"KNIFFEL\"}]");
+                }
+                return CompletableFuture.completedFuture("{\"bookingType\": \"CHANCE\"}");
+            }
+        };
+        BatchingAiModel batching = batchingModel(model, Duration.ofMinutes(1), 2);
+
+        // the first game has used KNIFFEL already, so its part of the batch answer is no valid booking
+        CompletableFuture<String> first = batching.askModelAsync("book", "dice 1", bookingType -> bookingType != BookingType.KNIFFEL);
+        CompletableFuture<String> second = batching.askModelAsync("book", "dice 2", bookingType -> true);
+
+        assertEquals("{\"bookingType\":\"KNIFFEL\"}", second.join());
+        assertEquals("{\"bookingType\": \"CHANCE\"}", first.join());
+        assertEquals(List.of("Situation 1:\ndice 1\n\nSituation 2:\ndice 2", "dice 1"), requests);
+    }
+
+    @Test
+    void testSplit() {
+        assertEquals(List.of("{\"a\":1}", "{\"a\":[2]}"), BatchingAiModel.split("[{\"a\": 1}, {\"a\": [2]}]", 2));
+        assertNull(BatchingAiModel.split("[{\"a\": 1}]", 2));
+        assertNull(BatchingAiModel.split("{\"a\": 1}", 1));
+        assertNull(BatchingAiModel.split(null, 1));
+    }
+}
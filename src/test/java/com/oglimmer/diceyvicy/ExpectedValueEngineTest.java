@@ -0,0 +1,81 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedValueEngineTest {
+
+    private final ExpectedValueEngine engine = new ExpectedValueEngine(16);
+    private final AiModelFast fast = new AiModelFast(engine);
+
+    @Test
+    void testBooksAndKeepsTheObviousMoves() {
+        assertEquals(BookingType.SMALL_STRAIGHT, fast.chooseBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+        assertEquals(BookingType.KNIFFEL, fast.chooseBookingType(List.of(5, 5, 5, 5, 5), List.of()));
+        assertArrayEquals(new int[]{6, 6, 6}, fast.chooseDiceToKeep(List.of(6, 6, 6, 1, 2), List.of(), 1));
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, fast.chooseDiceToKeep(List.of(1, 2, 3, 4, 5), List.of(), 2));
+    }
+
+    @Test
+    void testOnlyOpenTypesAreBooked() {
+        List<BookingType> used = List.of(BookingType.SMALL_STRAIGHT, BookingType.LARGE_STRAIGHT, BookingType.CHANCE);
+        BookingType bookingType = fast.chooseBookingType(List.of(1, 2, 3, 4, 6), used);
+        assertNotNull(bookingType);
+        assertFalse(used.contains(bookingType));
+    }
+
+    @Test
+    void testLossOfTheBestMoveIsZero() {
+        assertEquals(0, engine.bookingLoss(List.of(1, 2, 3, 4, 6), 0, BookingType.SMALL_STRAIGHT), 1e-9);
+        assertEquals(0, engine.keepLoss(List.of(6, 6, 6, 1, 2), 0, 1, List.of(6, 6, 6)), 1e-9);
+        assertTrue(engine.bookingLoss(List.of(1, 2, 3, 4, 6), 0, BookingType.KNIFFEL) > 10);
+        assertTrue(engine.keepLoss(List.of(6, 6, 6, 1, 2), 0, 1, List.of(1, 2)) > 5);
+    }
+
+    @Test
+    void testKeepingDiceNotRolledIsInvalid() {
+        assertEquals(Double.POSITIVE_INFINITY, engine.keepLoss(List.of(6, 6, 6, 1, 2), 0, 1, List.of(6, 6, 6, 6)));
+        assertEquals(Double.POSITIVE_INFINITY, engine.keepLoss(List.of(6, 6, 6, 1, 2), 0, 1, List.of(7)));
+        assertNotNull(new AiAnswerCheck(engine, new AiModelProperties()).override(List.of(6, 6, 6, 1, 2), List.of(), 1, List.of(5)));
+    }
+
+    @Test
+    void testClearlyBadAnswersAreOverridden() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AiModel careless = (systemPrompt, userPrompt, verify) -> systemPrompt.contains("diceToKeep")
+                ? "{\"diceToKeep\": [1, 2], \"reasoning\": \"low dice\"}"
+                : "{\"bookingType\": \"KNIFFEL\", \"reasoning\": \"why not\"}";
+        AiBot aiBot = AiBot.builder()
+                .aiModel(careless)
+                .modelName("stub")
+                .metrics(new AiDecisionMetrics("stub", meterRegistry))
+                .answerCheck(new AiAnswerCheck(engine, new AiModelProperties()))
+                .build();
+
+        assertEquals(BookingType.SMALL_STRAIGHT, aiBot.askAiBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+        assertArrayEquals(new int[]{6, 6, 6}, aiBot.askAiWhichDiceToKeep(List.of(6, 6, 6, 1, 2), List.of(), 1));
+
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.decision.overrides").tags("phase", "book").counter().count());
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.decision.overrides").tags("phase", "keep").counter().count());
+        assertEquals(0, meterRegistry.get("diceyvicy.ai.decision.fallbacks").tags("phase", "book").counter().count());
+    }
+
+    @Test
+    void testCloseCallsAreLeftToTheModel() {
+        AiModel model = (systemPrompt, userPrompt, verify) -> "{\"bookingType\": \"SIXES\", \"reasoning\": \"go for the bonus\"}";
+        AiBot aiBot = AiBot.builder()
+                .aiModel(model)
+                .modelName("stub")
+                .answerCheck(new AiAnswerCheck(engine, new AiModelProperties()))
+                .build();
+
+        assertEquals(BookingType.SIXES, aiBot.askAiBookingType(List.of(6, 6, 6, 2, 3), List.of()));
+        assertNotEquals(0, engine.bookingLoss(List.of(6, 6, 6, 2, 3), 0, BookingType.SIXES), 1e-9);
+    }
+}
@@ -0,0 +1,58 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oglimmer.kniffel.model.BookingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameDeltaTrackerTest {
+
+    private static GameState newGame() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return gameState;
+    }
+
+    @Test
+    void testRerollSendsDiceAndRollCountOnly() {
+        GameState gameState = newGame();
+        GameDeltaTracker tracker = new GameDeltaTracker(gameState);
+
+        gameState.rerollDiceByPos(new int[0]);
+        GameDelta delta = tracker.next(gameState, null);
+
+        assertEquals(1, delta.getSeq());
+        assertEquals(2, delta.getRollCount());
+        assertNull(delta.getCurrentPlayer());
+        assertNull(delta.getBookings());
+    }
+
+    @Test
+    void testBookingSendsScoreDeltaAndNextPlayer() {
+        GameState gameState = newGame();
+        GameDeltaTracker tracker = new GameDeltaTracker(gameState);
+        int before = gameState.getCurrentPlayer().getScore();
+
+        gameState.bookDiceRoll(BookingType.CHANCE);
+        GameDelta delta = tracker.next(gameState, "booked");
+
+        int after = gameState.getPlayers().get("Player").getScore();
+        assertEquals(List.of(new GameDelta.Booking("Player", BookingType.CHANCE, after - before)), delta.getBookings());
+        assertEquals("Jürgen-AI", delta.getCurrentPlayer());
+        assertEquals("booked", delta.getAiAction());
+    }
+
+    @Test
+    void testUnchangedStateSendsOnlySequence() throws Exception {
+        GameState gameState = newGame();
+        GameDeltaTracker tracker = new GameDeltaTracker(gameState);
+        tracker.next(gameState, null);
+
+        String json = new ObjectMapper().writeValueAsString(tracker.next(gameState, null));
+        assertEquals("{\"type\":\"delta\",\"version\":1,\"seq\":2}", json);
+        assertEquals(2, tracker.getSeq());
+    }
+}
@@ -0,0 +1,138 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventLogTest {
+
+    @TempDir
+    Path dir;
+
+    private GameEventLog openLog(DataSize segmentSize) throws Exception {
+        GameEventLogProperties properties = new GameEventLogProperties();
+        properties.setDir(dir.toString());
+        properties.setSegmentSize(segmentSize);
+        GameEventLog eventLog = new GameEventLog(properties, new SimpleMeterRegistry());
+        eventLog.open();
+        return eventLog;
+    }
+
+    private static GameSession newSession() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return new GameSession(gameState, AiBot.builder().localModel(new AiModelLocalSolver()).modelName("LocalSolver").build(), new GameMailbox(Runnable::run));
+    }
+
+    private static void move(GameEventLog eventLog, GameSession session, Runnable move) {
+        move.run();
+        eventLog.appendMove(session.getGameState(), session.getDeltaTracker().next(session.getGameState(), null));
+    }
+
+    private static void assertSameSnapshot(GameSnapshot expected, GameSnapshot actual) {
+        assertEquals(expected.gameId(), actual.gameId());
+        assertEquals(expected.aiModel(), actual.aiModel());
+        assertEquals(expected.seq(), actual.seq());
+        assertEquals(expected.packedDice(), actual.packedDice());
+        assertEquals(expected.rollCount(), actual.rollCount());
+        assertEquals(expected.currentPlayerIndex(), actual.currentPlayerIndex());
+        assertArrayEquals(expected.playerNames(), actual.playerNames());
+        assertArrayEquals(expected.usedMasks(), actual.usedMasks());
+        assertArrayEquals(expected.scores(), actual.scores());
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testRecoversRunningGamesAfterRestart() throws Exception {
+        GameEventLog eventLog = openLog(DataSize.ofKilobytes(64));
+        GameSession running = newSession();
+        GameSession ended = newSession();
+        eventLog.appendSnapshot(GameSnapshot.of(running));
+        eventLog.appendSnapshot(GameSnapshot.of(ended));
+        move(eventLog, running, () -> running.getGameState().rerollDiceByPos(new int[]{1, 3}));
+        move(eventLog, running, () -> running.getGameState().bookDiceRoll(BookingType.CHANCE));
+        move(eventLog, running, () -> running.getGameState().rerollDiceByPos(new int[]{}));
+        eventLog.appendEnd(ended.getGameId());
+        eventLog.close();
+
+        List<GameSnapshot> recovered = openLog(DataSize.ofKilobytes(64)).takeRecovered();
+        assertEquals(1, recovered.size());
+        assertSameSnapshot(GameSnapshot.of(running), recovered.get(0));
+        GameState restored = GameState.restore(recovered.get(0));
+        assertEquals(running.getGameState().getPackedDice(), restored.getPackedDice());
+        assertEquals(2, restored.getRollCount());
+    }
+
+    @Test
+    void testCheckpointDropsOlderSegments() throws Exception {
+        GameEventLog eventLog = openLog(DataSize.ofKilobytes(64));
+        GameSession session = newSession();
+        eventLog.appendSnapshot(GameSnapshot.of(session));
+        move(eventLog, session, () -> session.getGameState().bookDiceRoll(BookingType.KNIFFEL));
+
+        long checkpoint = eventLog.startCheckpoint();
+        eventLog.appendSnapshot(GameSnapshot.of(session));
+        eventLog.deleteSegmentsBefore(checkpoint);
+        move(eventLog, session, () -> session.getGameState().rerollDiceByPos(new int[]{2}));
+        eventLog.close();
+
+        assertEquals(1, segmentCount());
+        List<GameSnapshot> recovered = openLog(DataSize.ofKilobytes(64)).takeRecovered();
+        assertSameSnapshot(GameSnapshot.of(session), recovered.get(0));
+    }
+
+    @Test
+    void testContinuesInNewSegmentWhenFull() throws Exception {
+        GameEventLog eventLog = openLog(DataSize.ofBytes(256));
+        GameSession session = newSession();
+        eventLog.appendSnapshot(GameSnapshot.of(session));
+        for (int turn = 0; turn < 10; turn++) {
+            // the players take turns, so each books every type once
+            BookingType bookingType = BookingType.values()[turn / 2];
+            move(eventLog, session, () -> session.getGameState().rerollDiceByPos(new int[]{5}));
+            move(eventLog, session, () -> session.getGameState().bookDiceRoll(bookingType));
+        }
+        eventLog.close();
+
+        assertTrue(segmentCount() > 1);
+        assertSameSnapshot(GameSnapshot.of(session), openLog(DataSize.ofBytes(256)).takeRecovered().get(0));
+    }
+
+    @Test
+    void testIgnoresTornRecord() throws Exception {
+        GameEventLog eventLog = openLog(DataSize.ofKilobytes(64));
+        GameSession session = newSession();
+        GameSnapshot start = GameSnapshot.of(session);
+        eventLog.appendSnapshot(start);
+        move(eventLog, session, () -> session.getGameState().bookDiceRoll(BookingType.CHANCE));
+        eventLog.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        bytes[last] ^= 0x7F;
+        Files.write(segment, bytes);
+
+        assertSameSnapshot(start, openLog(DataSize.ofKilobytes(64)).takeRecovered().get(0));
+    }
+}
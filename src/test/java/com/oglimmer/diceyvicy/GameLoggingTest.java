@@ -0,0 +1,106 @@
+package com.oglimmer.diceyvicy;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameLoggingTest {
+
+    private final Logger moves = (Logger) LoggerFactory.getLogger("com.oglimmer.diceyvicy.moves");
+    private final Level previousLevel = moves.getLevel();
+    private final GameRegistry gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+    }, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        moves.setLevel(previousLevel);
+        MDC.clear();
+    }
+
+    private static MoveLog moveLog(double sampleRate) {
+        GameLoggingProperties properties = new GameLoggingProperties();
+        properties.setMoveSampleRate(sampleRate);
+        return new MoveLog(properties);
+    }
+
+    private String startGame() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        gameRegistry.register(new GameSession(gameState, AiBot.builder().localModel(new AiModelFast()).build(),
+                new GameMailbox(Runnable::run)));
+        return gameState.getGameId();
+    }
+
+    private GameDebugEndpoint debugEndpoint(int maxDebugGames) {
+        GameLoggingProperties properties = new GameLoggingProperties();
+        properties.setMaxDebugGames(maxDebugGames);
+        return new GameDebugEndpoint(gameRegistry, properties);
+    }
+
+    @Test
+    void testSamplesWholeGames() {
+        String gameId = UUID.randomUUID().toString();
+        assertFalse(moveLog(0).isSampled(gameId));
+        assertTrue(moveLog(1).isSampled(gameId));
+
+        MoveLog half = moveLog(0.5);
+        long sampled = IntStream.range(0, 2000).filter(i -> half.isSampled(UUID.randomUUID().toString())).count();
+        assertTrue(sampled > 800 && sampled < 1200, sampled + " of 2000 games sampled");
+        assertEquals(half.isSampled(gameId), half.isSampled(gameId));
+    }
+
+    @Test
+    void testDebugIsEnabledForOneGameOnly() {
+        moves.setLevel(Level.INFO);
+        String debugged = startGame();
+        String other = startGame();
+        GameDebugEndpoint endpoint = debugEndpoint(20);
+        endpoint.install();
+        try {
+            endpoint.enable(debugged);
+
+            MDC.put(GameMailbox.MDC_GAME_ID, debugged);
+            assertTrue(moves.isDebugEnabled());
+            assertFalse(moves.isTraceEnabled());
+            MDC.put(GameMailbox.MDC_GAME_ID, other);
+            assertFalse(moves.isDebugEnabled());
+
+            endpoint.disable(debugged);
+            MDC.put(GameMailbox.MDC_GAME_ID, debugged);
+            assertFalse(moves.isDebugEnabled());
+            assertTrue(endpoint.debugGames().isEmpty());
+        } finally {
+            endpoint.uninstall();
+        }
+    }
+
+    @Test
+    void testDebugOnlyForRunningGamesUpToTheLimit() {
+        GameDebugEndpoint endpoint = debugEndpoint(2);
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.enable("unknown"));
+
+        String first = startGame();
+        String second = startGame();
+        endpoint.enable(first);
+        endpoint.enable(second);
+        endpoint.enable(second);
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.enable(startGame()));
+
+        // a game that is gone frees its place
+        gameRegistry.remove(first);
+        String third = startGame();
+        endpoint.enable(third);
+        assertEquals(Set.of(second, third), endpoint.debugGames());
+    }
+}
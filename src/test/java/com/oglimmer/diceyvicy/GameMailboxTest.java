@@ -0,0 +1,78 @@
+package com.oglimmer.diceyvicy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GameMailboxTest {
+
+    @Test
+    void testCommandsRunInSubmissionOrder() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        GameMailbox mailbox = new GameMailbox(executor);
+        List<Integer> executed = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < 1000; i++) {
+            int command = i;
+            mailbox.submit(() -> executed.add(command));
+        }
+        mailbox.submit(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1000, executed.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, executed.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void testCommandsNeverOverlap() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        GameMailbox mailbox = new GameMailbox(executor);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8 * 500);
+
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    mailbox.submit(() -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testFailingCommandDoesNotStopMailbox() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        GameMailbox mailbox = new GameMailbox(executor);
+        CountDownLatch done = new CountDownLatch(1);
+
+        mailbox.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        mailbox.submit(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
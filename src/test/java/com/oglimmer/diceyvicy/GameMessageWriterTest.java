@@ -0,0 +1,54 @@
+package com.oglimmer.diceyvicy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oglimmer.kniffel.model.BookingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class GameMessageWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testGameResponseMatchesDataBinding() throws Exception {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player \"quoted\"");
+        gameState.bookDiceRoll(BookingType.CHANCE);
+        GameController.GameResponse response = GameController.GameResponse.fromGameState(gameState);
+        response.setAiAction("Jürgen is thinking about [1, 2, 3, 4, 5]...");
+        response.setSeq(3);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(response)),
+                objectMapper.readTree(GameMessageWriter.write(response)));
+    }
+
+    @Test
+    void testGameDeltaMatchesDataBinding() throws Exception {
+        GameDelta delta = new GameDelta(7);
+        delta.setDiceRolls(List.of(6, 6, 1, 2, 3));
+        delta.setCurrentPlayer("Jürgen-AI");
+        delta.addBooking(new GameDelta.Booking("Player", BookingType.FULL_HOUSE, 25));
+        delta.setClosed(true);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(delta)),
+                objectMapper.readTree(GameMessageWriter.write(delta)));
+        GameDelta empty = new GameDelta(8);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(empty)),
+                objectMapper.readTree(GameMessageWriter.write(empty)));
+    }
+
+    @Test
+    void testThrottledNoticeIsNoState() throws Exception {
+        JsonNode notice = objectMapper.readTree(GameMessageWriter.writeThrottled(200, "Slow \"down\""));
+
+        assertEquals("throttled", notice.get("type").asText());
+        assertEquals(200, notice.get("retryAfterMs").asLong());
+        assertEquals("Slow \"down\"", notice.get("text").asText());
+        assertFalse(notice.has("seq"));
+    }
+}
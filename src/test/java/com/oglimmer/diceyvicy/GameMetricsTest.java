@@ -0,0 +1,67 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMetricsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private double count(String name, String... tags) {
+        return meterRegistry.get(name).tags(tags).counter().count();
+    }
+
+    @Test
+    void testModelFailureIsCountedAsFailureAndFallback() {
+        AiModel failing = (systemPrompt, userPrompt, verify) -> {
+            throw new AiModelUnavailableException("down");
+        };
+        AiBot aiBot = AiBot.builder().aiModel(failing).modelName("stub").metrics(new AiDecisionMetrics("stub", meterRegistry)).build();
+
+        assertEquals(BookingType.SMALL_STRAIGHT, aiBot.askAiBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.decision").tags("model", "stub", "phase", "book").timer().count());
+        assertEquals(1, count("diceyvicy.ai.decision.failures", "model", "stub", "phase", "book"));
+        assertEquals(1, count("diceyvicy.ai.decision.fallbacks", "model", "stub", "phase", "book"));
+        assertEquals(0, count("diceyvicy.ai.decision.failures", "model", "stub", "phase", "keep"));
+    }
+
+    @Test
+    void testUnusableAnswerIsOnlyAFallback() {
+        AiModel confused = (systemPrompt, userPrompt, verify) -> "I'd keep the sixes";
+        AiBot aiBot = AiBot.builder().aiModel(confused).modelName("stub").metrics(new AiDecisionMetrics("stub", meterRegistry)).build();
+
+        assertArrayEquals(new int[]{6, 6}, aiBot.askAiWhichDiceToKeep(List.of(6, 6, 1, 2, 3), List.of(), 1));
+
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.decision").tags("model", "stub", "phase", "keep").timer().count());
+        assertEquals(0, count("diceyvicy.ai.decision.failures", "model", "stub", "phase", "keep"));
+        assertEquals(1, count("diceyvicy.ai.decision.fallbacks", "model", "stub", "phase", "keep"));
+    }
+
+    @Test
+    void testMovesAndLiveGamesByModel() {
+        GameRegistry gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+        }, meterRegistry);
+        GameMetrics gameMetrics = new GameMetrics(meterRegistry, gameRegistry);
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        gameRegistry.register(new GameSession(gameState, AiBot.builder().localModel(new AiModelLocalSolver()).modelName("LocalSolver").build(), new GameMailbox(Runnable::run)));
+        gameMetrics.gameStarted("LocalSolver");
+
+        gameMetrics.recordMove("LocalSolver", GameMetrics.Move.REROLL, false);
+        gameMetrics.recordMove("LocalSolver", GameMetrics.Move.BOOK, true);
+        gameMetrics.recordSerialization("LocalSolver", false, 1_000);
+
+        assertEquals(1, meterRegistry.get("diceyvicy.games.live.model").tag("model", "LocalSolver").gauge().value());
+        assertEquals(1, count("diceyvicy.moves", "model", "LocalSolver", "move", "reroll", "player", "human"));
+        assertEquals(1, count("diceyvicy.moves", "model", "LocalSolver", "move", "book", "player", "ai"));
+        assertEquals(0, count("diceyvicy.moves", "model", "LocalSolver", "move", "book", "player", "human"));
+        assertEquals(1, meterRegistry.get("diceyvicy.broadcast.serialization").tags("model", "LocalSolver", "message", "delta").timer().count());
+    }
+}
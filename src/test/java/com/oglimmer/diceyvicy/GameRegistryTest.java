@@ -0,0 +1,100 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRegistryTest {
+
+    private final List<GameEvictedEvent> events = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private GameRegistryProperties properties;
+    private GameRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GameRegistryProperties();
+        properties.setMaxGames(3);
+        properties.setIdleTimeout(Duration.ofMinutes(10));
+        registry = new GameRegistry(properties, event -> events.add((GameEvictedEvent) event), meterRegistry, nanos::get);
+    }
+
+    private static GameSession newSession() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return new GameSession(gameState, null, new GameMailbox(Runnable::run));
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenFull() {
+        GameSession oldest = newSession();
+        GameSession middle = newSession();
+        GameSession newest = newSession();
+        registry.register(middle);
+        advance(Duration.ofSeconds(1));
+        registry.register(oldest);
+        advance(Duration.ofSeconds(1));
+        registry.register(newest);
+        advance(Duration.ofSeconds(1));
+        registry.get(middle.getGameId());
+        advance(Duration.ofSeconds(1));
+
+        registry.register(newSession());
+
+        assertEquals(3, registry.size());
+        assertNull(registry.get(oldest.getGameId()));
+        assertNotNull(registry.get(middle.getGameId()));
+        assertEquals(1, events.size());
+        assertSame(oldest, events.get(0).session());
+        assertEquals(GameEvictedEvent.Reason.EVICTED, events.get(0).reason());
+        assertEquals(1.0, meterRegistry.get("diceyvicy.games.evicted").counter().count());
+    }
+
+    @Test
+    void testGetMarksGameAsUsed() {
+        GameSession first = newSession();
+        GameSession second = newSession();
+        registry.register(first);
+        advance(Duration.ofSeconds(1));
+        registry.register(second);
+        advance(Duration.ofSeconds(1));
+        registry.register(newSession());
+        advance(Duration.ofSeconds(1));
+
+        registry.get(first.getGameId());
+        registry.register(newSession());
+
+        assertNotNull(registry.get(first.getGameId()));
+        assertNull(registry.get(second.getGameId()));
+    }
+
+    @Test
+    void testSweepRemovesIdleGames() {
+        GameSession idle = newSession();
+        GameSession active = newSession();
+        registry.register(idle);
+        advance(Duration.ofMinutes(9));
+        registry.register(active);
+        advance(Duration.ofMinutes(2));
+
+        registry.sweepIdleGames();
+
+        assertEquals(1, registry.size());
+        assertNull(registry.get(idle.getGameId()));
+        assertEquals(GameEvictedEvent.Reason.EXPIRED, events.get(0).reason());
+        assertEquals(1.0, meterRegistry.get("diceyvicy.games.expired").counter().count());
+        assertEquals(1.0, meterRegistry.get("diceyvicy.games.live").gauge().value());
+    }
+}
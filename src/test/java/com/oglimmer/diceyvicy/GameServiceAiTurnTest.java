@@ -0,0 +1,126 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GameServiceAiTurnTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GameRegistry gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+    }, meterRegistry);
+    private AiTurnExecutor aiTurnExecutor;
+
+    @AfterEach
+    void tearDown() {
+        aiTurnExecutor.shutdown();
+    }
+
+    private GameService gameService(Map<String, AiModel> models, Map<String, LocalAiModel> localModels) {
+        return gameService(models, localModels, new AdmissionProperties());
+    }
+
+    private GameService gameService(Map<String, AiModel> models, Map<String, LocalAiModel> localModels,
+                                    AdmissionProperties admissionProperties) {
+        AiTurnProperties aiTurnProperties = new AiTurnProperties();
+        aiTurnProperties.setStepDelay(Duration.ofMillis(1));
+        aiTurnExecutor = new AiTurnExecutor(aiTurnProperties, meterRegistry);
+        AiDecisionCache decisionCache = new AiDecisionCache(new AiDecisionCacheProperties(), meterRegistry);
+        return new GameService(new SimpMessagingTemplate((message, timeout) -> true),
+                aiTurnExecutor,
+                gameRegistry,
+                new AiModelRegistry(models, localModels, decisionCache, new AiModelProperties(), new AiBatchProperties(),
+                        new AiReplayProperties(), meterRegistry),
+                new SpeculativeAiWarmer(new AiSpeculationProperties(), decisionCache, meterRegistry),
+                new InMemoryGameStateStore(),
+                new GameEventLog(new GameEventLogProperties(), meterRegistry),
+                new GameMetrics(meterRegistry, gameRegistry),
+                new MoveLog(new GameLoggingProperties()),
+                new AdmissionController(admissionProperties, meterRegistry));
+    }
+
+    /**
+     * Waits until the AI has booked {@code bookings} times and the player may move again.
+     */
+    private static void awaitAiBookings(GameSession session, int bookings) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((session.getGameState().getPlayers().get("Jürgen-AI").getUsedBookingTypes().size() < bookings || session.getMailbox().isAiTurn())
+                && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    @Test
+    void testFailedAiStepIsFinishedWithTheLocalFallback() throws InterruptedException {
+        AiModel down = (systemPrompt, userPrompt, verify) -> {
+            throw new AiModelUnavailableException("down");
+        };
+        // the remote model's fallback fails as well, so the step itself fails
+        LocalAiModel broken = new LocalAiModel() {
+            @Override
+            public int[] chooseDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+                throw new IllegalStateException("no table");
+            }
+
+            @Override
+            public BookingType chooseBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+                throw new IllegalStateException("no table");
+            }
+        };
+        GameService gameService = gameService(Map.of("Down", down), Map.of("LocalSolver", broken));
+        GameState gameState = gameService.startNewGame("Player", "Down");
+        GameSession session = gameRegistry.get(gameState.getGameId());
+
+        gameService.handlePlayerBook(gameState.getGameId(), BookingType.CHANCE);
+        awaitAiBookings(session, 1);
+
+        assertFalse(session.getMailbox().isAiTurn());
+        assertEquals("Player", gameState.getCurrentPlayer().getName());
+        assertEquals(1, gameState.getPlayers().get("Jürgen-AI").getUsedBookingTypes().size());
+        assertEquals(0, meterRegistry.get("diceyvicy.admission.ai-turns.in-flight").gauge().value());
+
+        // the game goes on
+        gameService.handlePlayerBook(gameState.getGameId(), BookingType.KNIFFEL);
+        awaitAiBookings(session, 2);
+        assertTrue(gameState.getPlayers().get("Player").getUsedBookingTypes().contains(BookingType.KNIFFEL));
+        assertEquals(2, gameState.getPlayers().get("Jürgen-AI").getUsedBookingTypes().size());
+    }
+
+    @Test
+    void testAiTurnFindingTheLineFullIsPlayedWithTheFallback() throws InterruptedException {
+        AtomicInteger remoteCalls = new AtomicInteger();
+        AiModel remote = (systemPrompt, userPrompt, verify) -> {
+            remoteCalls.incrementAndGet();
+            throw new AiModelUnavailableException("must not be asked");
+        };
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setMaxAiTurns(0);
+        admissionProperties.setMaxWaitingAiTurns(0);
+        admissionProperties.setOverflowModel("");
+        GameService gameService = gameService(Map.of("Remote", remote), Map.of("LocalSolver", new AiModelFast()),
+                admissionProperties);
+        GameState gameState = gameService.startNewGame("Player", "Remote");
+        GameSession session = gameRegistry.get(gameState.getGameId());
+
+        gameService.handlePlayerBook(gameState.getGameId(), BookingType.CHANCE);
+        awaitAiBookings(session, 1);
+
+        assertEquals("Player", gameState.getCurrentPlayer().getName());
+        assertEquals(1, gameState.getPlayers().get("Jürgen-AI").getUsedBookingTypes().size());
+        assertEquals(0, remoteCalls.get());
+        assertEquals(1, meterRegistry.get("diceyvicy.admission.ai-turns.degraded").counter().count());
+    }
+}
@@ -0,0 +1,199 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateStoreTest {
+
+    private final List<AiTurnExecutor> executors = new ArrayList<>();
+
+    /**
+     * Stands in for Redis: a store shared by replicas that keeps the newest snapshot of each game.
+     */
+    private static class SharedStore implements GameStateStore {
+        private final Map<String, byte[]> snapshots = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean save(GameSnapshot snapshot) {
+            byte[] bytes = snapshot.toBytes();
+            return snapshots.merge(snapshot.gameId(), bytes,
+                    (stored, saved) -> GameSnapshot.fromBytes(stored).seq() > snapshot.seq() ? stored : saved) == bytes;
+        }
+
+        @Override
+        public GameSnapshot load(String gameId) {
+            byte[] bytes = snapshots.get(gameId);
+            return bytes == null ? null : GameSnapshot.fromBytes(bytes);
+        }
+
+        @Override
+        public void remove(String gameId) {
+            snapshots.remove(gameId);
+        }
+    }
+
+    private record Replica(GameService gameService, GameRegistry gameRegistry) {
+    }
+
+    private Replica newReplica(GameStateStore store) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GameRegistry gameRegistry = new GameRegistry(new GameRegistryProperties(), event -> {
+        }, meterRegistry);
+        AiTurnExecutor aiTurnExecutor = new AiTurnExecutor(new AiTurnProperties(), meterRegistry);
+        executors.add(aiTurnExecutor);
+        AiDecisionCache decisionCache = new AiDecisionCache(new AiDecisionCacheProperties(), meterRegistry);
+        GameService gameService = new GameService(new SimpMessagingTemplate((message, timeout) -> true),
+                aiTurnExecutor,
+                gameRegistry,
+                new AiModelRegistry(Map.of(), Map.of("LocalSolver", new AiModelFast()), decisionCache, new AiModelProperties(),
+                        new AiBatchProperties(), new AiReplayProperties(), meterRegistry),
+                new SpeculativeAiWarmer(new AiSpeculationProperties(), decisionCache, meterRegistry),
+                store,
+                new GameEventLog(new GameEventLogProperties(), meterRegistry),
+                new GameMetrics(meterRegistry, gameRegistry),
+                new MoveLog(new GameLoggingProperties()),
+                new AdmissionController(new AdmissionProperties(), meterRegistry));
+        return new Replica(gameService, gameRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(AiTurnExecutor::shutdown);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static GameSession newSession() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return new GameSession(gameState, AiBot.builder().localModel(new AiModelLocalSolver()).modelName("LocalSolver").build(), new GameMailbox(Runnable::run));
+    }
+
+    private static void assertSameGame(GameState expected, GameState actual) {
+        assertEquals(expected.getGameId(), actual.getGameId());
+        assertEquals(expected.getPackedDice(), actual.getPackedDice());
+        assertEquals(expected.getRollCount(), actual.getRollCount());
+        assertEquals(expected.getCurrentPlayerIndex(), actual.getCurrentPlayerIndex());
+        assertEquals(expected.getCurrentPlayer().getName(), actual.getCurrentPlayer().getName());
+        for (int i = 0; i < expected.getPlayerCount(); i++) {
+            assertEquals(expected.getPlayerName(i), actual.getPlayerName(i));
+            assertEquals(expected.getUsedMask(i), actual.getUsedMask(i));
+            assertEquals(expected.getScore(i), actual.getScore(i));
+        }
+    }
+
+    @Test
+    void testSnapshotRoundTrip() {
+        GameSession session = newSession();
+        session.getGameState().bookDiceRoll(BookingType.CHANCE);
+        session.getDeltaTracker().next(session.getGameState(), null);
+
+        byte[] bytes = GameSnapshot.of(session).toBytes();
+        GameSnapshot snapshot = GameSnapshot.fromBytes(bytes);
+
+        assertTrue(bytes.length < 100, "snapshot took " + bytes.length + " bytes");
+        assertEquals(session.getGameId(), snapshot.gameId());
+        assertEquals("LocalSolver", snapshot.aiModel());
+        assertEquals(1, snapshot.seq());
+        assertArrayEquals(new String[]{"Player", "Jürgen-AI"}, snapshot.playerNames());
+        assertEquals(1 << BookingType.CHANCE.ordinal(), snapshot.usedMasks()[0]);
+        assertEquals(1, snapshot.currentPlayerIndex());
+    }
+
+    @Test
+    void testRestoreContinuesTheGame() {
+        GameSession session = newSession();
+        GameState gameState = session.getGameState();
+        gameState.bookDiceRoll(BookingType.CHANCE);
+        gameState.rerollDiceByPos(new int[]{1, 2});
+
+        GameState restored = GameState.restore(GameSnapshot.of(session));
+        assertSameGame(gameState, restored);
+        assertEquals(2, restored.getRollCount());
+
+        restored.bookDiceRoll(BookingType.KNIFFEL);
+        assertEquals(0, restored.getCurrentPlayerIndex());
+        assertEquals("Player", restored.getCurrentPlayer().getName());
+        assertTrue(restored.isBooked(BookingType.CHANCE));
+        assertEquals(1, restored.getRollCount());
+    }
+
+    @Test
+    void testSecondReplicaPicksUpTheGame() {
+        GameStateStore store = new SharedStore();
+        GameSession session = newSession();
+        session.getGameState().rerollDiceByPos(new int[]{3});
+        assertTrue(store.save(GameSnapshot.of(session)));
+
+        GameSnapshot snapshot = store.load(session.getGameId());
+        assertNotNull(snapshot);
+        assertSameGame(session.getGameState(), GameState.restore(snapshot));
+
+        store.remove(session.getGameId());
+        assertNull(store.load(session.getGameId()));
+    }
+
+    @Test
+    void testMemoryStoreKeepsNothing() {
+        GameStateStore store = new InMemoryGameStateStore();
+        GameSession session = newSession();
+
+        assertFalse(store.isEnabled());
+        assertTrue(store.save(GameSnapshot.of(session)));
+        assertNull(store.load(session.getGameId()));
+    }
+
+    @Test
+    void testStaleReplicaPicksUpTheNewerGame() throws InterruptedException {
+        SharedStore store = new SharedStore();
+        Replica first = newReplica(store);
+        Replica second = newReplica(store);
+        String gameId = first.gameService().startNewGame("Player", "LocalSolver").getGameId();
+        GameSession stale = first.gameRegistry().get(gameId);
+
+        first.gameService().handlePlayerReroll(gameId, new int[0]);
+        await(() -> store.load(gameId).seq() == 1);
+        // the player's next command lands on the second replica
+        second.gameService().handlePlayerReroll(gameId, new int[0]);
+        await(() -> store.load(gameId).seq() == 2);
+        GameState played = second.gameRegistry().get(gameId).getGameState();
+
+        // back on the first replica, which must not play on its stale copy
+        first.gameService().handlePlayerReroll(gameId, new int[0]);
+        await(() -> first.gameRegistry().get(gameId) != stale);
+        GameSession session = first.gameRegistry().get(gameId);
+        assertSameGame(played, session.getGameState());
+        assertEquals(3, session.getGameState().getRollCount());
+        assertEquals(2, store.load(gameId).seq());
+
+        // a snapshot of the stale copy is not written over the newer one
+        assertFalse(store.save(GameSnapshot.of(stale)));
+        assertEquals(2, store.load(gameId).seq());
+    }
+
+    @Test
+    void testRejectsUnknownVersion() {
+        byte[] bytes = GameSnapshot.of(newSession()).toBytes();
+        bytes[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> GameSnapshot.fromBytes(bytes));
+    }
+}
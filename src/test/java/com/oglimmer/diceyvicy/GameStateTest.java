@@ -0,0 +1,63 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateTest {
+
+    private static GameState newGame() {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return gameState;
+    }
+
+    @Test
+    void testPackedDiceFollowTheGame() {
+        GameState gameState = newGame();
+        assertEquals(gameState.getDiceRolls(), PackedDice.toList(gameState.getPackedDice()));
+
+        gameState.rerollDiceByPos(new int[]{2, 4});
+        assertEquals(gameState.getDiceRolls(), PackedDice.toList(gameState.getPackedDice()));
+        assertEquals(2, gameState.getRollCount());
+    }
+
+    @Test
+    void testFilterByPositions() {
+        int packed = PackedDice.pack(List.of(6, 1, 3, 3, 5));
+        assertArrayEquals(new int[]{6, 3, 5}, GameState.filterByPositions(packed, new int[]{1, 3, 5}));
+        assertArrayEquals(new int[]{1}, GameState.filterByPositions(packed, new int[]{0, 2, 6}));
+        assertArrayEquals(GameState.filterByPositions(List.of(6, 1, 3, 3, 5), new int[]{5, 4, 9}),
+                GameState.filterByPositions(packed, new int[]{5, 4, 9}));
+    }
+
+    @Test
+    void testBookingsUpdateMaskAndScore() {
+        GameState gameState = newGame();
+        gameState.bookDiceRoll(BookingType.CHANCE);
+
+        // the AI is on turn now
+        assertEquals(1, gameState.getCurrentPlayerIndex());
+        assertFalse(gameState.isBooked(BookingType.CHANCE));
+        assertEquals(List.of(BookingType.CHANCE), GameState.bookingTypes(gameState.getUsedMask(0)));
+        assertEquals(gameState.getCurrentPlayer().getScore(), gameState.getScore(1));
+        assertEquals(gameState.getPlayers().get("Player").getScore(), gameState.getScore(0));
+
+        gameState.bookDiceRoll(BookingType.ONES);
+        assertTrue(gameState.isBooked(BookingType.CHANCE));
+        assertFalse(gameState.isGameOver());
+    }
+
+    @Test
+    void testGameOverWhenAllBooked() {
+        GameState gameState = newGame();
+        for (BookingType bookingType : BookingType.values()) {
+            gameState.bookDiceRoll(bookingType);
+            gameState.bookDiceRoll(bookingType);
+        }
+        assertTrue(gameState.isGameOver());
+    }
+}
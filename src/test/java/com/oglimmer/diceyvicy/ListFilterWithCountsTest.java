@@ -12,7 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ListFilterWithCountsTest {
 
-    private final AiBot aiBot = new AiBot();
+    private final AiBot aiBot = AiBot.builder().aiModel(new AiModel4OMini()).build();
 
     @BeforeAll
     static void setUp() {
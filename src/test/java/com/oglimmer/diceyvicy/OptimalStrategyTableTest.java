@@ -0,0 +1,97 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import com.oglimmer.kniffel.service.KniffelRules;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimalStrategyTableTest {
+
+    private static OptimalStrategyTable table;
+
+    @BeforeAll
+    static void setUp() {
+        table = OptimalStrategyTable.compute();
+    }
+
+    private static int allBut(BookingType... open) {
+        EnumSet<BookingType> used = EnumSet.allOf(BookingType.class);
+        used.removeAll(Arrays.asList(open));
+        return OptimalStrategyTable.usedMask(used);
+    }
+
+    @Test
+    void testDiceScoresMatchTheRules() {
+        KniffelRules rules = new KniffelRules();
+        for (int roll = 0; roll < DiceMultisets.ROLL_COUNT; roll++) {
+            int index = DiceMultisets.roll(roll);
+            List<Integer> dice = Arrays.stream(DiceMultisets.values(index)).boxed().toList();
+            for (BookingType bookingType : BookingType.values()) {
+                assertEquals(rules.getScore(bookingType, dice), DiceScores.score(bookingType, DiceMultisets.counts(index)), bookingType + " of " + dice);
+            }
+        }
+    }
+
+    @Test
+    void testExpectedScoreOfFreshGame() {
+        // optimal solitaire play averages about 230 points when, as here, no upper bonus is scored
+        double expected = table.expectedScore(0);
+        assertTrue(expected > 190 && expected < 245, "expected score was " + expected);
+    }
+
+    @Test
+    void testBooksKniffel() {
+        assertEquals(BookingType.KNIFFEL, table.bookingType(List.of(6, 6, 6, 6, 6), 0));
+    }
+
+    @Test
+    void testBooksOnlyOpenType() {
+        assertEquals(BookingType.CHANCE, table.bookingType(List.of(1, 1, 1, 1, 1), allBut(BookingType.CHANCE)));
+    }
+
+    @Test
+    void testKeepsStraightWhenOnlyLargeStraightIsOpen() {
+        int[] keep = table.diceToKeep(List.of(2, 3, 4, 5, 5), allBut(BookingType.LARGE_STRAIGHT), 1);
+        assertArrayEquals(new int[]{2, 3, 4, 5}, keep);
+    }
+
+    @Test
+    void testKeepsTripleForKniffel() {
+        int[] keep = table.diceToKeep(List.of(4, 4, 4, 1, 2), allBut(BookingType.KNIFFEL), 2);
+        assertArrayEquals(new int[]{4, 4, 4}, keep);
+    }
+
+    @Test
+    void testKeptDiceAreSubsetOfRoll() {
+        List<Integer> dice = List.of(5, 1, 3, 3, 6);
+        List<Integer> remaining = new ArrayList<>(dice);
+        for (int value : table.diceToKeep(dice, 0, 1)) {
+            assertTrue(remaining.remove(Integer.valueOf(value)), "kept a die that was not rolled: " + value);
+        }
+    }
+
+    @Test
+    void testInvalidDice() {
+        assertArrayEquals(new int[0], table.diceToKeep(List.of(1, 2, 3), 0, 1));
+        assertNull(table.bookingType(List.of(0, 2, 3, 4, 5), 0));
+    }
+
+    @Test
+    void testSaveAndLoad(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("solver.bin");
+        table.save(file);
+        OptimalStrategyTable loaded = OptimalStrategyTable.load(file);
+        assertEquals(table.expectedScore(0), loaded.expectedScore(0));
+        assertArrayEquals(table.diceToKeep(List.of(1, 2, 2, 5, 6), 37, 2), loaded.diceToKeep(List.of(1, 2, 2, 5, 6), 37, 2));
+        assertEquals(table.bookingType(List.of(3, 3, 3, 5, 5), 300), loaded.bookingType(List.of(3, 3, 3, 5, 5), 300));
+    }
+}
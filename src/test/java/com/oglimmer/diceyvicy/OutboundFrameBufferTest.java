@@ -0,0 +1,198 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundFrameBufferTest {
+
+    private static final String GAME = "/topic/game/g1";
+    private static final String OTHER_GAME = "/topic/game/g2";
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<CloseStatus> closed = new ArrayList<>();
+    private final List<Runnable> writers = new ArrayList<>();
+    private CountDownLatch socketBlocked;
+
+    @Test
+    void testSnapshotSupersedesQueuedUpdatesOfItsGame() throws Exception {
+        WebSocketSession session = connect(DataSize.ofKilobytes(64), writers::add);
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"reasoning\",\"seq\":1,\"text\":\"hm\"}"));
+        session.sendMessage(frame(OTHER_GAME, "{\"type\":\"delta\",\"seq\":7}"));
+        session.sendMessage(frame(GAME, "{\"gameId\":\"g1\",\"seq\":2}"));
+        writeAll();
+
+        assertEquals(List.of("{\"type\":\"delta\",\"seq\":7}", "{\"gameId\":\"g1\",\"seq\":2}"), sent);
+    }
+
+    @Test
+    void testDeltaDropsQueuedReasoningButNoDeltas() throws Exception {
+        WebSocketSession session = connect(DataSize.ofKilobytes(64), writers::add);
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"reasoning\",\"seq\":1,\"text\":\"hm\"}"));
+        session.sendMessage(frame(OTHER_GAME, "{\"type\":\"reasoning\",\"seq\":3,\"text\":\"so\"}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":2}"));
+        writeAll();
+
+        assertEquals(List.of("{\"type\":\"delta\",\"seq\":1}", "{\"type\":\"reasoning\",\"seq\":3,\"text\":\"so\"}",
+                "{\"type\":\"delta\",\"seq\":2}"), sent);
+    }
+
+    @Test
+    void testFrameOfAnotherTypeSupersedesNothing() throws Exception {
+        WebSocketSession session = connect(DataSize.ofKilobytes(64), writers::add);
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"reasoning\",\"seq\":1,\"text\":\"hm\"}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"throttled\",\"retryAfterMs\":200,\"text\":\"slow down\"}"));
+        writeAll();
+
+        assertEquals(List.of("{\"type\":\"delta\",\"seq\":1}", "{\"type\":\"reasoning\",\"seq\":1,\"text\":\"hm\"}",
+                "{\"type\":\"throttled\",\"retryAfterMs\":200,\"text\":\"slow down\"}"), sent);
+    }
+
+    @Test
+    void testFullBufferKeepsNewestUpdateNotAnotherFrame() throws Exception {
+        WebSocketSession session = connect(DataSize.ofBytes(500), writers::add);
+
+        for (int seq = 1; seq <= 5; seq++) {
+            session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":" + seq + "}"));
+        }
+        session.sendMessage(frame(GAME, "{\"type\":\"throttled\",\"retryAfterMs\":200,\"text\":\"slow down\"}"));
+        writeAll();
+
+        assertTrue(sent.contains("{\"type\":\"delta\",\"seq\":5}"));
+        assertTrue(closed.isEmpty());
+    }
+
+    @Test
+    void testFullBufferKeepsNewestUpdatePerGame() throws Exception {
+        WebSocketSession session = connect(DataSize.ofBytes(500), writers::add);
+
+        for (int seq = 1; seq <= 5; seq++) {
+            session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":" + seq + "}"));
+        }
+        writeAll();
+
+        // the client sees seq 5 after 0 and resyncs
+        assertEquals(List.of("{\"type\":\"delta\",\"seq\":5}"), sent.subList(sent.size() - 1, sent.size()));
+        assertTrue(sent.size() < 5);
+        assertTrue(closed.isEmpty());
+    }
+
+    @Test
+    void testClientThatDoesNotCatchUpIsDisconnected() throws Exception {
+        WebSocketSession session = connect(DataSize.ofBytes(200), writers::add);
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.sendMessage(frame(OTHER_GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":2}"));
+        writeAll();
+
+        assertEquals(List.of(CloseStatus.SESSION_NOT_RELIABLE), closed);
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    void testSlowSocketIsDisconnectedAfterSendTimeLimit() throws Exception {
+        socketBlocked = new CountDownLatch(1);
+        WebSocketSession session = connect(DataSize.ofKilobytes(64), command -> new Thread(command).start());
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        TimeUnit.MILLISECONDS.sleep(150);
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":2}"));
+
+        assertEquals(List.of(CloseStatus.SESSION_NOT_RELIABLE), closed);
+        socketBlocked.countDown();
+    }
+
+    @Test
+    void testCloseWaitsForQueuedFrames() throws Exception {
+        WebSocketSession session = connect(DataSize.ofKilobytes(64), writers::add);
+
+        session.sendMessage(frame(GAME, "{\"type\":\"delta\",\"seq\":1}"));
+        session.close(CloseStatus.PROTOCOL_ERROR);
+        assertTrue(closed.isEmpty());
+        writeAll();
+
+        assertEquals(List.of("{\"type\":\"delta\",\"seq\":1}"), sent);
+        assertEquals(List.of(CloseStatus.PROTOCOL_ERROR), closed);
+    }
+
+    private void writeAll() {
+        while (!writers.isEmpty()) {
+            writers.remove(0).run();
+        }
+    }
+
+    private static BinaryMessage frame(String destination, String json) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("0");
+        accessor.setMessageId("m");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        return new BinaryMessage(new StompEncoder().encode(accessor.getMessageHeaders(), json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return the session as the decorated handler got it
+     */
+    private WebSocketSession connect(DataSize bufferSize, Executor executor) throws Exception {
+        WebSocketTransportProperties properties = new WebSocketTransportProperties();
+        properties.setSendBufferSizeLimit(bufferSize);
+        properties.setSendTimeLimit(Duration.ofMillis(100));
+        WebSocketSession socket = (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "sendMessage" -> {
+                            if (socketBlocked != null) {
+                                socketBlocked.await();
+                            }
+                            String frame = new String(((BinaryMessage) args[0]).getPayload().array(), StandardCharsets.UTF_8);
+                            synchronized (sent) {
+                                sent.add(frame.substring(frame.indexOf("\n\n") + 2, frame.length() - 1));
+                            }
+                        }
+                        case "close" -> closed.add((CloseStatus) args[0]);
+                        case "getId" -> {
+                            return "s1";
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+        List<WebSocketSession> established = new ArrayList<>();
+        new OutboundFrameBuffer(properties, new SimpleMeterRegistry(), executor).decorate(new AbstractWebSocketHandler() {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) {
+                established.add(session);
+            }
+        }).afterConnectionEstablished(socket);
+        return established.get(0);
+    }
+}
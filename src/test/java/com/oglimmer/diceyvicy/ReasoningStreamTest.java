@@ -0,0 +1,99 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReasoningStreamTest {
+
+    /**
+     * Streams two pieces of reasoning, then the answer in pieces followed by text that must not be waited for.
+     */
+    private static final AiModel STREAMING_MODEL = new AiModel() {
+        @Override
+        public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+            return "{\"diceToKeep\": [], \"reasoning\": \"not streamed\"}";
+        }
+
+        @Override
+        public CompletableFuture<String> askModelStreaming(String systemPrompt, String userPrompt, Function<Object, Boolean> verify,
+                                                           Consumer<String> reasoning) {
+            reasoning.accept("Two sixes, ");
+            reasoning.accept("going for sixes.");
+            JsonObjectScanner scanner = new JsonObjectScanner();
+            for (String piece : List.of("Here you go: {\"diceToKeep\": [6, ", "6], \"reasoning\": \"pair {of} \\\"sixes\\\"\"}", " Good luck!")) {
+                String json = scanner.append(piece);
+                if (json != null) {
+                    return CompletableFuture.completedFuture(json);
+                }
+            }
+            return CompletableFuture.completedFuture(scanner.unclosed());
+        }
+    };
+
+    private static AiBot aiBot(boolean streamReasoning) {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setStreamReasoning(streamReasoning);
+        return AiBot.builder()
+                .aiModel(new ResilientAiModel(STREAMING_MODEL, "stub", properties, new SimpleMeterRegistry()))
+                .modelName("stub")
+                .build();
+    }
+
+    @Test
+    void testScannerStopsAtEndOfFirstObject() {
+        JsonObjectScanner scanner = new JsonObjectScanner();
+        assertNull(scanner.append("Sure: {\"a\": \"}\", "));
+        assertNull(scanner.append("\"b\": {\"c\": 1}"));
+        assertEquals("{\"a\": \"}\", \"b\": {\"c\": 1}}", scanner.append("} and {\"d\": 2}"));
+        assertNull(scanner.append("{}"));
+        assertNull(scanner.unclosed());
+
+        JsonObjectScanner truncated = new JsonObjectScanner();
+        assertNull(truncated.unclosed());
+        truncated.append("I think {\"a\": ");
+        assertEquals("{\"a\": ", truncated.unclosed());
+    }
+
+    @Test
+    void testReasoningIsForwardedWhileTheModelDecides() {
+        List<String> reasoning = new ArrayList<>();
+
+        int[] diceToKeep = aiBot(true).askAiWhichDiceToKeep(List.of(6, 6, 1, 2, 3), List.of(), 1, reasoning::add);
+
+        assertArrayEquals(new int[]{6, 6}, diceToKeep);
+        assertEquals(List.of("Two sixes, ", "going for sixes."), reasoning);
+    }
+
+    @Test
+    void testNothingIsStreamedUnlessEnabled() {
+        List<String> reasoning = new ArrayList<>();
+
+        assertArrayEquals(new int[0], aiBot(false).askAiWhichDiceToKeep(List.of(6, 6, 1, 2, 3), List.of(), 1, reasoning::add));
+        assertTrue(reasoning.isEmpty());
+    }
+
+    @Test
+    void testFramesCollectSeveralPieces() {
+        List<String> frames = new ArrayList<>();
+        ReasoningStream stream = new ReasoningStream(7, payload -> frames.add(new String(payload, StandardCharsets.UTF_8)));
+
+        stream.accept("Two ");
+        stream.accept("sixes.\n");
+        stream.accept("Keep them");
+        assertEquals(List.of("{\"type\":\"reasoning\",\"seq\":7,\"text\":\"Two sixes.\\n\"}"), frames);
+
+        stream.flush();
+        stream.flush();
+        assertEquals("{\"type\":\"reasoning\",\"seq\":7,\"text\":\"Keep them\"}", frames.get(1));
+        assertEquals(2, frames.size());
+    }
+}
@@ -0,0 +1,173 @@
+package com.oglimmer.diceyvicy;
+
+import com.oglimmer.kniffel.model.BookingType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResilientAiModelTest {
+
+    private static final LocalAiModel FALLBACK = new LocalAiModel() {
+        @Override
+        public int[] chooseDiceToKeep(List<Integer> diceRolls, List<BookingType> usedBookingTypes, int round) {
+            return new int[]{6};
+        }
+
+        @Override
+        public BookingType chooseBookingType(List<Integer> diceRolls, List<BookingType> usedBookingTypes) {
+            return BookingType.CHANCE;
+        }
+    };
+
+    /**
+     * A model whose n-th call (counting from 0) answers after the given delay, or never for a negative delay.
+     */
+    private static AiModel delayedModel(AtomicInteger calls, Function<Integer, Long> delayMillis) {
+        return new AiModel() {
+            @Override
+            public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                long delay = delayMillis.apply(calls.getAndIncrement());
+                if (delay < 0) {
+                    return new CompletableFuture<>();
+                }
+                return CompletableFuture.supplyAsync(() -> "{\"diceToKeep\": [1], \"reasoning\": \"ones\"}",
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            }
+        };
+    }
+
+    @Test
+    void testTimeoutFallsBackToLocalModel() {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setTimeout(Duration.ofMillis(100));
+        ResilientAiModel model = new ResilientAiModel(delayedModel(new AtomicInteger(), call -> -1L), "stub", properties, new SimpleMeterRegistry());
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").fallback(FALLBACK).build();
+
+        assertArrayEquals(new int[]{6}, aiBot.askAiWhichDiceToKeep(List.of(1, 2, 3, 4, 6), List.of(), 1));
+        assertEquals(BookingType.CHANCE, aiBot.askAiBookingType(List.of(1, 2, 3, 4, 6), List.of()));
+    }
+
+    @Test
+    void testOpenCircuitDoesNotCallModel() {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setFailureThreshold(2);
+        AtomicInteger calls = new AtomicInteger();
+        AiModel failing = (systemPrompt, userPrompt, verify) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("upstream down");
+        };
+        ResilientAiModel model = new ResilientAiModel(failing, "stub", properties, new SimpleMeterRegistry());
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").fallback(FALLBACK).build();
+
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(new int[]{6}, aiBot.askAiWhichDiceToKeep(List.of(1, 2, 3, 4, 6), List.of(), 1));
+        }
+        assertEquals(2, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, model.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void testHedgedRequestAnswersForStalledOne() {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setHedgeEnabled(true);
+        properties.setHedgeMinSamples(3);
+        properties.setTimeout(Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+        // three calls establish the usual latency, the fourth stalls and the fifth is its hedge
+        ResilientAiModel model = new ResilientAiModel(delayedModel(calls, call -> call == 3 ? -1L : 50L), "stub", properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            model.askModel("system", "user", null);
+        }
+        assertEquals("{\"diceToKeep\": [1], \"reasoning\": \"ones\"}", model.askModel("system", "user", null));
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    void testCancelledAnswerCancelsTheRequest() {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setFailureThreshold(1);
+        CompletableFuture<String> request = new CompletableFuture<>();
+        AiModel stalled = new AiModel() {
+            @Override
+            public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                return request;
+            }
+        };
+        ResilientAiModel model = new ResilientAiModel(stalled, "stub", properties, new SimpleMeterRegistry());
+
+        assertTrue(model.askModelAsync("system", "user", null).cancel(true));
+        assertTrue(request.isCancelled());
+        // not wanting the answer anymore is no failure of the model
+        assertEquals(CircuitBreaker.State.CLOSED, model.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void testCancelledTrialCallLetsTheNextCallTry() {
+        AiModelProperties properties = new AiModelProperties();
+        properties.setFailureThreshold(1);
+        properties.setOpenDuration(Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        AiModel failingOnce = new AiModel() {
+            @Override
+            public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+                return calls.getAndIncrement() == 0
+                        ? CompletableFuture.failedFuture(new IllegalStateException("upstream down"))
+                        : new CompletableFuture<>();
+            }
+        };
+        ResilientAiModel model = new ResilientAiModel(failingOnce, "stub", properties, new SimpleMeterRegistry());
+
+        assertThrows(CompletionException.class, () -> model.askModelAsync("system", "user", null).join());
+        assertEquals(CircuitBreaker.State.OPEN, model.getCircuitBreaker().getState());
+
+        CompletableFuture<String> trial = model.askModelAsync("system", "user", null);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, model.getCircuitBreaker().getState());
+        assertTrue(trial.cancel(true));
+        assertEquals(CircuitBreaker.State.OPEN, model.getCircuitBreaker().getState());
+
+        // the next call is the new trial and reaches the model
+        model.askModelAsync("system", "user", null);
+        assertEquals(3, calls.get());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, model.getCircuitBreaker().getState());
+    }
+
+    @Test
+    void testCircuitBreakerTrialCall() {
+        long[] now = {0};
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofNanos(100), () -> now[0]);
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.tryAcquire());
+
+        now[0] = 100;
+        assertTrue(circuitBreaker.tryAcquire());
+        // only one trial call at a time
+        assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+}
@@ -0,0 +1,27 @@
+package com.oglimmer.diceyvicy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationRunnerTest {
+
+    @Test
+    void testStrategiesPlayFullGames() {
+        for (SimulationStrategy strategy : new SimulationStrategy[]{SimulationStrategy.random(), SimulationStrategy.greedy(),
+                SimulationStrategy.aiBot(AiBot.builder().aiModel(SimulationRunner.stubModel()).build())}) {
+            SimulationRunner.SimulationResult result = SimulationRunner.run(strategy, 200);
+            assertEquals(200, result.getGames());
+            assertTrue(result.getPercentile(0) >= 0);
+            // the best possible game: 105 in the upper section, 235 in the lower, the rules library scores no bonus
+            assertTrue(result.getPercentile(1) <= 340, "max score was " + result.getPercentile(1));
+        }
+    }
+
+    @Test
+    void testSolverBeatsGreedy() {
+        SimulationRunner.SimulationResult solver = SimulationRunner.run(SimulationStrategy.solver(OptimalStrategyTable.compute()), 2000);
+        SimulationRunner.SimulationResult greedy = SimulationRunner.run(SimulationStrategy.greedy(), 2000);
+        assertTrue(solver.getMean() > greedy.getMean(), "solver " + solver + ", greedy " + greedy);
+    }
+}
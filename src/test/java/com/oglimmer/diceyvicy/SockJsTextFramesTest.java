@@ -0,0 +1,65 @@
+package com.oglimmer.diceyvicy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class SockJsTextFramesTest {
+
+    private final List<WebSocketMessage<?>> sent = new ArrayList<>();
+
+    @Test
+    void testSockJsSessionGetsBinaryFramesAsText() throws Exception {
+        WebSocketSession session = connect(SockJsSession.class);
+        byte[] frame = "MESSAGE\n\n{\"player\":\"Jürgen\"}\0".getBytes(StandardCharsets.UTF_8);
+
+        session.sendMessage(new BinaryMessage(frame));
+
+        TextMessage text = assertInstanceOf(TextMessage.class, sent.get(0));
+        assertEquals(new String(frame, StandardCharsets.UTF_8), text.getPayload());
+    }
+
+    @Test
+    void testPlainWebSocketSessionKeepsBinaryFrames() throws Exception {
+        WebSocketSession session = connect(WebSocketSession.class);
+
+        session.sendMessage(new BinaryMessage(new byte[]{1, 2, 3}));
+
+        assertInstanceOf(BinaryMessage.class, sent.get(0));
+    }
+
+    /**
+     * @return the session as the decorated handler got it
+     */
+    private WebSocketSession connect(Class<? extends WebSocketSession> type) throws Exception {
+        WebSocketSession session = (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("sendMessage")) {
+                        sent.add((WebSocketMessage<?>) args[0]);
+                    }
+                    return null;
+                });
+        List<WebSocketSession> established = new ArrayList<>();
+        WebSocketHandler handler = new SockJsTextFrames().decorate(new AbstractWebSocketHandler() {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) {
+                established.add(session);
+            }
+        });
+        handler.afterConnectionEstablished(session);
+        return established.get(0);
+    }
+}
@@ -0,0 +1,133 @@
+package com.oglimmer.diceyvicy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpeculativeAiWarmerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AiDecisionCache cache = new AiDecisionCache(new AiDecisionCacheProperties(), meterRegistry);
+
+    /**
+     * Answers once the test completes the call's future; the calls are keyed by the dice in the prompt.
+     */
+    private static class PendingModel implements AiModel {
+        private final Map<String, CompletableFuture<String>> calls = new ConcurrentHashMap<>();
+
+        @Override
+        public String askModel(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+            return askModelAsync(systemPrompt, userPrompt, verify).join();
+        }
+
+        @Override
+        public CompletableFuture<String> askModelAsync(String systemPrompt, String userPrompt, Function<Object, Boolean> verify) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.put(userPrompt.substring(userPrompt.indexOf('['), userPrompt.indexOf(']') + 1), call);
+            return call;
+        }
+    }
+
+    private SpeculativeAiWarmer newWarmer(int maxRolls) {
+        AiSpeculationProperties properties = new AiSpeculationProperties();
+        properties.setEnabled(true);
+        properties.setMaxRolls(maxRolls);
+        return new SpeculativeAiWarmer(properties, cache, meterRegistry);
+    }
+
+    private void recordLatency(String modelName, Duration latency) {
+        Timer.builder(ResilientAiModel.LATENCY_METER).tag("model", modelName).register(meterRegistry).record(latency);
+    }
+
+    private static GameSession newSession(AiBot aiBot) {
+        GameState gameState = new GameState();
+        gameState.initializeGame("Player");
+        return new GameSession(gameState, aiBot, new GameMailbox(Runnable::run));
+    }
+
+    @Test
+    void testWarmsMostLikelyRollsAndKeepsMatchOnHandOver() throws Exception {
+        PendingModel model = new PendingModel();
+        AiDecisionMetrics metrics = new AiDecisionMetrics("stub", meterRegistry);
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").decisionCache(cache).metrics(metrics).build();
+        recordLatency("stub", Duration.ofSeconds(10));
+        SpeculativeAiWarmer warmer = newWarmer(3);
+        GameSession session = newSession(aiBot);
+
+        warmer.warm(session);
+        assertEquals(3, model.calls.size());
+
+        // five different dice are the most likely kind of roll
+        Future<?> match = warmer.handOver(session.getGameId(), List.of(5, 3, 1, 2, 4));
+        assertFalse(match.isDone());
+        model.calls.forEach((dice, call) -> assertEquals(!dice.equals("[1, 2, 3, 4, 5]"), call.isCancelled(), dice));
+
+        model.calls.get("[1, 2, 3, 4, 5]").complete("{\"diceToKeep\": [1, 2, 3, 4], \"reasoning\": \"straight\"}");
+        match.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, cache.getDiceToKeep("stub", List.of(1, 2, 3, 4, 5), List.of(), 1));
+        assertEquals(2, meterRegistry.get("diceyvicy.ai.speculation.cancelled").counter().count());
+        // speculating is not deciding
+        assertEquals(0, meterRegistry.get("diceyvicy.ai.decision").tag("model", "stub").tag("phase", "keep").timer().count());
+    }
+
+    @Test
+    void testFailedSpeculationIsNotADecisionFailure() {
+        PendingModel model = new PendingModel();
+        AiDecisionMetrics metrics = new AiDecisionMetrics("stub", meterRegistry);
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").decisionCache(cache).metrics(metrics).build();
+        recordLatency("stub", Duration.ofSeconds(10));
+        SpeculativeAiWarmer warmer = newWarmer(1);
+        GameSession session = newSession(aiBot);
+
+        warmer.warm(session);
+        model.calls.values().forEach(call -> call.completeExceptionally(new AiModelUnavailableException("down")));
+
+        assertEquals(1, meterRegistry.get("diceyvicy.ai.speculation.failed").counter().count());
+        assertEquals(0, meterRegistry.get("diceyvicy.ai.decision.failures").tag("model", "stub").tag("phase", "keep").counter().count());
+        assertEquals(0, meterRegistry.get("diceyvicy.ai.decision.fallbacks").tag("model", "stub").tag("phase", "keep").counter().count());
+    }
+
+    @Test
+    void testFastModelIsNotWorthWarming() {
+        PendingModel model = new PendingModel();
+        AiBot aiBot = AiBot.builder().aiModel(model).modelName("stub").decisionCache(cache).build();
+        SpeculativeAiWarmer warmer = newWarmer(6);
+        GameSession session = newSession(aiBot);
+
+        // no latency measured yet
+        warmer.warm(session);
+        assertTrue(model.calls.isEmpty());
+
+        // a 1.5% chance to save a second is not worth a call
+        recordLatency("stub", Duration.ofSeconds(1));
+        warmer.warm(session);
+        assertTrue(model.calls.isEmpty());
+    }
+
+    @Test
+    void testHandOverWithoutSpeculationIsDone() {
+        SpeculativeAiWarmer warmer = newWarmer(3);
+        assertTrue(warmer.handOver("unknown", List.of(6, 6, 6, 6, 6)).isDone());
+    }
+
+    @Test
+    void testLocalModelIsNotWarmed() {
+        SpeculativeAiWarmer warmer = newWarmer(3);
+        GameSession session = newSession(AiBot.builder().localModel(new AiModelLocalSolver()).build());
+
+        warmer.warm(session);
+        assertTrue(warmer.handOver(session.getGameId(), List.of(1, 2, 3, 4, 5)).isDone());
+    }
+}